@@ -0,0 +1,77 @@
+package rop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rop.ServiceMethodInvoker;
+import rop.impl.ReflectiveServiceMethodInvoker;
+import rop.impl.ServiceMethodInvokerFactory;
+import rop.request.ServiceRequest;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *    比较字节码生成的服务方法调用器与{@link Method#invoke}反射调用的耗时。
+ *    运行：mvn -P benchmark package，然后java -jar rop-benchmark/target/benchmarks.jar ServiceMethodInvokerBenchmark
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ServiceMethodInvokerBenchmark {
+
+	private BenchmarkService handler;
+
+	private Object[] args;
+
+	private ServiceMethodInvoker asmInvoker;
+
+	private ServiceMethodInvoker reflectiveInvoker;
+
+	@Setup
+	public void setUp() throws Exception {
+		handler = new BenchmarkService();
+		args = new Object[]{new BenchmarkRequest()};
+		Method method = BenchmarkService.class.getMethod("echo", BenchmarkRequest.class);
+		asmInvoker = new ServiceMethodInvokerFactory().createInvoker(method);
+		if (asmInvoker instanceof ReflectiveServiceMethodInvoker) {
+			throw new IllegalStateException("未能生成字节码调用器");
+		}
+		reflectiveInvoker = new ReflectiveServiceMethodInvoker(method);
+	}
+
+	@Benchmark
+	public Object asm() throws Throwable {
+		return asmInvoker.invoke(handler, args);
+	}
+
+	@Benchmark
+	public Object reflective() throws Throwable {
+		return reflectiveInvoker.invoke(handler, args);
+	}
+
+	public static class BenchmarkRequest implements ServiceRequest {
+	}
+
+	public static class BenchmarkService {
+
+		public Object echo(BenchmarkRequest request) {
+			return request;
+		}
+	}
+}
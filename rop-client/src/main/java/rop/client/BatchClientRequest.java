@@ -0,0 +1,41 @@
+package rop.client;
+
+import rop.request.RichServiceRequest;
+import rop.request.ServiceRequest;
+
+import java.util.List;
+
+/**
+ * <pre>
+ *     批量调用请求，将多个服务调用合并为一次HTTP请求(rop.batch)，只签名一次，服务端并行执行。
+ *     请求体及响应固定使用json格式。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public interface BatchClientRequest {
+
+	/**
+	 * 添加一个服务调用
+	 * @param serviceRequest 业务参数，可为null
+	 * @param responseClass  响应类
+	 * @param methodName
+	 * @param version
+	 * @return
+	 */
+	BatchClientRequest add(ServiceRequest serviceRequest, Class<?> responseClass, String methodName, String version);
+
+	/**
+	 * 添加一个服务调用
+	 * @param request
+	 * @return
+	 */
+	BatchClientRequest add(RichServiceRequest request);
+
+	/**
+	 * 发起批量调用
+	 * @return 与添加顺序一一对应的响应对象；批量调用本身失败时(如签名错误)每个位置都是该错误响应
+	 */
+	List<Object> execute();
+}
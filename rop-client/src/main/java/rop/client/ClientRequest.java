@@ -127,6 +127,62 @@ public interface ClientRequest {
 	 */
 	<T> T postWithMultipart(RichServiceRequest request);
 
+	/**
+	 * 使用POST发起application/json请求，serviceRequest整体序列化为JSON请求体，签名时以请求体摘要参与签名
+	 * @param serviceRequest
+	 * @param objectType
+	 * @param methodName
+	 * @param version
+	 * @param <T>
+	 * @return
+	 */
+	<T> T postWithJson(ServiceRequest serviceRequest, Class<T> objectType, String methodName, String version);
+
+	/**
+	 * 使用POST发起application/json请求
+	 * @param request
+	 * @param objectType
+	 * @param <T>
+	 * @return
+	 */
+	<T> T postWithJson(RichServiceRequest request, Class<T> objectType);
+
+	/**
+	 * 使用POST发起application/json请求
+	 * @param request
+	 * @param <T>
+	 * @return
+	 */
+	<T> T postWithJson(RichServiceRequest request);
+
+	/**
+	 * 使用POST发起请求，serviceRequest整体按客户端设置的format(默认json)序列化为请求体，签名时以请求体摘要参与签名
+	 * @param serviceRequest
+	 * @param objectType
+	 * @param methodName
+	 * @param version
+	 * @param <T>
+	 * @return
+	 */
+	<T> T postWithBody(ServiceRequest serviceRequest, Class<T> objectType, String methodName, String version);
+
+	/**
+	 * 使用POST发起请求，请求体按客户端设置的format序列化
+	 * @param request
+	 * @param objectType
+	 * @param <T>
+	 * @return
+	 */
+	<T> T postWithBody(RichServiceRequest request, Class<T> objectType);
+
+	/**
+	 * 使用POST发起请求，请求体按客户端设置的format序列化
+	 * @param request
+	 * @param <T>
+	 * @return
+	 */
+	<T> T postWithBody(RichServiceRequest request);
+
     /**
      * 使用GET发送服务请求
      * @param objectType
@@ -3,16 +3,20 @@ package rop.client;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import rop.RopUnmarshaller;
+import rop.Constants;
+import rop.MessageCodec;
+import rop.MessageCodecRegistry;
 import rop.annotation.IgnoreSign;
 import rop.annotation.Temporary;
 import rop.converter.Complex;
 import rop.converter.RopConverter;
 import rop.converter.Style;
-import rop.json.FastjsonRopUnmarshaller;
 import rop.request.*;
 import rop.thirdparty.com.alibaba.fastjson.JSON;
+import rop.thirdparty.com.alibaba.fastjson.JSONArray;
+import rop.thirdparty.com.alibaba.fastjson.JSONObject;
 import rop.thirdparty.com.alibaba.fastjson.serializer.SerializerFeature;
+import rop.thirdparty.org.apache.commons.codec.binary.Base64;
 import rop.thirdparty.org.apache.commons.lang3.StringUtils;
 import rop.utils.RopUtils;
 import rop.utils.spring.AnnotationUtils;
@@ -20,9 +24,11 @@ import rop.utils.spring.Assert;
 import rop.utils.spring.ClassUtils;
 import rop.utils.spring.ReflectionUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
+import java.nio.charset.Charset;
 import java.util.*;
 
 /**
@@ -33,6 +39,9 @@ import java.util.*;
  */
 public class DefaultRopClient implements RopClient {
 
+	//默认的GET请求响应校验缓存大小
+	public static final int DEFAULT_VALIDATOR_CACHE_SIZE = 64;
+
 	protected final Logger logger = LoggerFactory.getLogger(getClass());
 
 	private String serverUrl;
@@ -45,11 +54,23 @@ public class DefaultRopClient implements RopClient {
 
 	private boolean needSign = true;
 
+	//是否接受服务端gzip压缩的响应
+	private boolean acceptCompression = true;
+
 	private Locale locale = Locale.SIMPLIFIED_CHINESE;
 
 	private Map<String, String> extInfoMap = new HashMap<String,String>(2);
 
-	private RopUnmarshaller ropUnmarshaller = new FastjsonRopUnmarshaller();
+	private MessageCodecRegistry messageCodecRegistry = MessageCodecRegistry.createDefault();
+
+	//报文格式，为null时使用服务端默认的json格式
+	private String format;
+
+	//签名方式，为null时使用默认的sha1签名
+	private String signMethod;
+
+	//GET请求的响应校验缓存，为null表示不发起条件请求
+	private ResponseValidatorCache validatorCache = new ResponseValidatorCache(DEFAULT_VALIDATOR_CACHE_SIZE);
 
 	//请求类所有请求参数
 	private Map<Class<?>, List<Field>> requestAllFields = new HashMap<Class<?>, List<Field>>();
@@ -104,6 +125,43 @@ public class DefaultRopClient implements RopClient {
 			return this;
 		}
 
+		public Builder withCompression(boolean acceptCompression) {
+			ropClient.acceptCompression = acceptCompression;
+			return this;
+		}
+
+		/**
+		 * 设置报文格式，如json、msgpack，响应及{@link ClientRequest#postWithBody}的请求体都使用该格式
+		 */
+		public Builder withFormat(String format) {
+			ropClient.format = format;
+			return this;
+		}
+
+		/**
+		 * 设置签名方式，如{@link RopUtils#SIGN_METHOD_HMAC_SHA256}，签名方式通过请求头告知服务端
+		 */
+		public Builder withSignMethod(String signMethod) {
+			if (!RopUtils.isSupportedSignMethod(signMethod)) {
+				throw new RuntimeException("unsupported sign method:" + signMethod);
+			}
+			ropClient.signMethod = signMethod;
+			return this;
+		}
+
+		/**
+		 * 设置GET请求的响应校验缓存大小，0表示不缓存，即不发起If-None-Match条件请求
+		 */
+		public Builder withValidatorCacheSize(int validatorCacheSize) {
+			ropClient.validatorCache = validatorCacheSize > 0 ? new ResponseValidatorCache(validatorCacheSize) : null;
+			return this;
+		}
+
+		public Builder withMessageCodecRegistry(MessageCodecRegistry messageCodecRegistry) {
+			ropClient.messageCodecRegistry = messageCodecRegistry;
+			return this;
+		}
+
 		public DefaultRopClient build() {
 			if (StringUtils.isBlank(ropClient.serverUrl)) {
 				throw new RuntimeException("server url can not be null");
@@ -197,6 +255,16 @@ public class DefaultRopClient implements RopClient {
 		return new DefaultClientRequest(this,connTimeout,readTimeout);
 	}
 
+	@Override
+	public BatchClientRequest buildBatchRequest() {
+		return new DefaultBatchClientRequest(new DefaultClientRequest(this));
+	}
+
+	@Override
+	public BatchClientRequest buildBatchRequest(int connTimeout,int readTimeout) {
+		return new DefaultBatchClientRequest(new DefaultClientRequest(this,connTimeout,readTimeout));
+	}
+
 	@Override
 	public void destroy() {
 		//do nothing
@@ -207,6 +275,50 @@ public class DefaultRopClient implements RopClient {
 		this.needSign = needSign;
 	}
 
+	private class DefaultBatchClientRequest implements BatchClientRequest {
+
+		private final DefaultClientRequest clientRequest;
+
+		private final BatchRequest batchRequest = new BatchRequest();
+
+		private final List<Class<?>> responseClasses = new ArrayList<Class<?>>();
+
+		private DefaultBatchClientRequest(DefaultClientRequest clientRequest) {
+			this.clientRequest = clientRequest;
+			//批量调用的请求体及响应固定为json格式
+			clientRequest.addHeader(SystemParameterNames.getFormat(), MessageCodecRegistry.FORMAT_JSON);
+		}
+
+		@Override
+		public BatchClientRequest add(ServiceRequest serviceRequest, Class<?> responseClass, String methodName, String version) {
+			Map<String, String> params = serviceRequest != null ?
+					getParamFields(serviceRequest) : new HashMap<String, String>(0);
+			batchRequest.getCalls().add(new BatchCall(methodName, version, params));
+			responseClasses.add(responseClass);
+			return this;
+		}
+
+		@Override
+		public BatchClientRequest add(RichServiceRequest request) {
+			return add(request, request.getResponseClass(), request.getMethod(), request.getVersion());
+		}
+
+		@Override
+		public List<Object> execute() {
+			JSONObject batchResponse = clientRequest.postWithBody(messageCodecRegistry.getCodec(MessageCodecRegistry.FORMAT_JSON),
+					batchRequest, JSONObject.class, BatchRequest.METHOD, BatchRequest.VERSION);
+			JSONArray responses = batchResponse.getJSONArray("responses");
+			List<Object> results = new ArrayList<Object>(responseClasses.size());
+			for (int i = 0; i < responseClasses.size(); i++) {
+				//批量调用本身失败时没有各服务调用的响应，每个位置都返回批量调用的错误响应
+				JSONObject response = batchResponse.getBooleanValue("success") && responses != null && i < responses.size() ?
+						responses.getJSONObject(i) : batchResponse;
+				results.add(JSON.toJavaObject(response, responseClasses.get(i)));
+			}
+			return results;
+		}
+	}
+
 	private class DefaultClientRequest implements ClientRequest {
 
 		private RopClient ropClient;
@@ -234,6 +346,12 @@ public class DefaultRopClient implements RopClient {
 			if (sessionId != null) {
 				headerParamMap.put(SystemParameterNames.getSessionId(), sessionId);
 			}
+			if (format != null) {
+				headerParamMap.put(SystemParameterNames.getFormat(), format);
+			}
+			if (signMethod != null) {
+				headerParamMap.put(SystemParameterNames.getSignMethod(), signMethod);
+			}
 
 			extInfoMap = ropClient.getExtInfoMap();
 
@@ -299,16 +417,13 @@ public class DefaultRopClient implements RopClient {
 			fillAndSignParamMap(serviceRequest, methodName, version);
 
 			Map<String, String> headers = resolveHeaders();
-			String responseStr = null;
+			byte[] response = null;
 			try {
-				responseStr = HttpWorker.getInstance().post(serverUrl, headers, bodyParamMap, false, connTimeout, readTimeout);
+				response = HttpWorker.getInstance().postBytes(serverUrl, headers, bodyParamMap, false, connTimeout, readTimeout, acceptCompression);
 			} catch (IOException e) {
 				throw new RuntimeException("error occur during http request.", e);
 			}
-			if (logger.isDebugEnabled()) {
-				logger.debug("response:\n" + responseStr);
-			}
-			return toRopResponse(responseStr, objectType);
+			return toRopResponse(response, objectType);
 		}
 
 		private Map<String, String> resolveHeaders() {
@@ -323,6 +438,10 @@ public class DefaultRopClient implements RopClient {
 				headers.put(SystemParameterNames.getFormat(), headerParamMap.get(SystemParameterNames.getFormat()));
 			}
 
+			if (headerParamMap.get(SystemParameterNames.getSignMethod()) != null) {
+				headers.put(SystemParameterNames.getSignMethod(), headerParamMap.get(SystemParameterNames.getSignMethod()));
+			}
+
 			if (headerParamMap.get(SystemParameterNames.getJsonp()) != null) {
 				headers.put(SystemParameterNames.getJsonp(), headerParamMap.get(SystemParameterNames.getJsonp()));
 			}
@@ -362,17 +481,13 @@ public class DefaultRopClient implements RopClient {
 			fillAndSignParamMap(serviceRequest, methodName, version);
 			Map<String, String> headers = resolveHeaders();
 
-			String responseStr = null;
+			byte[] response = null;
 			try {
-				responseStr = HttpWorker.getInstance().post(serverUrl, headers, bodyParamMap, true, connTimeout, readTimeout);
+				response = HttpWorker.getInstance().postBytes(serverUrl, headers, bodyParamMap, true, connTimeout, readTimeout, acceptCompression);
 			} catch (IOException e) {
 				throw new RuntimeException("error occur during http request.", e);
 			}
-
-			if (logger.isDebugEnabled()) {
-				logger.debug("response:\n" + responseStr);
-			}
-			return toRopResponse(responseStr, objectType);
+			return toRopResponse(response, objectType);
 		}
 
 		@Override
@@ -386,6 +501,71 @@ public class DefaultRopClient implements RopClient {
 		}
 
 
+		@Override
+		public <T> T postWithJson(ServiceRequest serviceRequest, Class<T> objectType, String methodName, String version) {
+			return postWithBody(messageCodecRegistry.getCodec(MessageCodecRegistry.FORMAT_JSON), serviceRequest, objectType, methodName, version);
+		}
+
+		@Override
+		public <T> T postWithJson(RichServiceRequest request, Class<T> objectType) {
+			return postWithJson(request, objectType, request.getMethod(), request.getVersion());
+		}
+
+		@Override
+		public <T> T postWithJson(RichServiceRequest request) {
+			return (T) postWithJson(request, request.getResponseClass());
+		}
+
+		@Override
+		public <T> T postWithBody(ServiceRequest serviceRequest, Class<T> objectType, String methodName, String version) {
+			return postWithBody(messageCodecRegistry.getCodec(format), serviceRequest, objectType, methodName, version);
+		}
+
+		@Override
+		public <T> T postWithBody(RichServiceRequest request, Class<T> objectType) {
+			return postWithBody(request, objectType, request.getMethod(), request.getVersion());
+		}
+
+		@Override
+		public <T> T postWithBody(RichServiceRequest request) {
+			return (T) postWithBody(request, request.getResponseClass());
+		}
+
+		private <T> T postWithBody(MessageCodec bodyCodec, ServiceRequest serviceRequest, Class<T> objectType,
+								   String methodName, String version) {
+			//系统级参数
+			headerParamMap.put(SystemParameterNames.getMethod(), methodName);
+			headerParamMap.put(SystemParameterNames.getVersion(), version);
+
+			//业务级参数整体作为请求体
+			byte[] body = new byte[0];
+			if (serviceRequest != null) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+				try {
+					bodyCodec.getMarshaller().marshaller(serviceRequest, out);
+				} catch (IOException e) {
+					throw new RuntimeException("error occur during serialize request.", e);
+				}
+				body = out.toByteArray();
+			}
+
+			//对请求进行签名
+			if (needSign) {
+				headerParamMap.put(SystemParameterNames.getSign(), RopUtils.sign(body, headerParamMap, extInfoMap, appSecret));
+			}
+			Map<String, String> headers = resolveHeaders();
+
+			boolean json = MessageCodecRegistry.FORMAT_JSON.equals(bodyCodec.getFormat());
+			byte[] response = null;
+			try {
+				response = HttpWorker.getInstance().postBody(serverUrl, headers, bodyCodec.getContentType(),
+						json ? Constants.UTF8 : null, body, connTimeout, readTimeout, acceptCompression);
+			} catch (IOException e) {
+				throw new RuntimeException("error occur during http request.", e);
+			}
+			return toRopResponse(response, objectType);
+		}
+
 		@Override
 		public <T> T get(Class<T> objectType, String methodName, String version) {
 			return get(null, objectType, methodName, version);
@@ -396,17 +576,19 @@ public class DefaultRopClient implements RopClient {
 			fillAndSignParamMap(serviceRequest, methodName, version);
 			Map<String, String> headers = resolveHeaders();
 
-			String responseStr = null;
+			byte[] response = null;
 			try {
-				responseStr = HttpWorker.getInstance().get(buildGetUrl(bodyParamMap), headers, connTimeout, readTimeout);
+				String url = buildGetUrl(bodyParamMap);
+				if (validatorCache != null) {
+					response = HttpWorker.getInstance().getBytes(url, headers, connTimeout, readTimeout, acceptCompression,
+							validatorCache, buildValidatorCacheKey(url, headers));
+				} else {
+					response = HttpWorker.getInstance().getBytes(url, headers, connTimeout, readTimeout, acceptCompression);
+				}
 			} catch (IOException e) {
 				throw new RuntimeException("error occur during http request.", e);
 			}
-
-			if (logger.isDebugEnabled()) {
-				logger.debug("response:\n" + responseStr);
-			}
-			return toRopResponse(responseStr, objectType);
+			return toRopResponse(response, objectType);
 		}
 
 		@Override
@@ -419,11 +601,32 @@ public class DefaultRopClient implements RopClient {
 			return (T) get(request, request.getResponseClass());
 		}
 
-		private <T> T toRopResponse(String content, Class<T> objectType) {
+		/**
+		 * 按请求的format(服务端以同一格式响应)反序列化响应
+		 */
+		private <T> T toRopResponse(byte[] content, Class<T> objectType) {
+			MessageCodec codec = messageCodecRegistry.getCodec(headerParamMap.get(SystemParameterNames.getFormat()));
 			if (logger.isDebugEnabled()) {
-				logger.debug(content);
+				if (MessageCodecRegistry.FORMAT_JSON.equals(codec.getFormat())) {
+					logger.debug("response:\n" + new String(content, Charset.forName(Constants.UTF8)));
+				} else {
+					logger.debug("response(" + codec.getFormat() + "):\n" + Base64.encodeBase64String(content));
+				}
+			}
+			return codec.getUnmarshaller().unmarshaller(content, objectType);
+		}
+
+		/**
+		 * 校验缓存的键：请求地址及除时间戳、签名以外的请求头
+		 */
+		private String buildValidatorCacheKey(String url, Map<String, String> headers) {
+			StringBuilder cacheKey = new StringBuilder(url);
+			for (Map.Entry<String, String> entry : new TreeMap<String, String>(headers).entrySet()) {
+				if (!entry.getKey().equals(SystemParameterNames.getTimestamp()) && !entry.getKey().equals(SystemParameterNames.getSign())) {
+					cacheKey.append('\n').append(entry.getKey()).append('=').append(entry.getValue());
+				}
 			}
-			return ropUnmarshaller.unmarshaller(content, objectType);
+			return cacheKey.toString();
 		}
 
 		private String buildGetUrl(Map<String, String> form) {
@@ -37,37 +37,101 @@ public class HttpWorker {
 
 
 	public String get(String url, Map<String, String> headers,int connTimeout,int readTimeout) throws IOException {
-		return _innerGet(url,headers,new TimedConnectionFactory(connTimeout,readTimeout));
+		return _innerGet(url,headers,new TimedConnectionFactory(connTimeout,readTimeout),false).body(HttpRequest.CHARSET_UTF8);
 
 	}
 
+	/**
+	 * 发起GET请求，acceptGzip为true时声明接受gzip压缩的响应并自动解压
+	 */
+	public String get(String url, Map<String, String> headers,int connTimeout,int readTimeout,boolean acceptGzip) throws IOException {
+		return _innerGet(url,headers,new TimedConnectionFactory(connTimeout,readTimeout),acceptGzip).body(HttpRequest.CHARSET_UTF8);
+	}
+
+	/**
+	 * 发起GET请求并返回原始的响应字节，二进制格式(如msgpack)的响应使用
+	 */
+	public byte[] getBytes(String url, Map<String, String> headers,int connTimeout,int readTimeout,boolean acceptGzip) throws IOException {
+		return _innerGet(url,headers,new TimedConnectionFactory(connTimeout,readTimeout),acceptGzip).bytes();
+	}
+
+	/**
+	 * 发起条件GET请求：校验缓存中有该请求上次响应的ETag时带上If-None-Match，服务端返回304时使用缓存的响应字节
+	 *
+	 * @param validatorCache 响应校验缓存
+	 * @param cacheKey       请求在校验缓存中的键，不能包含时间戳、签名等每次请求都变化的内容
+	 */
+	public byte[] getBytes(String url, Map<String, String> headers, int connTimeout, int readTimeout, boolean acceptGzip,
+						   ResponseValidatorCache validatorCache, String cacheKey) throws IOException {
+		ResponseValidatorCache.Validator validator = validatorCache.get(cacheKey);
+		HttpRequest request = new HttpRequest(url, HttpRequest.METHOD_GET);
+		request.headers(headers);
+		request.setInstanceConnectionFactory(new TimedConnectionFactory(connTimeout, readTimeout));
+		acceptGzip(request, acceptGzip);
+		if (validator != null) {
+			request.ifNoneMatch(validator.getETag());
+			if (request.notModified()) {
+				return validator.getContent();
+			}
+		}
+
+		checkOK(request);
+		byte[] content = request.bytes();
+		String eTag = request.eTag();
+		if (eTag != null) {
+			validatorCache.put(cacheKey, eTag, content);
+		} else if (validator != null) {
+			validatorCache.remove(cacheKey);
+		}
+		return content;
+	}
+
 	public String get(String url, Map<String, String> headers) throws IOException {
-		return _innerGet(url,headers,new TimedConnectionFactory());
+		return _innerGet(url,headers,new TimedConnectionFactory(),false).body(HttpRequest.CHARSET_UTF8);
 	}
 
-	private String _innerGet(String url, Map<String, String> headers,HttpRequest.ConnectionFactory connectionFactory){
+	private HttpRequest _innerGet(String url, Map<String, String> headers,HttpRequest.ConnectionFactory connectionFactory,
+							 boolean acceptGzip){
 		HttpRequest request = new HttpRequest(url, HttpRequest.METHOD_GET);
 		request.headers(headers);
 		request.setInstanceConnectionFactory(connectionFactory);
+		acceptGzip(request, acceptGzip);
 
 		checkOK(request);
-		return request.body(HttpRequest.CHARSET_UTF8);
+		return request;
 	}
 
 	public String post(String url, Map<String, String> headers, Map<String, String> body, boolean multipart) throws IOException {
-		return _innerPost(url,headers,body,multipart,new TimedConnectionFactory());
+		return _innerPost(url,headers,body,multipart,new TimedConnectionFactory(),false).body(HttpRequest.CHARSET_UTF8);
 	}
 
 	public String post(String url, Map<String, String> headers, Map<String, String> body, boolean multipart,
 					   int connTimeout,int readTimeout) throws IOException {
-		return _innerPost(url,headers,body,multipart,new TimedConnectionFactory(connTimeout,readTimeout));
+		return _innerPost(url,headers,body,multipart,new TimedConnectionFactory(connTimeout,readTimeout),false).body(HttpRequest.CHARSET_UTF8);
 	}
 
-	private String _innerPost(String url, Map<String, String> headers, Map<String, String> body, boolean multipart,
-							  HttpRequest.ConnectionFactory connectionFactory){
+	/**
+	 * 发起POST请求，acceptGzip为true时声明接受gzip压缩的响应并自动解压
+	 */
+	public String post(String url, Map<String, String> headers, Map<String, String> body, boolean multipart,
+					   int connTimeout,int readTimeout,boolean acceptGzip) throws IOException {
+		return _innerPost(url,headers,body,multipart,new TimedConnectionFactory(connTimeout,readTimeout),acceptGzip).body(HttpRequest.CHARSET_UTF8);
+	}
+
+	/**
+	 * 发起POST请求并返回原始的响应字节，二进制格式(如msgpack)的响应使用
+	 */
+	public byte[] postBytes(String url, Map<String, String> headers, Map<String, String> body, boolean multipart,
+							int connTimeout,int readTimeout,boolean acceptGzip) throws IOException {
+		return _innerPost(url,headers,body,multipart,new TimedConnectionFactory(connTimeout,readTimeout),acceptGzip).bytes();
+	}
+
+	private HttpRequest _innerPost(String url, Map<String, String> headers, Map<String, String> body, boolean multipart,
+							  HttpRequest.ConnectionFactory connectionFactory, boolean acceptGzip){
 		HttpRequest request = new HttpRequest(url, HttpRequest.METHOD_POST);
 		request.setInstanceConnectionFactory(connectionFactory);
 		request.headers(headers);
+		acceptGzip(request, acceptGzip);
 		if (body != null) {
 			if (multipart) {
 				for (Map.Entry<String, String> entry : body.entrySet()) {
@@ -79,7 +143,38 @@ public class HttpWorker {
 		}
 
 		checkOK(request);
-		return request.body(HttpRequest.CHARSET_UTF8);
+		return request;
+	}
+
+	public String postJson(String url, Map<String, String> headers, byte[] body, int connTimeout, int readTimeout,
+						   boolean acceptGzip) throws IOException {
+		return new String(postBody(url, headers, HttpRequest.CONTENT_TYPE_JSON, HttpRequest.CHARSET_UTF8, body,
+				connTimeout, readTimeout, acceptGzip), HttpRequest.CHARSET_UTF8);
+	}
+
+	/**
+	 * 以指定的内容类型POST整个请求体，返回原始的响应字节
+	 *
+	 * @param contentType 请求体的内容类型，如application/json、application/x-msgpack
+	 * @param charset     内容类型的charset参数，二进制格式传null
+	 */
+	public byte[] postBody(String url, Map<String, String> headers, String contentType, String charset, byte[] body,
+						   int connTimeout, int readTimeout, boolean acceptGzip) throws IOException {
+		HttpRequest request = new HttpRequest(url, HttpRequest.METHOD_POST);
+		request.setInstanceConnectionFactory(new TimedConnectionFactory(connTimeout, readTimeout));
+		request.headers(headers);
+		acceptGzip(request, acceptGzip);
+		request.contentType(contentType, charset);
+		request.send(body);
+
+		checkOK(request);
+		return request.bytes();
+	}
+
+	private void acceptGzip(HttpRequest request, boolean acceptGzip) {
+		if (acceptGzip) {
+			request.acceptGzipEncoding().uncompress(true);
+		}
 	}
 
 	private void checkOK(HttpRequest request) {
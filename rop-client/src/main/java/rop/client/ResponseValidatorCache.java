@@ -0,0 +1,59 @@
+package rop.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <pre>
+ *   客户端的响应校验缓存：按最近最少使用淘汰，保存GET请求上次响应的ETag及报文，
+ *   再次发起相同的请求时带上If-None-Match，服务端返回304时直接使用缓存的报文。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class ResponseValidatorCache {
+
+	private final Map<String, Validator> entries;
+
+	public ResponseValidatorCache(final int maxEntries) {
+		this.entries = new LinkedHashMap<String, Validator>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Validator> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	public synchronized Validator get(String key) {
+		return entries.get(key);
+	}
+
+	public synchronized void put(String key, String eTag, byte[] content) {
+		entries.put(key, new Validator(eTag, content));
+	}
+
+	public synchronized void remove(String key) {
+		entries.remove(key);
+	}
+
+	public static class Validator {
+
+		private final String eTag;
+
+		private final byte[] content;
+
+		private Validator(String eTag, byte[] content) {
+			this.eTag = eTag;
+			this.content = content;
+		}
+
+		public String getETag() {
+			return eTag;
+		}
+
+		public byte[] getContent() {
+			return content;
+		}
+	}
+}
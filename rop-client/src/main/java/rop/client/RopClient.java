@@ -105,6 +105,18 @@ public interface RopClient {
 	 */
 	ClientRequest buildClientRequest(int connTimeout,int readTimeout);
 
+	/**
+	 * 创建一个新的批量调用请求
+	 * @return
+	 */
+	BatchClientRequest buildBatchRequest();
+
+	/**
+	 * 创建一个新的批量调用请求
+	 * @return
+	 */
+	BatchClientRequest buildBatchRequest(int connTimeout,int readTimeout);
+
 	/**
 	 * 销毁退出
 	 */
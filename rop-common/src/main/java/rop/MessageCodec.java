@@ -0,0 +1,43 @@
+package rop;
+
+/**
+ * <pre>
+ *   一种报文格式的编解码器：格式名称(对应format系统参数)、内容类型及其序列化/反序列化实现。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class MessageCodec {
+
+	private final String format;
+
+	private final String contentType;
+
+	private final RopMarshaller marshaller;
+
+	private final RopUnmarshaller unmarshaller;
+
+	public MessageCodec(String format, String contentType, RopMarshaller marshaller, RopUnmarshaller unmarshaller) {
+		this.format = format;
+		this.contentType = contentType;
+		this.marshaller = marshaller;
+		this.unmarshaller = unmarshaller;
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public RopMarshaller getMarshaller() {
+		return marshaller;
+	}
+
+	public RopUnmarshaller getUnmarshaller() {
+		return unmarshaller;
+	}
+}
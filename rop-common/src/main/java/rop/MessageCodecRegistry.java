@@ -0,0 +1,98 @@
+package rop;
+
+import rop.json.FastjsonRopMarshaller;
+import rop.json.FastjsonRopUnmarshaller;
+import rop.msgpack.MessagePackRopMarshaller;
+import rop.msgpack.MessagePackRopUnmarshaller;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <pre>
+ *   按格式名称注册的编解码器，服务端根据请求的format参数或请求体的Content-Type选择编解码器，
+ *   客户端也使用同一套编解码器，保证两端的报文格式一致。
+ *   未指定或不认识的格式均使用默认的json格式。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class MessageCodecRegistry {
+
+	public static final String FORMAT_JSON = "json";
+
+	public static final String FORMAT_MSGPACK = "msgpack";
+
+	public static final String CONTENT_TYPE_JSON = "application/json";
+
+	public static final String CONTENT_TYPE_MSGPACK = "application/x-msgpack";
+
+	private final Map<String, MessageCodec> codecsByFormat = new ConcurrentHashMap<String, MessageCodec>();
+
+	private final Map<String, MessageCodec> codecsByContentType = new ConcurrentHashMap<String, MessageCodec>();
+
+	private volatile MessageCodec defaultCodec;
+
+	/**
+	 * 创建注册了json及msgpack格式的编解码器注册表
+	 *
+	 * @return
+	 */
+	public static MessageCodecRegistry createDefault() {
+		MessageCodecRegistry registry = new MessageCodecRegistry();
+		registry.register(new MessageCodec(FORMAT_JSON, CONTENT_TYPE_JSON,
+				new FastjsonRopMarshaller(), new FastjsonRopUnmarshaller()));
+		registry.register(new MessageCodec(FORMAT_MSGPACK, CONTENT_TYPE_MSGPACK,
+				new MessagePackRopMarshaller(), new MessagePackRopUnmarshaller()));
+		return registry;
+	}
+
+	/**
+	 * 注册编解码器，同名格式的编解码器将被替换。json格式为默认编解码器，没有注册json格式时以第一个注册的为默认
+	 *
+	 * @param codec
+	 */
+	public void register(MessageCodec codec) {
+		codecsByFormat.put(codec.getFormat().toLowerCase(), codec);
+		codecsByContentType.put(codec.getContentType().toLowerCase(), codec);
+		if (defaultCodec == null || FORMAT_JSON.equalsIgnoreCase(codec.getFormat())) {
+			defaultCodec = codec;
+		}
+	}
+
+	/**
+	 * 获取格式对应的编解码器，格式为空或未注册时返回默认编解码器
+	 *
+	 * @param format
+	 * @return
+	 */
+	public MessageCodec getCodec(String format) {
+		if (format != null) {
+			MessageCodec codec = codecsByFormat.get(format.toLowerCase());
+			if (codec != null) {
+				return codec;
+			}
+		}
+		return defaultCodec;
+	}
+
+	/**
+	 * 获取内容类型对应的编解码器，忽略charset等参数，未注册时返回null
+	 *
+	 * @param contentType
+	 * @return
+	 */
+	public MessageCodec getCodecByContentType(String contentType) {
+		if (contentType == null) {
+			return null;
+		}
+		int index = contentType.indexOf(';');
+		String mediaType = (index >= 0 ? contentType.substring(0, index) : contentType).trim().toLowerCase();
+		return codecsByContentType.get(mediaType);
+	}
+
+	public MessageCodec getDefaultCodec() {
+		return defaultCodec;
+	}
+}
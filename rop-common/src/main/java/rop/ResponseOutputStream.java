@@ -0,0 +1,22 @@
+package rop;
+
+import java.io.OutputStream;
+
+/**
+ * <pre>
+ *   响应输出流，序列化器在写出内容之前可通过{@link #setContentLength(int)}告知内容的字节长度，
+ *   以便设置响应的Content-Length，未调用时表示长度未知。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public abstract class ResponseOutputStream extends OutputStream {
+
+	/**
+	 * 设置即将写出的内容的字节长度，须在第一次写出之前调用
+	 *
+	 * @param contentLength
+	 */
+	public abstract void setContentLength(int contentLength);
+}
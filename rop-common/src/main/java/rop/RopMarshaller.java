@@ -1,5 +1,8 @@
 package rop;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * <pre>
  *   负责将请求方法返回的{@link rop.response.RopResponse}流化为相应格式的内容。
@@ -11,5 +14,15 @@ package rop;
 public interface RopMarshaller {
 
 	String marshaller(Object object);
+
+	/**
+	 * 将对象直接序列化到输出流中，避免生成中间字符串。
+	 * 如果输出流是{@link ResponseOutputStream}且内容长度已知，应在写出前设置内容长度。
+	 *
+	 * @param object
+	 * @param outputStream
+	 * @throws IOException
+	 */
+	void marshaller(Object object, OutputStream outputStream) throws IOException;
 }
 
@@ -15,5 +15,14 @@ public interface RopUnmarshaller {
      * @return
      */
    <T> T unmarshaller(String content, Class<T> objectType);
+
+    /**
+     * 将字节数组反序列化为相应的对象，二进制格式及直接读取响应流的场景使用
+     *
+     * @param content
+     * @param objectType
+     * @return
+     */
+   <T> T unmarshaller(byte[] content, Class<T> objectType);
 }
 
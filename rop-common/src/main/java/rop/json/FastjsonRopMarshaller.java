@@ -1,17 +1,44 @@
 package rop.json;
 
+import rop.Constants;
+import rop.ResponseOutputStream;
 import rop.RopMarshaller;
 import rop.thirdparty.com.alibaba.fastjson.JSON;
+import rop.thirdparty.com.alibaba.fastjson.serializer.JSONSerializer;
+import rop.thirdparty.com.alibaba.fastjson.serializer.SerializeWriter;
 import rop.thirdparty.com.alibaba.fastjson.serializer.SerializerFeature;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
 /**
  * JSON 序列化
  * Created by luopeng on 14-3-27.
  */
 public class FastjsonRopMarshaller implements RopMarshaller {
 
+	private static final Charset UTF8 = Charset.forName(Constants.UTF8);
+
 	@Override
 	public String marshaller(Object object) {
 		return JSON.toJSONString(object,SerializerFeature.DisableCircularReferenceDetect);
 	}
+
+	@Override
+	public void marshaller(Object object, OutputStream outputStream) throws IOException {
+		SerializeWriter out = new SerializeWriter();
+		try {
+			JSONSerializer serializer = new JSONSerializer(out);
+			serializer.config(SerializerFeature.DisableCircularReferenceDetect, true);
+			serializer.write(object);
+
+			if (outputStream instanceof ResponseOutputStream) {
+				((ResponseOutputStream) outputStream).setContentLength(out.utf8Length());
+			}
+			out.writeTo(outputStream, UTF8);
+		} finally {
+			out.close();
+		}
+	}
 }
@@ -14,4 +14,9 @@ public class FastjsonRopUnmarshaller implements RopUnmarshaller {
 	public <T> T unmarshaller(String content, Class<T> objectType) {
 		return JSON.parseObject(content, objectType);
 	}
+
+	@Override
+	public <T> T unmarshaller(byte[] content, Class<T> objectType) {
+		return JSON.parseObject(content, objectType);
+	}
 }
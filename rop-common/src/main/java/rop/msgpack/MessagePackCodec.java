@@ -0,0 +1,449 @@
+package rop.msgpack;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <pre>
+ *   基于MessagePack的对象编解码器，用于{@link rop.response.RopResponse}和{@link rop.request.ServiceRequest}的二进制传输。
+ *   1.Java Bean编码为以属性名为键的MessagePack map(与JSON一样按属性名匹配，两端类结构不完全一致时多余的属性被忽略)；
+ *   2.每个类第一次编解码时构建其属性的getter/setter及泛型类型，之后直接复用，不再内省；
+ *   3.集合/数组编码为array，Map编码为map，日期编码为毫秒数，枚举编码为名称，BigDecimal/BigInteger编码为字符串，byte[]编码为bin。
+ *   不支持循环引用。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class MessagePackCodec {
+
+	private static final MessagePackCodec INSTANCE = new MessagePackCodec();
+
+	//按元素个数预分配集合容量的上限，更多的元素在读取时扩容
+	private static final int MAX_INITIAL_CAPACITY = 1024;
+
+	private final ConcurrentMap<Class<?>, BeanPlan> beanPlans = new ConcurrentHashMap<Class<?>, BeanPlan>();
+
+	public static MessagePackCodec getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * 将对象编码后写入输出流
+	 *
+	 * @param value
+	 * @param outputStream
+	 * @throws IOException
+	 */
+	public void encode(Object value, OutputStream outputStream) throws IOException {
+		MessagePackWriter writer = new MessagePackWriter(outputStream);
+		write(writer, value);
+		writer.flush();
+	}
+
+	/**
+	 * 将字节数组解码为指定类型的对象
+	 *
+	 * @param bytes
+	 * @param type
+	 * @param <T>
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T decode(byte[] bytes, Type type) {
+		if (bytes.length == 0) {
+			return null;
+		}
+		return (T) read(new MessagePackReader(bytes), type);
+	}
+
+	private void write(MessagePackWriter writer, Object value) throws IOException {
+		if (value == null) {
+			writer.writeNil();
+		} else if (value instanceof String) {
+			writer.writeString((String) value);
+		} else if (value instanceof Boolean) {
+			writer.writeBoolean((Boolean) value);
+		} else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			writer.writeLong(((Number) value).longValue());
+		} else if (value instanceof Double) {
+			writer.writeDouble((Double) value);
+		} else if (value instanceof Float) {
+			writer.writeFloat((Float) value);
+		} else if (value instanceof BigDecimal || value instanceof BigInteger || value instanceof Character) {
+			writer.writeString(value.toString());
+		} else if (value instanceof Date) {
+			writer.writeLong(((Date) value).getTime());
+		} else if (value instanceof Calendar) {
+			writer.writeLong(((Calendar) value).getTimeInMillis());
+		} else if (value instanceof Enum) {
+			writer.writeString(((Enum<?>) value).name());
+		} else if (value instanceof byte[]) {
+			writer.writeBinary((byte[]) value);
+		} else if (value instanceof Collection) {
+			Collection<?> collection = (Collection<?>) value;
+			writer.writeArrayHeader(collection.size());
+			for (Object item : collection) {
+				write(writer, item);
+			}
+		} else if (value.getClass().isArray()) {
+			int length = Array.getLength(value);
+			writer.writeArrayHeader(length);
+			for (int i = 0; i < length; i++) {
+				write(writer, Array.get(value, i));
+			}
+		} else if (value instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			writer.writeMapHeader(map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				writer.writeString(String.valueOf(entry.getKey()));
+				write(writer, entry.getValue());
+			}
+		} else if (value instanceof Number) {
+			writer.writeString(value.toString());
+		} else {
+			getBeanPlan(value.getClass()).write(this, writer, value);
+		}
+	}
+
+	private Object read(MessagePackReader reader, Type type) {
+		if (reader.tryReadNil()) {
+			return null;
+		}
+		Class<?> rawType = getRawType(type);
+		if (rawType == Object.class) {
+			return readNatural(reader);
+		} else if (rawType == String.class) {
+			return readAsString(reader);
+		} else if (rawType == int.class || rawType == Integer.class) {
+			return (int) reader.readLong();
+		} else if (rawType == long.class || rawType == Long.class) {
+			return reader.readLong();
+		} else if (rawType == boolean.class || rawType == Boolean.class) {
+			return reader.readBoolean();
+		} else if (rawType == double.class || rawType == Double.class) {
+			return reader.readDouble();
+		} else if (rawType == float.class || rawType == Float.class) {
+			return (float) reader.readDouble();
+		} else if (rawType == short.class || rawType == Short.class) {
+			return (short) reader.readLong();
+		} else if (rawType == byte.class || rawType == Byte.class) {
+			return (byte) reader.readLong();
+		} else if (rawType == char.class || rawType == Character.class) {
+			String value = reader.readString();
+			return value.length() > 0 ? value.charAt(0) : null;
+		} else if (rawType == BigDecimal.class) {
+			return new BigDecimal(readAsString(reader));
+		} else if (rawType == BigInteger.class) {
+			return new BigInteger(readAsString(reader));
+		} else if (rawType == byte[].class) {
+			return reader.readBinary();
+		} else if (Date.class.isAssignableFrom(rawType)) {
+			return newDate(rawType, reader.readLong());
+		} else if (rawType == Calendar.class) {
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTimeInMillis(reader.readLong());
+			return calendar;
+		} else if (rawType.isEnum()) {
+			return readEnum(reader, rawType);
+		} else if (rawType.isArray()) {
+			Type componentType = type instanceof GenericArrayType ?
+					((GenericArrayType) type).getGenericComponentType() : rawType.getComponentType();
+			int size = reader.readArrayHeader();
+			Object array = Array.newInstance(getRawType(componentType), size);
+			for (int i = 0; i < size; i++) {
+				Array.set(array, i, read(reader, componentType));
+			}
+			return array;
+		} else if (Collection.class.isAssignableFrom(rawType)) {
+			Type elementType = getTypeArgument(type, 0);
+			int size = reader.readArrayHeader();
+			Collection<Object> collection = newCollection(rawType, size);
+			for (int i = 0; i < size; i++) {
+				collection.add(read(reader, elementType));
+			}
+			return collection;
+		} else if (Map.class.isAssignableFrom(rawType)) {
+			Type keyType = getTypeArgument(type, 0);
+			Type valueType = getTypeArgument(type, 1);
+			int size = reader.readMapHeader();
+			Map<Object, Object> map = newMap(rawType, size);
+			for (int i = 0; i < size; i++) {
+				Object key = convertKey(readAsString(reader), getRawType(keyType));
+				map.put(key, read(reader, valueType));
+			}
+			return map;
+		} else {
+			return getBeanPlan(rawType).read(this, reader);
+		}
+	}
+
+	/**
+	 * 目标类型未知(Object)时按MessagePack自身的类型解码
+	 */
+	private Object readNatural(MessagePackReader reader) {
+		switch (reader.peekType()) {
+			case NIL:
+				reader.tryReadNil();
+				return null;
+			case BOOLEAN:
+				return reader.readBoolean();
+			case INTEGER:
+				long value = reader.readLong();
+				if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+					return (int) value;
+				}
+				return value;
+			case FLOAT:
+				return reader.readDouble();
+			case STRING:
+				return reader.readString();
+			case BINARY:
+				return reader.readBinary();
+			case ARRAY:
+				int size = reader.readArrayHeader();
+				List<Object> list = new ArrayList<Object>(initialCapacity(size));
+				for (int i = 0; i < size; i++) {
+					list.add(readNatural(reader));
+				}
+				return list;
+			default:
+				int mapSize = reader.readMapHeader();
+				Map<String, Object> map = new LinkedHashMap<String, Object>(initialCapacity(mapSize * 4 / 3 + 1));
+				for (int i = 0; i < mapSize; i++) {
+					map.put(readAsString(reader), readNatural(reader));
+				}
+				return map;
+		}
+	}
+
+	private String readAsString(MessagePackReader reader) {
+		switch (reader.peekType()) {
+			case STRING:
+				return reader.readString();
+			case INTEGER:
+				return String.valueOf(reader.readLong());
+			case FLOAT:
+				return String.valueOf(reader.readDouble());
+			case BOOLEAN:
+				return String.valueOf(reader.readBoolean());
+			default:
+				throw new MessagePackException("无法将MessagePack " + reader.peekType() + "类型转换为字符串");
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private Object readEnum(MessagePackReader reader, Class<?> enumType) {
+		if (reader.peekType() == MessagePackFormat.ValueType.INTEGER) {
+			Object[] constants = enumType.getEnumConstants();
+			long ordinal = reader.readLong();
+			if (ordinal < 0 || ordinal >= constants.length) {
+				throw new MessagePackException(enumType.getName() + "没有序号为" + ordinal + "的枚举值");
+			}
+			return constants[(int) ordinal];
+		}
+		String name = reader.readString();
+		try {
+			return Enum.valueOf((Class) enumType, name);
+		} catch (IllegalArgumentException e) {
+			throw new MessagePackException(enumType.getName() + "没有名为" + name + "的枚举值", e);
+		}
+	}
+
+	/**
+	 * 集合的初始容量，元素个数来自请求数据，不按其一次分配过大的容量
+	 */
+	private static int initialCapacity(int size) {
+		return Math.min(size, MAX_INITIAL_CAPACITY);
+	}
+
+	private static Object newDate(Class<?> dateType, long time) {
+		if (dateType == Date.class) {
+			return new Date(time);
+		} else if (dateType == java.sql.Timestamp.class) {
+			return new java.sql.Timestamp(time);
+		} else if (dateType == java.sql.Date.class) {
+			return new java.sql.Date(time);
+		} else if (dateType == java.sql.Time.class) {
+			return new java.sql.Time(time);
+		}
+		throw new MessagePackException("不支持的日期类型：" + dateType.getName());
+	}
+
+	private static Object convertKey(String key, Class<?> keyType) {
+		if (keyType == String.class || keyType == Object.class) {
+			return key;
+		} else if (keyType == Integer.class) {
+			return Integer.valueOf(key);
+		} else if (keyType == Long.class) {
+			return Long.valueOf(key);
+		}
+		throw new MessagePackException("不支持的Map键类型：" + keyType.getName());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Collection<Object> newCollection(Class<?> collectionType, int size) {
+		if (collectionType.isAssignableFrom(ArrayList.class)) {
+			return new ArrayList<Object>(initialCapacity(size));
+		} else if (collectionType.isAssignableFrom(LinkedHashSet.class)) {
+			return new LinkedHashSet<Object>(initialCapacity(size * 4 / 3 + 1));
+		} else if (collectionType.isAssignableFrom(TreeSet.class)) {
+			return new TreeSet<Object>();
+		}
+		return (Collection<Object>) newInstance(collectionType);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<Object, Object> newMap(Class<?> mapType, int size) {
+		if (mapType.isAssignableFrom(LinkedHashMap.class)) {
+			return new LinkedHashMap<Object, Object>(initialCapacity(size * 4 / 3 + 1));
+		} else if (mapType.isAssignableFrom(TreeMap.class)) {
+			return new TreeMap<Object, Object>();
+		}
+		return (Map<Object, Object>) newInstance(mapType);
+	}
+
+	private static Object newInstance(Class<?> type) {
+		try {
+			return type.newInstance();
+		} catch (Exception e) {
+			throw new MessagePackException("无法实例化" + type.getName(), e);
+		}
+	}
+
+	private static Class<?> getRawType(Type type) {
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			return (Class<?>) ((ParameterizedType) type).getRawType();
+		} else if (type instanceof GenericArrayType) {
+			return Array.newInstance(getRawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+		} else if (type instanceof WildcardType) {
+			return getRawType(((WildcardType) type).getUpperBounds()[0]);
+		}
+		return Object.class;
+	}
+
+	private static Type getTypeArgument(Type type, int index) {
+		if (type instanceof ParameterizedType) {
+			Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+			if (index < arguments.length) {
+				return arguments[index];
+			}
+		}
+		return Object.class;
+	}
+
+	private BeanPlan getBeanPlan(Class<?> beanClass) {
+		BeanPlan beanPlan = beanPlans.get(beanClass);
+		if (beanPlan == null) {
+			beanPlan = new BeanPlan(beanClass);
+			BeanPlan existPlan = beanPlans.putIfAbsent(beanClass, beanPlan);
+			if (existPlan != null) {
+				beanPlan = existPlan;
+			}
+		}
+		return beanPlan;
+	}
+
+	/**
+	 * 一个Java Bean类的编解码计划：可读属性的getter列表及可写属性的setter(含泛型类型)
+	 */
+	private static class BeanPlan {
+
+		private final Class<?> beanClass;
+
+		private final String[] readNames;
+
+		private final Method[] getters;
+
+		private final Map<String, Method> setters = new HashMap<String, Method>();
+
+		private final Map<String, Type> setterTypes = new HashMap<String, Type>();
+
+		private BeanPlan(Class<?> beanClass) {
+			this.beanClass = beanClass;
+			BeanInfo beanInfo;
+			try {
+				beanInfo = Introspector.getBeanInfo(beanClass, Object.class);
+			} catch (IntrospectionException e) {
+				throw new MessagePackException("无法解析" + beanClass.getName() + "的属性", e);
+			}
+			List<String> names = new ArrayList<String>();
+			List<Method> readMethods = new ArrayList<Method>();
+			for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
+				Method readMethod = descriptor.getReadMethod();
+				if (readMethod != null) {
+					readMethod.setAccessible(true);
+					names.add(descriptor.getName());
+					readMethods.add(readMethod);
+				}
+				Method writeMethod = descriptor.getWriteMethod();
+				if (writeMethod != null) {
+					writeMethod.setAccessible(true);
+					setters.put(descriptor.getName(), writeMethod);
+					setterTypes.put(descriptor.getName(), writeMethod.getGenericParameterTypes()[0]);
+				}
+			}
+			this.readNames = names.toArray(new String[names.size()]);
+			this.getters = readMethods.toArray(new Method[readMethods.size()]);
+		}
+
+		void write(MessagePackCodec codec, MessagePackWriter writer, Object bean) throws IOException {
+			//与JSON一致，值为null的属性不输出
+			Object[] values = new Object[getters.length];
+			int size = 0;
+			for (int i = 0; i < getters.length; i++) {
+				values[i] = invoke(getters[i], bean);
+				if (values[i] != null) {
+					size++;
+				}
+			}
+			writer.writeMapHeader(size);
+			for (int i = 0; i < getters.length; i++) {
+				if (values[i] != null) {
+					writer.writeString(readNames[i]);
+					codec.write(writer, values[i]);
+				}
+			}
+		}
+
+		Object read(MessagePackCodec codec, MessagePackReader reader) {
+			Object bean = newInstance(beanClass);
+			int size = reader.readMapHeader();
+			for (int i = 0; i < size; i++) {
+				String name = codec.readAsString(reader);
+				Method setter = setters.get(name);
+				if (setter == null) {
+					reader.skipValue();
+				} else {
+					Object value = codec.read(reader, setterTypes.get(name));
+					if (value != null || !setter.getParameterTypes()[0].isPrimitive()) {
+						invoke(setter, bean, value);
+					}
+				}
+			}
+			return bean;
+		}
+
+		private static Object invoke(Method method, Object target, Object... args) {
+			try {
+				return method.invoke(target, args);
+			} catch (IllegalAccessException e) {
+				throw new MessagePackException("调用" + method + "出错", e);
+			} catch (InvocationTargetException e) {
+				throw new MessagePackException("调用" + method + "出错", e.getTargetException());
+			}
+		}
+	}
+}
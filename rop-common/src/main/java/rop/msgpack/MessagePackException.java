@@ -0,0 +1,20 @@
+package rop.msgpack;
+
+import rop.RopException;
+
+/**
+ * MessagePack编解码出错
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class MessagePackException extends RopException {
+
+	public MessagePackException(String message) {
+		super(message);
+	}
+
+	public MessagePackException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
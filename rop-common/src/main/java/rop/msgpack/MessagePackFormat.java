@@ -0,0 +1,97 @@
+package rop.msgpack;
+
+/**
+ * <pre>
+ *   MessagePack格式的类型标记，参见https://github.com/msgpack/msgpack/blob/master/spec.md
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+final class MessagePackFormat {
+
+	static final int FIXMAP_PREFIX = 0x80;
+	static final int FIXARRAY_PREFIX = 0x90;
+	static final int FIXSTR_PREFIX = 0xa0;
+
+	static final int NIL = 0xc0;
+	static final int FALSE = 0xc2;
+	static final int TRUE = 0xc3;
+	static final int BIN8 = 0xc4;
+	static final int BIN16 = 0xc5;
+	static final int BIN32 = 0xc6;
+	static final int FLOAT32 = 0xca;
+	static final int FLOAT64 = 0xcb;
+	static final int UINT8 = 0xcc;
+	static final int UINT16 = 0xcd;
+	static final int UINT32 = 0xce;
+	static final int UINT64 = 0xcf;
+	static final int INT8 = 0xd0;
+	static final int INT16 = 0xd1;
+	static final int INT32 = 0xd2;
+	static final int INT64 = 0xd3;
+	static final int STR8 = 0xd9;
+	static final int STR16 = 0xda;
+	static final int STR32 = 0xdb;
+	static final int ARRAY16 = 0xdc;
+	static final int ARRAY32 = 0xdd;
+	static final int MAP16 = 0xde;
+	static final int MAP32 = 0xdf;
+
+	/**
+	 * 值的大类
+	 */
+	enum ValueType {
+		NIL, BOOLEAN, INTEGER, FLOAT, STRING, BINARY, ARRAY, MAP
+	}
+
+	static ValueType getValueType(int b) {
+		if (b <= 0x7f || b >= 0xe0) {
+			return ValueType.INTEGER;
+		} else if (b <= 0x8f) {
+			return ValueType.MAP;
+		} else if (b <= 0x9f) {
+			return ValueType.ARRAY;
+		} else if (b <= 0xbf) {
+			return ValueType.STRING;
+		}
+		switch (b) {
+			case NIL:
+				return ValueType.NIL;
+			case FALSE:
+			case TRUE:
+				return ValueType.BOOLEAN;
+			case BIN8:
+			case BIN16:
+			case BIN32:
+				return ValueType.BINARY;
+			case FLOAT32:
+			case FLOAT64:
+				return ValueType.FLOAT;
+			case UINT8:
+			case UINT16:
+			case UINT32:
+			case UINT64:
+			case INT8:
+			case INT16:
+			case INT32:
+			case INT64:
+				return ValueType.INTEGER;
+			case STR8:
+			case STR16:
+			case STR32:
+				return ValueType.STRING;
+			case ARRAY16:
+			case ARRAY32:
+				return ValueType.ARRAY;
+			case MAP16:
+			case MAP32:
+				return ValueType.MAP;
+			default:
+				throw new MessagePackException("不支持的MessagePack类型标记：0x" + Integer.toHexString(b));
+		}
+	}
+
+	private MessagePackFormat() {
+	}
+}
@@ -0,0 +1,274 @@
+package rop.msgpack;
+
+import java.nio.charset.Charset;
+
+/**
+ * <pre>
+ *   MessagePack格式的底层读取器，直接在字节数组上解码。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class MessagePackReader {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final byte[] buf;
+
+	private final int limit;
+
+	private int pos;
+
+	public MessagePackReader(byte[] buf) {
+		this(buf, 0, buf.length);
+	}
+
+	public MessagePackReader(byte[] buf, int off, int len) {
+		this.buf = buf;
+		this.pos = off;
+		this.limit = off + len;
+	}
+
+	public boolean hasNext() {
+		return pos < limit;
+	}
+
+	/**
+	 * 查看下一个值的类型，不移动读取位置
+	 *
+	 * @return
+	 */
+	MessagePackFormat.ValueType peekType() {
+		require(1);
+		return MessagePackFormat.getValueType(buf[pos] & 0xff);
+	}
+
+	/**
+	 * 如果下一个值是nil则跳过并返回true
+	 *
+	 * @return
+	 */
+	public boolean tryReadNil() {
+		require(1);
+		if ((buf[pos] & 0xff) == MessagePackFormat.NIL) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	public boolean readBoolean() {
+		int b = readByte();
+		if (b == MessagePackFormat.TRUE) {
+			return true;
+		} else if (b == MessagePackFormat.FALSE) {
+			return false;
+		}
+		throw unexpected("boolean", b);
+	}
+
+	public long readLong() {
+		int b = readByte();
+		if (b <= 0x7f) {
+			return b;
+		} else if (b >= 0xe0) {
+			return (byte) b;
+		}
+		switch (b) {
+			case MessagePackFormat.UINT8:
+				return readByte();
+			case MessagePackFormat.UINT16:
+				return readShort() & 0xffff;
+			case MessagePackFormat.UINT32:
+				return readInt() & 0xffffffffL;
+			case MessagePackFormat.UINT64:
+			case MessagePackFormat.INT64:
+				return readLongValue();
+			case MessagePackFormat.INT8:
+				return (byte) readByte();
+			case MessagePackFormat.INT16:
+				return (short) readShort();
+			case MessagePackFormat.INT32:
+				return readInt();
+			default:
+				throw unexpected("integer", b);
+		}
+	}
+
+	public double readDouble() {
+		int b = readByte();
+		if (b == MessagePackFormat.FLOAT64) {
+			return Double.longBitsToDouble(readLongValue());
+		} else if (b == MessagePackFormat.FLOAT32) {
+			return Float.intBitsToFloat(readInt());
+		}
+		pos--;
+		return readLong();
+	}
+
+	public String readString() {
+		int b = readByte();
+		int length;
+		if ((b & 0xe0) == MessagePackFormat.FIXSTR_PREFIX) {
+			length = b & 0x1f;
+		} else if (b == MessagePackFormat.STR8) {
+			length = readByte();
+		} else if (b == MessagePackFormat.STR16) {
+			length = readShort();
+		} else if (b == MessagePackFormat.STR32) {
+			length = readLength();
+		} else {
+			throw unexpected("string", b);
+		}
+		require(length);
+		String value = new String(buf, pos, length, UTF8);
+		pos += length;
+		return value;
+	}
+
+	public byte[] readBinary() {
+		int b = readByte();
+		int length;
+		if (b == MessagePackFormat.BIN8) {
+			length = readByte();
+		} else if (b == MessagePackFormat.BIN16) {
+			length = readShort();
+		} else if (b == MessagePackFormat.BIN32) {
+			length = readLength();
+		} else {
+			throw unexpected("binary", b);
+		}
+		require(length);
+		byte[] value = new byte[length];
+		System.arraycopy(buf, pos, value, 0, length);
+		pos += length;
+		return value;
+	}
+
+	/**
+	 * @return 数组的元素个数，不超过剩余的字节数
+	 */
+	public int readArrayHeader() {
+		int b = readByte();
+		int size;
+		if ((b & 0xf0) == MessagePackFormat.FIXARRAY_PREFIX) {
+			size = b & 0x0f;
+		} else if (b == MessagePackFormat.ARRAY16) {
+			size = readShort();
+		} else if (b == MessagePackFormat.ARRAY32) {
+			size = readLength();
+		} else {
+			throw unexpected("array", b);
+		}
+		requireElements(size);
+		return size;
+	}
+
+	/**
+	 * @return Map的键值对个数，不超过剩余字节数的一半
+	 */
+	public int readMapHeader() {
+		int b = readByte();
+		int size;
+		if ((b & 0xf0) == MessagePackFormat.FIXMAP_PREFIX) {
+			size = b & 0x0f;
+		} else if (b == MessagePackFormat.MAP16) {
+			size = readShort();
+		} else if (b == MessagePackFormat.MAP32) {
+			size = readLength();
+		} else {
+			throw unexpected("map", b);
+		}
+		requireElements(size * 2L);
+		return size;
+	}
+
+	/**
+	 * 跳过下一个值(包括其嵌套的所有元素)
+	 */
+	public void skipValue() {
+		int remaining = 1;
+		while (remaining > 0) {
+			remaining--;
+			switch (peekType()) {
+				case NIL:
+				case BOOLEAN:
+					pos++;
+					break;
+				case INTEGER:
+					readLong();
+					break;
+				case FLOAT:
+					readDouble();
+					break;
+				case STRING:
+					readString();
+					break;
+				case BINARY:
+					readBinary();
+					break;
+				case ARRAY:
+					remaining += readArrayHeader();
+					break;
+				case MAP:
+					remaining += readMapHeader() * 2;
+					break;
+			}
+		}
+	}
+
+	private int readByte() {
+		require(1);
+		return buf[pos++] & 0xff;
+	}
+
+	private int readShort() {
+		require(2);
+		int v = ((buf[pos] & 0xff) << 8) | (buf[pos + 1] & 0xff);
+		pos += 2;
+		return v;
+	}
+
+	private int readInt() {
+		require(4);
+		int v = ((buf[pos] & 0xff) << 24) | ((buf[pos + 1] & 0xff) << 16)
+				| ((buf[pos + 2] & 0xff) << 8) | (buf[pos + 3] & 0xff);
+		pos += 4;
+		return v;
+	}
+
+	private long readLongValue() {
+		long high = readInt() & 0xffffffffL;
+		long low = readInt() & 0xffffffffL;
+		return (high << 32) | low;
+	}
+
+	private int readLength() {
+		int length = readInt();
+		if (length < 0) {
+			throw new MessagePackException("MessagePack长度超出范围：" + (length & 0xffffffffL));
+		}
+		return length;
+	}
+
+	private void require(int size) {
+		if (size > limit - pos) {
+			throw new MessagePackException("MessagePack数据不完整");
+		}
+	}
+
+	/**
+	 * 每个元素至少占1个字节，元素个数超过剩余字节数的数据一定不完整，
+	 * 在按个数分配数组或集合之前检查，避免伪造的长度耗尽内存
+	 */
+	private void requireElements(long count) {
+		if (count > limit - pos) {
+			throw new MessagePackException("MessagePack元素个数" + count + "超过剩余数据长度" + (limit - pos));
+		}
+	}
+
+	private MessagePackException unexpected(String expected, int b) {
+		return new MessagePackException("期望MessagePack " + expected + "类型，实际为0x" + Integer.toHexString(b));
+	}
+}
@@ -0,0 +1,51 @@
+package rop.msgpack;
+
+import rop.ResponseOutputStream;
+import rop.RopException;
+import rop.RopMarshaller;
+import rop.thirdparty.org.apache.commons.codec.binary.Base64;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <pre>
+ *   MessagePack 序列化。
+ *   二进制内容无法直接放入字符串，{@link #marshaller(Object)}返回的是Base64编码后的内容，仅用于日志等场合。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class MessagePackRopMarshaller implements RopMarshaller {
+
+	private final MessagePackCodec codec = MessagePackCodec.getInstance();
+
+	@Override
+	public String marshaller(Object object) {
+		return Base64.encodeBase64String(toBytes(object));
+	}
+
+	@Override
+	public void marshaller(Object object, OutputStream outputStream) throws IOException {
+		if (outputStream instanceof ResponseOutputStream) {
+			//先编码到内存以确定内容长度，MessagePack内容较紧凑，额外的复制开销很小
+			byte[] bytes = toBytes(object);
+			((ResponseOutputStream) outputStream).setContentLength(bytes.length);
+			outputStream.write(bytes);
+		} else {
+			codec.encode(object, outputStream);
+		}
+	}
+
+	public byte[] toBytes(Object object) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+		try {
+			codec.encode(object, out);
+		} catch (IOException e) {
+			throw new RopException("MessagePack序列化出错", e);
+		}
+		return out.toByteArray();
+	}
+}
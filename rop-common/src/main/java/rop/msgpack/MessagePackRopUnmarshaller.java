@@ -0,0 +1,27 @@
+package rop.msgpack;
+
+import rop.RopUnmarshaller;
+import rop.thirdparty.org.apache.commons.codec.binary.Base64;
+
+/**
+ * <pre>
+ *   MessagePack 反序列化，字符串形式的内容视为Base64编码。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class MessagePackRopUnmarshaller implements RopUnmarshaller {
+
+	private final MessagePackCodec codec = MessagePackCodec.getInstance();
+
+	@Override
+	public <T> T unmarshaller(String content, Class<T> objectType) {
+		return unmarshaller(Base64.decodeBase64(content), objectType);
+	}
+
+	@Override
+	public <T> T unmarshaller(byte[] content, Class<T> objectType) {
+		return codec.decode(content, objectType);
+	}
+}
@@ -0,0 +1,261 @@
+package rop.msgpack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <pre>
+ *   MessagePack格式的底层写入器，按规范选择最紧凑的编码，内部带8K缓冲区，写完后需调用{@link #flush()}。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class MessagePackWriter {
+
+	private final OutputStream out;
+
+	private final byte[] buf;
+
+	private int count;
+
+	public MessagePackWriter(OutputStream out) {
+		this.out = out;
+		this.buf = new byte[8 * 1024];
+	}
+
+	public void writeNil() throws IOException {
+		writeByte(MessagePackFormat.NIL);
+	}
+
+	public void writeBoolean(boolean value) throws IOException {
+		writeByte(value ? MessagePackFormat.TRUE : MessagePackFormat.FALSE);
+	}
+
+	public void writeLong(long value) throws IOException {
+		if (value >= 0) {
+			if (value < 0x80) {
+				writeByte((int) value);
+			} else if (value < 0x100) {
+				ensure(2);
+				buf[count++] = (byte) MessagePackFormat.UINT8;
+				buf[count++] = (byte) value;
+			} else if (value < 0x10000) {
+				ensure(3);
+				buf[count++] = (byte) MessagePackFormat.UINT16;
+				putShort((int) value);
+			} else if (value < 0x100000000L) {
+				ensure(5);
+				buf[count++] = (byte) MessagePackFormat.UINT32;
+				putInt((int) value);
+			} else {
+				ensure(9);
+				buf[count++] = (byte) MessagePackFormat.UINT64;
+				putLong(value);
+			}
+		} else {
+			if (value >= -32) {
+				writeByte((int) value & 0xff);
+			} else if (value >= Byte.MIN_VALUE) {
+				ensure(2);
+				buf[count++] = (byte) MessagePackFormat.INT8;
+				buf[count++] = (byte) value;
+			} else if (value >= Short.MIN_VALUE) {
+				ensure(3);
+				buf[count++] = (byte) MessagePackFormat.INT16;
+				putShort((int) value);
+			} else if (value >= Integer.MIN_VALUE) {
+				ensure(5);
+				buf[count++] = (byte) MessagePackFormat.INT32;
+				putInt((int) value);
+			} else {
+				ensure(9);
+				buf[count++] = (byte) MessagePackFormat.INT64;
+				putLong(value);
+			}
+		}
+	}
+
+	public void writeFloat(float value) throws IOException {
+		ensure(5);
+		buf[count++] = (byte) MessagePackFormat.FLOAT32;
+		putInt(Float.floatToIntBits(value));
+	}
+
+	public void writeDouble(double value) throws IOException {
+		ensure(9);
+		buf[count++] = (byte) MessagePackFormat.FLOAT64;
+		putLong(Double.doubleToLongBits(value));
+	}
+
+	/**
+	 * 以UTF-8写入字符串，先计算编码后的长度再直接编码到缓冲区，不生成中间byte[]
+	 *
+	 * @param value
+	 * @throws IOException
+	 */
+	public void writeString(String value) throws IOException {
+		int length = value.length();
+		int utf8Length = utf8Length(value);
+		if (utf8Length < 32) {
+			writeByte(MessagePackFormat.FIXSTR_PREFIX | utf8Length);
+		} else if (utf8Length < 0x100) {
+			ensure(2);
+			buf[count++] = (byte) MessagePackFormat.STR8;
+			buf[count++] = (byte) utf8Length;
+		} else if (utf8Length < 0x10000) {
+			ensure(3);
+			buf[count++] = (byte) MessagePackFormat.STR16;
+			putShort(utf8Length);
+		} else {
+			ensure(5);
+			buf[count++] = (byte) MessagePackFormat.STR32;
+			putInt(utf8Length);
+		}
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				ensure(1);
+				buf[count++] = (byte) c;
+			} else if (c < 0x800) {
+				ensure(2);
+				buf[count++] = (byte) (0xc0 | (c >> 6));
+				buf[count++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				ensure(4);
+				buf[count++] = (byte) (0xf0 | (codePoint >> 18));
+				buf[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+				buf[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				buf[count++] = (byte) (0x80 | (codePoint & 0x3f));
+			} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				ensure(1);
+				buf[count++] = (byte) '?';
+			} else {
+				ensure(3);
+				buf[count++] = (byte) (0xe0 | (c >> 12));
+				buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				buf[count++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+	}
+
+	public void writeBinary(byte[] value) throws IOException {
+		int length = value.length;
+		if (length < 0x100) {
+			ensure(2);
+			buf[count++] = (byte) MessagePackFormat.BIN8;
+			buf[count++] = (byte) length;
+		} else if (length < 0x10000) {
+			ensure(3);
+			buf[count++] = (byte) MessagePackFormat.BIN16;
+			putShort(length);
+		} else {
+			ensure(5);
+			buf[count++] = (byte) MessagePackFormat.BIN32;
+			putInt(length);
+		}
+		writeRaw(value, 0, length);
+	}
+
+	public void writeArrayHeader(int size) throws IOException {
+		if (size < 16) {
+			writeByte(MessagePackFormat.FIXARRAY_PREFIX | size);
+		} else if (size < 0x10000) {
+			ensure(3);
+			buf[count++] = (byte) MessagePackFormat.ARRAY16;
+			putShort(size);
+		} else {
+			ensure(5);
+			buf[count++] = (byte) MessagePackFormat.ARRAY32;
+			putInt(size);
+		}
+	}
+
+	public void writeMapHeader(int size) throws IOException {
+		if (size < 16) {
+			writeByte(MessagePackFormat.FIXMAP_PREFIX | size);
+		} else if (size < 0x10000) {
+			ensure(3);
+			buf[count++] = (byte) MessagePackFormat.MAP16;
+			putShort(size);
+		} else {
+			ensure(5);
+			buf[count++] = (byte) MessagePackFormat.MAP32;
+			putInt(size);
+		}
+	}
+
+	public void flush() throws IOException {
+		if (count > 0) {
+			out.write(buf, 0, count);
+			count = 0;
+		}
+		out.flush();
+	}
+
+	private void writeRaw(byte[] value, int off, int len) throws IOException {
+		if (len > buf.length - count) {
+			if (count > 0) {
+				out.write(buf, 0, count);
+				count = 0;
+			}
+			if (len > buf.length) {
+				out.write(value, off, len);
+				return;
+			}
+		}
+		System.arraycopy(value, off, buf, count, len);
+		count += len;
+	}
+
+	private void writeByte(int b) throws IOException {
+		ensure(1);
+		buf[count++] = (byte) b;
+	}
+
+	private void ensure(int size) throws IOException {
+		if (count + size > buf.length) {
+			out.write(buf, 0, count);
+			count = 0;
+		}
+	}
+
+	private void putShort(int v) {
+		buf[count++] = (byte) (v >> 8);
+		buf[count++] = (byte) v;
+	}
+
+	private void putInt(int v) {
+		buf[count++] = (byte) (v >> 24);
+		buf[count++] = (byte) (v >> 16);
+		buf[count++] = (byte) (v >> 8);
+		buf[count++] = (byte) v;
+	}
+
+	private void putLong(long v) {
+		putInt((int) (v >> 32));
+		putInt((int) v);
+	}
+
+	private static int utf8Length(String value) {
+		int length = value.length();
+		int utf8Length = 0;
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				utf8Length += 1;
+			} else if (c < 0x800) {
+				utf8Length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				utf8Length += 4;
+				i++;
+			} else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+				utf8Length += 1;
+			} else {
+				utf8Length += 3;
+			}
+		}
+		return utf8Length;
+	}
+}
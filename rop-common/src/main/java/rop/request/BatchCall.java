@@ -0,0 +1,65 @@
+package rop.request;
+
+import rop.thirdparty.com.alibaba.fastjson.annotation.JSONField;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 批量调用中的一个服务调用
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class BatchCall {
+
+	/**
+	 * 服务方法名
+	 */
+	private String method;
+
+	/**
+	 * 服务方法版本
+	 */
+	private String version;
+
+	/**
+	 * 业务参数，与表单方式调用时的参数相同
+	 */
+	private Map<String, String> params = new HashMap<String, String>();
+
+	public BatchCall() {
+	}
+
+	public BatchCall(String method, String version, Map<String, String> params) {
+		this.method = method;
+		this.version = version;
+		this.params = params;
+	}
+
+	public String getMethod() {
+		return method;
+	}
+
+	public void setMethod(String method) {
+		this.method = method;
+	}
+
+	@JSONField(name = "v")
+	public String getVersion() {
+		return version;
+	}
+
+	@JSONField(name = "v")
+	public void setVersion(String version) {
+		this.version = version;
+	}
+
+	public Map<String, String> getParams() {
+		return params;
+	}
+
+	public void setParams(Map<String, String> params) {
+		this.params = params;
+	}
+}
@@ -0,0 +1,36 @@
+package rop.request;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量调用请求，以json请求体的方式提交，整个批量调用只进行一次签名及会话检查
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class BatchRequest implements ServiceRequest {
+
+	/**
+	 * 批量调用的系统服务方法名
+	 */
+	public static final String METHOD = "rop.batch";
+
+	/**
+	 * 批量调用的系统服务方法版本
+	 */
+	public static final String VERSION = "1.0";
+
+	/**
+	 * 按顺序执行(并行)的服务调用列表
+	 */
+	private List<BatchCall> calls = new ArrayList<BatchCall>();
+
+	public List<BatchCall> getCalls() {
+		return calls;
+	}
+
+	public void setCalls(List<BatchCall> calls) {
+		this.calls = calls;
+	}
+}
@@ -34,6 +34,11 @@ public class SystemParameterNames {
     //签名的默认参数名
     private static final String SIGN = "sign";
 
+	/**
+	 * 签名方式，不指定时为sha1
+	 */
+	private static final String SIGN_METHOD = "signMethod";
+
 	/**
 	 * 请求时间戳
 	 */
@@ -57,6 +62,8 @@ public class SystemParameterNames {
 
     private static String sign = SIGN;
 
+	private static String signMethod = SIGN_METHOD;
+
     private static String jsonp = JSONP;
 
 	private static String timestamp = TIMESTAMP;
@@ -127,6 +134,14 @@ public class SystemParameterNames {
         SystemParameterNames.sign = sign;
     }
 
+	public static String getSignMethod() {
+		return signMethod;
+	}
+
+	public static void setSignMethod(String signMethod) {
+		SystemParameterNames.signMethod = signMethod;
+	}
+
     public static String getJsonp() {
         return jsonp;
     }
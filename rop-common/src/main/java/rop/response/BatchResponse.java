@@ -0,0 +1,23 @@
+package rop.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量调用的响应，responses与请求中的服务调用一一对应，每个服务调用的成功或失败各自独立
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class BatchResponse extends RopResponse {
+
+	private List<RopResponse> responses = new ArrayList<RopResponse>();
+
+	public List<RopResponse> getResponses() {
+		return responses;
+	}
+
+	public void setResponses(List<RopResponse> responses) {
+		this.responses = responses;
+	}
+}
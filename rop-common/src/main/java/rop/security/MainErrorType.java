@@ -44,7 +44,8 @@ public enum MainErrorType {
     EXCEED_APP_INVOKE_LIMITED,
     EXCEED_APP_INVOKE_FREQUENCY_LIMITED,
 	TIMESTAMP_TOKEN_EXPIRE,
-	APPKEY_INACTIVE;//APPKEY未激活
+	APPKEY_INACTIVE,//APPKEY未激活
+	REPLAYED_REQUEST;//重放的请求
 
     private static EnumMap<MainErrorType, String> errorCodeMap = new EnumMap<MainErrorType, String>(MainErrorType.class);
 
@@ -78,6 +79,7 @@ public enum MainErrorType {
         errorCodeMap.put(MainErrorType.EXCEED_APP_INVOKE_FREQUENCY_LIMITED, "37");
 		errorCodeMap.put(MainErrorType.TIMESTAMP_TOKEN_EXPIRE, "38");
 		errorCodeMap.put(MainErrorType.APPKEY_INACTIVE, "39");
+		errorCodeMap.put(MainErrorType.REPLAYED_REQUEST, "40");
     }
 
     public String value() {
@@ -20,15 +20,21 @@ import static rop.thirdparty.com.alibaba.fastjson.parser.CharTypes.replaceChars;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
-import java.lang.ref.SoftReference;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 
 import rop.thirdparty.com.alibaba.fastjson.JSON;
 import rop.thirdparty.com.alibaba.fastjson.JSONException;
 import rop.thirdparty.com.alibaba.fastjson.parser.CharTypes;
 import rop.thirdparty.com.alibaba.fastjson.util.Base64;
+import rop.thirdparty.com.alibaba.fastjson.util.BufferPool;
 import rop.thirdparty.com.alibaba.fastjson.util.IOUtils;
+import rop.thirdparty.com.alibaba.fastjson.util.ThreadLocalCache;
 
 /**
  * @author wenshao<szujobs@hotmail.com>
@@ -45,7 +51,9 @@ public final class SerializeWriter extends Writer {
      */
     protected int                                           count;
 
-    private final static ThreadLocal<SoftReference<char[]>> bufLocal = new ThreadLocal<SoftReference<char[]>>();
+    private final static int                                ENCODE_CHUNK_SIZE = 1024 * 8;
+
+    private final static Charset                            UTF8              = Charset.forName("UTF-8");
 
     private int                                             features;
 
@@ -59,16 +67,7 @@ public final class SerializeWriter extends Writer {
         this.writer = writer;
         this.features = JSON.DEFAULT_GENERATE_FEATURE;
 
-        SoftReference<char[]> ref = bufLocal.get();
-
-        if (ref != null) {
-            buf = ref.get();
-            bufLocal.set(null);
-        }
-
-        if (buf == null) {
-            buf = new char[1024];
-        }
+        buf = BufferPool.takeChars(1024);
     }
 
     public SerializeWriter(SerializerFeature... features){
@@ -78,16 +77,7 @@ public final class SerializeWriter extends Writer {
     public SerializeWriter(Writer writer, SerializerFeature... features){
         this.writer = writer;
 
-        SoftReference<char[]> ref = bufLocal.get();
-
-        if (ref != null) {
-            buf = ref.get();
-            bufLocal.set(null);
-        }
-
-        if (buf == null) {
-            buf = new char[1024];
-        }
+        buf = BufferPool.takeChars(1024);
 
         int featuresValue = 0;
         for (SerializerFeature feature : features) {
@@ -255,8 +245,131 @@ public final class SerializeWriter extends Writer {
         if (this.writer != null) {
             throw new UnsupportedOperationException("writer not null");
         }
-        byte[] bytes = new String(buf, 0, count).getBytes(charset);
-        out.write(bytes);
+        if (count == 0) {
+            return;
+        }
+
+        if (UTF8.equals(charset)) {
+            writeUtf8To(out);
+            return;
+        }
+
+        // encode chunk by chunk into a thread local buffer instead of copying through String
+        CharsetEncoder encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        byte[] bytes = ThreadLocalCache.getBytes(ENCODE_CHUNK_SIZE);
+        ByteBuffer byteBuf = ByteBuffer.wrap(bytes);
+        CharBuffer charBuf = CharBuffer.wrap(buf, 0, count);
+        for (;;) {
+            CoderResult cr = encoder.encode(charBuf, byteBuf, true);
+            if (cr.isOverflow()) {
+                out.write(bytes, 0, byteBuf.position());
+                byteBuf.clear();
+                continue;
+            }
+            if (!cr.isUnderflow()) {
+                cr.throwException();
+            }
+            break;
+        }
+        for (;;) {
+            CoderResult cr = encoder.flush(byteBuf);
+            if (cr.isOverflow()) {
+                out.write(bytes, 0, byteBuf.position());
+                byteBuf.clear();
+                continue;
+            }
+            break;
+        }
+        if (byteBuf.position() > 0) {
+            out.write(bytes, 0, byteBuf.position());
+        }
+    }
+
+    /**
+     * Encodes the buffered chars as UTF-8 chunk by chunk into a pooled buffer. A chunk never ends between the two
+     * chars of a surrogate pair.
+     */
+    private void writeUtf8To(OutputStream out) throws IOException {
+        byte[] bytes = BufferPool.takeBytes(ENCODE_CHUNK_SIZE);
+        try {
+            // a char takes at most 3 bytes, a surrogate pair 4 bytes for 2 chars
+            final int charsPerChunk = bytes.length / 3;
+            int start = 0;
+            while (start < count) {
+                int end = Math.min(start + charsPerChunk, count);
+                if (end < count && end - 1 > start && Character.isHighSurrogate(buf[end - 1])) {
+                    end--;
+                }
+                out.write(bytes, 0, encodeUtf8(start, end, bytes, 0));
+                start = end;
+            }
+        } finally {
+            BufferPool.returnBytes(bytes);
+        }
+    }
+
+    /**
+     * Encodes the buffered chars as UTF-8 into an array of exactly {@link #utf8Length()} bytes.
+     */
+    private byte[] toUtf8Bytes() {
+        byte[] bytes = new byte[utf8Length()];
+        encodeUtf8(0, count, bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Encodes buf[start, end) as UTF-8 into bytes starting at pos, which must have room for it. Unpaired surrogates
+     * are written as '?', the same as the JDK encoder does.
+     *
+     * @return the position after the last byte written
+     */
+    private int encodeUtf8(int start, int end, byte[] bytes, int pos) {
+        for (int i = start; i < end; ++i) {
+            char c = buf[i];
+            if (c < 0x80) {
+                bytes[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[pos++] = (byte) (0xc0 | (c >> 6));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(buf[i + 1])) {
+                int codePoint = Character.toCodePoint(c, buf[++i]);
+                bytes[pos++] = (byte) (0xf0 | (codePoint >> 18));
+                bytes[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                bytes[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                bytes[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                bytes[pos++] = (byte) '?';
+            } else {
+                bytes[pos++] = (byte) (0xe0 | (c >> 12));
+                bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the length of the buffered chars encoded as UTF-8, without encoding them. Unpaired surrogates count as
+     * one byte because they are replaced by '?'.
+     */
+    public int utf8Length() {
+        int length = 0;
+        for (int i = 0; i < count; ++i) {
+            char c = buf[i];
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(buf[i + 1])) {
+                length += 4;
+                ++i;
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
     }
 
     public SerializeWriter append(CharSequence csq) {
@@ -305,6 +418,9 @@ public final class SerializeWriter extends Writer {
         }
 
         Charset cs = Charset.forName(charsetName);
+        if (UTF8.equals(cs)) {
+            return toUtf8Bytes();
+        }
         SerialWriterStringEncoder encoder = new SerialWriterStringEncoder(cs);
 
         return encoder.encode(buf, 0, count);
@@ -326,9 +442,7 @@ public final class SerializeWriter extends Writer {
         if (writer != null && count > 0) {
             flush();
         }
-        if (buf.length <= 1024 * 8) {
-            bufLocal.set(new SoftReference<char[]>(buf));
-        }
+        BufferPool.returnChars(buf);
 
         this.buf = null;
     }
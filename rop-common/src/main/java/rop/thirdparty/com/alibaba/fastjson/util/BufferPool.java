@@ -0,0 +1,93 @@
+package rop.thirdparty.com.alibaba.fastjson.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded pool of serialization buffers held by strong references. Unlike a SoftReference cache the buffers survive
+ * memory pressure, and the number and size of the pooled buffers are bounded so the pool never holds more than
+ * {@link #CAPACITY} * {@link #MAX_CHARS} chars plus {@link #CAPACITY} * {@link #MAX_BYTES} bytes. Each thread starts
+ * probing at a slot derived from its id, so a thread normally gets back the buffer it returned last time.
+ */
+public final class BufferPool {
+
+    public final static int                           CAPACITY  = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    public final static int                           MAX_CHARS = 1024 * 64;
+
+    public final static int                           MAX_BYTES = 1024 * 64;
+
+    private final static AtomicReferenceArray<char[]> charSlots = new AtomicReferenceArray<char[]>(CAPACITY);
+
+    private final static AtomicReferenceArray<byte[]> byteSlots = new AtomicReferenceArray<byte[]>(CAPACITY);
+
+    private BufferPool(){
+    }
+
+    /**
+     * Takes a pooled char buffer of at least the given length, or allocates a new one.
+     */
+    public static char[] takeChars(int minLength) {
+        int start = probe();
+        for (int i = 0; i < CAPACITY; ++i) {
+            int index = (start + i) % CAPACITY;
+            char[] chars = charSlots.get(index);
+            if (chars != null && chars.length >= minLength && charSlots.compareAndSet(index, chars, null)) {
+                return chars;
+            }
+        }
+        return new char[minLength];
+    }
+
+    /**
+     * Returns a char buffer to the pool. Buffers larger than {@link #MAX_CHARS} are dropped, as are buffers returned
+     * while the pool is full.
+     */
+    public static void returnChars(char[] chars) {
+        if (chars == null || chars.length > MAX_CHARS) {
+            return;
+        }
+        int start = probe();
+        for (int i = 0; i < CAPACITY; ++i) {
+            int index = (start + i) % CAPACITY;
+            if (charSlots.get(index) == null && charSlots.compareAndSet(index, null, chars)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes a pooled byte buffer of at least the given length, or allocates a new one.
+     */
+    public static byte[] takeBytes(int minLength) {
+        int start = probe();
+        for (int i = 0; i < CAPACITY; ++i) {
+            int index = (start + i) % CAPACITY;
+            byte[] bytes = byteSlots.get(index);
+            if (bytes != null && bytes.length >= minLength && byteSlots.compareAndSet(index, bytes, null)) {
+                return bytes;
+            }
+        }
+        return new byte[minLength];
+    }
+
+    /**
+     * Returns a byte buffer to the pool. Buffers larger than {@link #MAX_BYTES} are dropped, as are buffers returned
+     * while the pool is full.
+     */
+    public static void returnBytes(byte[] bytes) {
+        if (bytes == null || bytes.length > MAX_BYTES) {
+            return;
+        }
+        int start = probe();
+        for (int i = 0; i < CAPACITY; ++i) {
+            int index = (start + i) % CAPACITY;
+            if (byteSlots.get(index) == null && byteSlots.compareAndSet(index, null, bytes)) {
+                return;
+            }
+        }
+    }
+
+    private static int probe() {
+        return (int) (Thread.currentThread().getId() % CAPACITY);
+    }
+}
@@ -5,6 +5,7 @@ import org.slf4j.LoggerFactory;
 
 import rop.Constants;
 import rop.RopException;
+import rop.request.SystemParameterNames;
 import rop.thirdparty.org.apache.commons.lang3.LocaleUtils;
 import rop.thirdparty.org.apache.commons.lang3.StringUtils;
 
@@ -29,9 +30,26 @@ public class RopUtils {
 
 	private static final Logger logger = LoggerFactory.getLogger(RopUtils.class);
 
+	/**
+	 * application/json请求体的摘要参与签名时使用的参数名
+	 */
+	public static final String JSON_BODY_SIGN_NAME = "body";
+
+	/**
+	 * 签名方式：uppercase(hex(sha1(secret + ...)))，未指定签名方式时的默认值
+	 */
+	public static final String SIGN_METHOD_SHA1 = "sha1";
+
+	/**
+	 * 签名方式：uppercase(hex(hmac-sha256(secret, ...)))，请求体摘要使用SHA-256
+	 */
+	public static final String SIGN_METHOD_HMAC_SHA256 = "hmac-sha256";
+
 	/**
 	 * 使用<code>secret</code>对paramValues按以下算法进行签名： <br/>
-	 * uppercase(hex(sha1(secretkey1value1key2value2...secret))
+	 * uppercase(hex(sha1(secretkey1value1key2value2...)))，参数、Header、扩展信息各自按名称排序。<br/>
+	 * headerMap中的签名方式参数({@link SystemParameterNames#getSignMethod()})为{@link #SIGN_METHOD_HMAC_SHA256}时，
+	 * 改为uppercase(hex(hmac-sha256(secret, key1value1key2value2...)))。headerMap中的签名参数本身不参与签名。
 	 *
 	 * @param paramValues 参数列表
 	 * @param secret
@@ -50,39 +68,68 @@ public class RopUtils {
 	 * @return
 	 */
 	public static String sign(Map<String, String> paramValues, Set<String> ignoreParamNames,Map<String,String> headerMap,Map<String,String> extInfoMap,String secret) {
-		try {
-			//密钥
-			String contactStr = secret;
-			//参数内容
-			contactStr += contactValues(paramValues,ignoreParamNames);
-			//Header
-			contactStr += contactValues(headerMap,null);
-			//自定义扩展
-			contactStr += contactValues(extInfoMap,null);
-
-			byte[] sha1Digest = getSHA1Digest(contactStr);
-			return byte2hex(sha1Digest);
-		} catch (IOException e) {
-			throw new RopException(e);
-		}
+		return StreamingSigner.get().sign(isHmacSign(headerMap), secret, paramValues, ignoreParamNames, null, null,
+				headerMap, SystemParameterNames.getSign(), extInfoMap);
 	}
 
-	private static String contactValues(Map<String,String> values,Set<String> ignoreParamNames){
-		StringBuilder sb = new StringBuilder();
-		List<String> paramNames = new ArrayList<String>(values.size());
-		paramNames.addAll(values.keySet());
-		if (ignoreParamNames != null && ignoreParamNames.size() > 0) {
-			for (String ignoreParamName : ignoreParamNames) {
-				paramNames.remove(ignoreParamName);
-			}
-		}
-		Collections.sort(paramNames);
+	/**
+	 * 对application/json请求体进行签名，请求体以其摘要参与签名： <br/>
+	 * uppercase(hex(sha1(secret + "body" + uppercase(hex(sha1(body))) + headers + ext)))，
+	 * HMAC-SHA256签名方式下请求体摘要为uppercase(hex(sha256(body)))
+	 *
+	 * @param body       原始请求体
+	 * @param headerMap
+	 * @param extInfoMap
+	 * @param secret
+	 * @return
+	 */
+	public static String sign(byte[] body, Map<String, String> headerMap, Map<String, String> extInfoMap, String secret) {
+		boolean hmac = isHmacSign(headerMap);
+		StreamingSigner signer = StreamingSigner.get();
+		return signer.sign(hmac, secret, null, null, JSON_BODY_SIGN_NAME, signer.bodyDigest(hmac, body),
+				headerMap, SystemParameterNames.getSign(), extInfoMap);
+	}
 
-		for (String paramName : paramNames) {
-			sb.append(paramName).append(values.get(paramName));
-		}
+	/**
+	 * 计算请求体的摘要：uppercase(hex(sha1(body)))
+	 *
+	 * @param body
+	 * @return
+	 */
+	public static String bodyDigest(byte[] body) {
+		return StreamingSigner.get().bodyDigest(false, body);
+	}
 
-		return sb.toString();
+	/**
+	 * 是否是支持的签名方式，null表示默认的{@link #SIGN_METHOD_SHA1}
+	 *
+	 * @param signMethod
+	 * @return
+	 */
+	public static boolean isSupportedSignMethod(String signMethod) {
+		return signMethod == null || SIGN_METHOD_SHA1.equals(signMethod) || SIGN_METHOD_HMAC_SHA256.equals(signMethod);
+	}
+
+	private static boolean isHmacSign(Map<String, String> headerMap) {
+		return headerMap != null && SIGN_METHOD_HMAC_SHA256.equals(headerMap.get(SystemParameterNames.getSignMethod()));
+	}
+
+	/**
+	 * 比较签名，耗时与签名在第几个字符不同无关，避免通过响应时间逐字符猜测签名
+	 *
+	 * @param expected 服务端计算的签名
+	 * @param actual   请求中的签名
+	 * @return
+	 */
+	public static boolean isSignEqual(String expected, String actual) {
+		if (expected == null || actual == null || expected.length() != actual.length()) {
+			return false;
+		}
+		int diff = 0;
+		for (int i = 0; i < expected.length(); i++) {
+			diff |= expected.charAt(i) ^ actual.charAt(i);
+		}
+		return diff == 0;
 	}
 
 	public static String utf8Encoding(String value, String sourceCharsetName) {
@@ -93,17 +140,6 @@ public class RopUtils {
 		}
 	}
 
-	private static byte[] getSHA1Digest(String data) throws IOException {
-		byte[] bytes = null;
-		try {
-			MessageDigest md = MessageDigest.getInstance("SHA-1");
-			bytes = md.digest(data.getBytes(Constants.UTF8));
-		} catch (GeneralSecurityException gse) {
-			throw new IOException(gse);
-		}
-		return bytes;
-	}
-
 	private static byte[] getMD5Digest(String data) throws IOException {
 		byte[] bytes = null;
 		try {
@@ -115,24 +151,6 @@ public class RopUtils {
 		return bytes;
 	}
 
-	/**
-	 * 二进制转十六进制字符串
-	 *
-	 * @param bytes
-	 * @return
-	 */
-	private static String byte2hex(byte[] bytes) {
-		StringBuilder sign = new StringBuilder();
-		for (int i = 0; i < bytes.length; i++) {
-			String hex = Integer.toHexString(bytes[i] & 0xFF);
-			if (hex.length() == 1) {
-				sign.append("0");
-			}
-			sign.append(hex.toUpperCase());
-		}
-		return sign.toString();
-	}
-
 	public static String getUUID() {
 		UUID uuid = UUID.randomUUID();
 		return uuid.toString().toUpperCase();
@@ -0,0 +1,267 @@
+package rop.utils;
+
+import rop.RopException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <pre>
+ *   流式签名计算：参数名、参数值按UTF-8编码后经线程内复用的缓冲区直接送入摘要，不再拼接待签名字符串。
+ *   吸收了密钥的摘要(SHA-1)或初始化了密钥的Mac(HMAC-SHA256)按密钥缓存，每次签名复制一份后继续计算。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+final class StreamingSigner {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final String SHA1 = "SHA-1";
+
+	private static final String SHA256 = "SHA-256";
+
+	private static final String HMAC_SHA256 = "HmacSHA256";
+
+	private static final int BUFFER_SIZE = 512;
+
+	//缓存的密钥数超过该值时清空重建，防止密钥不断变化时无限增长
+	private static final int MAX_CACHED_SECRETS = 1024;
+
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	//吸收了密钥的SHA-1摘要，键为密钥
+	private static final ConcurrentMap<String, MessageDigest> SHA1_PREFIXES = new ConcurrentHashMap<String, MessageDigest>();
+
+	//初始化了密钥的HMAC-SHA256，键为密钥
+	private static final ConcurrentMap<String, Mac> HMAC_PREFIXES = new ConcurrentHashMap<String, Mac>();
+
+	private static final ThreadLocal<StreamingSigner> LOCAL = new ThreadLocal<StreamingSigner>() {
+		@Override
+		protected StreamingSigner initialValue() {
+			return new StreamingSigner();
+		}
+	};
+
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	private int count;
+
+	//排序参数名用的数组
+	private String[] names = new String[16];
+
+	//请求体摘要用的摘要，digest()后自动重置
+	private MessageDigest sha1BodyDigest;
+
+	private MessageDigest sha256BodyDigest;
+
+	private MessageDigest digest;
+
+	private Mac mac;
+
+	private StreamingSigner() {
+	}
+
+	static StreamingSigner get() {
+		return LOCAL.get();
+	}
+
+	/**
+	 * 计算签名：参数、Header、扩展信息三组各自按名称排序后依次以"名称值"的形式参与签名，
+	 * Header中的签名参数本身不参与签名
+	 *
+	 * @param hmac            是否使用HMAC-SHA256，否则为sha1(secret + ...)
+	 * @param secret
+	 * @param paramValues     业务参数，为null时使用bodyName/bodyDigest
+	 * @param ignoreParamNames 不参与签名的业务参数
+	 * @param bodyName        请求体摘要的参数名
+	 * @param bodyDigest      请求体摘要
+	 * @param headerMap
+	 * @param signName        签名参数名
+	 * @param extInfoMap
+	 * @return 大写十六进制的签名
+	 */
+	String sign(boolean hmac, String secret, Map<String, String> paramValues, Set<String> ignoreParamNames,
+				String bodyName, String bodyDigest, Map<String, String> headerMap, String signName,
+				Map<String, String> extInfoMap) {
+		if (hmac) {
+			mac = prefixMac(secret);
+		} else {
+			digest = prefixDigest(secret);
+		}
+		try {
+			count = 0;
+			if (paramValues != null) {
+				updateSorted(paramValues, ignoreParamNames, null);
+			} else {
+				update(bodyName);
+				update(bodyDigest);
+			}
+			updateSorted(headerMap, null, signName);
+			updateSorted(extInfoMap, null, null);
+			flush();
+			return toHex(hmac ? mac.doFinal() : digest.digest());
+		} finally {
+			mac = null;
+			digest = null;
+		}
+	}
+
+	/**
+	 * 计算请求体的摘要
+	 *
+	 * @param sha256 是否使用SHA-256，否则为SHA-1
+	 * @param body
+	 * @return 大写十六进制的摘要
+	 */
+	String bodyDigest(boolean sha256, byte[] body) {
+		MessageDigest md;
+		if (sha256) {
+			if (sha256BodyDigest == null) {
+				sha256BodyDigest = newDigest(SHA256);
+			}
+			md = sha256BodyDigest;
+		} else {
+			if (sha1BodyDigest == null) {
+				sha1BodyDigest = newDigest(SHA1);
+			}
+			md = sha1BodyDigest;
+		}
+		return toHex(md.digest(body));
+	}
+
+	private void updateSorted(Map<String, String> values, Set<String> ignoreNames, String ignoreName) {
+		if (values == null || values.isEmpty()) {
+			return;
+		}
+		if (names.length < values.size()) {
+			names = new String[Math.max(values.size(), names.length * 2)];
+		}
+		int size = 0;
+		for (String name : values.keySet()) {
+			if ((ignoreNames == null || !ignoreNames.contains(name)) && (ignoreName == null || !ignoreName.equals(name))) {
+				names[size++] = name;
+			}
+		}
+		Arrays.sort(names, 0, size);
+		for (int i = 0; i < size; i++) {
+			String value = values.get(names[i]);
+			update(names[i]);
+			update(value != null ? value : "null");
+		}
+		Arrays.fill(names, 0, size, null);
+	}
+
+	/**
+	 * 按UTF-8编码写入缓冲区，不成对的代理字符与{@link String#getBytes(Charset)}一样编码为'?'
+	 */
+	private void update(String s) {
+		int length = s.length();
+		for (int i = 0; i < length; i++) {
+			if (count > BUFFER_SIZE - 4) {
+				flush();
+			}
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				buffer[count++] = (byte) c;
+			} else if (c < 0x800) {
+				buffer[count++] = (byte) (0xc0 | (c >> 6));
+				buffer[count++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, s.charAt(++i));
+				buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+				buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+				buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+			} else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+				buffer[count++] = '?';
+			} else {
+				buffer[count++] = (byte) (0xe0 | (c >> 12));
+				buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				buffer[count++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+	}
+
+	private void flush() {
+		if (count > 0) {
+			if (mac != null) {
+				mac.update(buffer, 0, count);
+			} else {
+				digest.update(buffer, 0, count);
+			}
+			count = 0;
+		}
+	}
+
+	private static MessageDigest prefixDigest(String secret) {
+		MessageDigest prefix = SHA1_PREFIXES.get(secret);
+		if (prefix == null) {
+			prefix = newDigest(SHA1);
+			prefix.update(secret.getBytes(UTF8));
+			if (SHA1_PREFIXES.size() >= MAX_CACHED_SECRETS) {
+				SHA1_PREFIXES.clear();
+			}
+			SHA1_PREFIXES.put(secret, prefix);
+		}
+		try {
+			return (MessageDigest) prefix.clone();
+		} catch (CloneNotSupportedException e) {
+			MessageDigest md = newDigest(SHA1);
+			md.update(secret.getBytes(UTF8));
+			return md;
+		}
+	}
+
+	private static Mac prefixMac(String secret) {
+		Mac prefix = HMAC_PREFIXES.get(secret);
+		if (prefix == null) {
+			prefix = newMac(secret);
+			if (HMAC_PREFIXES.size() >= MAX_CACHED_SECRETS) {
+				HMAC_PREFIXES.clear();
+			}
+			HMAC_PREFIXES.put(secret, prefix);
+		}
+		try {
+			return (Mac) prefix.clone();
+		} catch (CloneNotSupportedException e) {
+			return newMac(secret);
+		}
+	}
+
+	private static MessageDigest newDigest(String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (GeneralSecurityException e) {
+			throw new RopException(e);
+		}
+	}
+
+	private static Mac newMac(String secret) {
+		try {
+			Mac mac = Mac.getInstance(HMAC_SHA256);
+			mac.init(new SecretKeySpec(secret.getBytes(UTF8), HMAC_SHA256));
+			return mac;
+		} catch (GeneralSecurityException e) {
+			throw new RopException(e);
+		}
+	}
+
+	static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+			chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+		}
+		return new String(chars);
+	}
+}
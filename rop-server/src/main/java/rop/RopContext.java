@@ -28,6 +28,21 @@ public interface RopContext {
      */
     ServiceMethodHandler getServiceMethodHandler(String methodName, String version);
 
+    /**
+     * 按注册时分配的序号获取服务处理器
+     *
+     * @param index {@link ServiceMethodHandler#getIndex()}
+     * @return
+     */
+    ServiceMethodHandler getServiceMethodHandler(int index);
+
+    /**
+     * 已注册的服务处理器数，即序号的上限
+     *
+     * @return
+     */
+    int getServiceMethodCount();
+
     /**
      * 是否是合法的服务方法
      *
@@ -219,6 +219,27 @@ public interface RopRequestContext {
 	 */
 	Map<String, String> getRequestBodyMap();
 
+	/**
+	 * 获取原始的请求体，只有Content-Type为已注册的报文格式(如application/json、application/x-msgpack)的请求才有值，其它请求返回null
+	 *
+	 * @return
+	 */
+	byte[] getRequestBody();
+
+	/**
+	 * 是否是以请求体(而非表单参数)传递业务参数的请求
+	 *
+	 * @return
+	 */
+	boolean hasRequestBody();
+
+	/**
+	 * 获取请求体对应的编解码器，请求体由该编解码器反序列化为{@link rop.request.ServiceRequest}
+	 *
+	 * @return
+	 */
+	MessageCodec getRequestBodyCodec();
+
 	/**
 	 * 获取系统head参数
 	 *
@@ -262,6 +283,20 @@ public interface RopRequestContext {
 	 */
 	Object getAppkeyUserId();
 
+	/**
+	 * 设置appKey的查询结果，同一请求中复用，避免多次查询密钥管理器
+	 *
+	 * @param appkeyResult
+	 */
+	void setAppkeyResult(AppkeyResult appkeyResult);
+
+	/**
+	 * 获取appKey的查询结果，尚未查询时返回null
+	 *
+	 * @return
+	 */
+	AppkeyResult getAppkeyResult();
+
 	/**
 	 * 设置ROP请求ID
 	 * @param requestId
@@ -21,6 +21,9 @@ import java.io.IOException;
  *
  * 2.可通过"errorResourceBaseName"指定错误资源文件的基名，默认为“i18n/rop/ropError”.
  *
+ * 3.通过&lt;rop:annotation-driven async-enable="true"/&gt;开启异步处理模式，此时需在web.xml中为该Servlet配置
+ * &lt;async-supported&gt;true&lt;/async-supported&gt;，否则仍使用同步方式处理.
+ *
  * @author 陈雄华
  * @author luopeng
  * </pre>
@@ -42,6 +45,10 @@ public class RopServlet extends HttpServlet {
      */
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        //异步模式下由服务线程完成AsyncContext，容器线程立即返回
+        if (serviceRouter.isAsyncEnable() && req.isAsyncSupported()) {
+            req.startAsync(req, resp);
+        }
         serviceRouter.service(req, resp);
     }
 
@@ -1,9 +1,11 @@
 package rop;
 
 
+import rop.annotation.CacheScopeType;
 import rop.annotation.HttpAction;
 
 import java.lang.annotation.Annotation;
+import java.util.Arrays;
 
 /**
  * 服务方法定义
@@ -78,6 +80,56 @@ public class ServiceMethodDefinition {
 	 */
 	private boolean obsoleted = false;
 
+	/**
+	 * 服务所使用的线程池名称，为null表示使用公共线程池
+	 */
+	private String pool;
+
+	/**
+	 * 最大并发数，小于等于0表示不限制
+	 */
+	private int maxConcurrency = -1;
+
+	/**
+	 * 线程池等待队列容量
+	 */
+	private int queueCapacity = -1;
+
+	/**
+	 * 响应缓存的存活时间(秒)，小于等于0表示不缓存
+	 */
+	private int cacheTtl = 0;
+
+	/**
+	 * 最多缓存的响应数
+	 */
+	private long cacheMaxEntries = -1;
+
+	/**
+	 * 缓存的响应报文总字节数上限，小于等于0表示按响应数限制
+	 */
+	private long cacheMaxWeight = -1;
+
+	/**
+	 * 参与构造缓存键的业务参数名，为空表示所有业务参数
+	 */
+	private String[] cacheKeyFields = { };
+
+	/**
+	 * 响应缓存的共享范围
+	 */
+	private CacheScopeType cacheScope = CacheScopeType.APP_KEY;
+
+	/**
+	 * GET请求成功响应的Cache-Control: max-age(秒)，小于等于0表示不输出
+	 */
+	private int maxAge = -1;
+
+	/**
+	 * 是否合并执行相同的并发请求
+	 */
+	private boolean coalesced = false;
+
 	//方法参数列表
 	private Class<?>[] methodParameterTypes = new Class<?>[] { };
 
@@ -189,5 +241,111 @@ public class ServiceMethodDefinition {
 	public void setMethodParameterAnnotaions(Annotation[][] methodParameterAnnotaions) {
 		this.methodParameterAnnotaions = methodParameterAnnotaions;
 	}
-}
 
+	public String getPool() {
+		return pool;
+	}
+
+	public void setPool(String pool) {
+		this.pool = pool;
+	}
+
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	public void setMaxConcurrency(int maxConcurrency) {
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public int getCacheTtl() {
+		return cacheTtl;
+	}
+
+	public void setCacheTtl(int cacheTtl) {
+		this.cacheTtl = cacheTtl;
+	}
+
+	public long getCacheMaxEntries() {
+		return cacheMaxEntries;
+	}
+
+	public void setCacheMaxEntries(long cacheMaxEntries) {
+		this.cacheMaxEntries = cacheMaxEntries;
+	}
+
+	public long getCacheMaxWeight() {
+		return cacheMaxWeight;
+	}
+
+	public void setCacheMaxWeight(long cacheMaxWeight) {
+		this.cacheMaxWeight = cacheMaxWeight;
+	}
+
+	public String[] getCacheKeyFields() {
+		return cacheKeyFields;
+	}
+
+	public void setCacheKeyFields(String[] cacheKeyFields) {
+		this.cacheKeyFields = cacheKeyFields;
+	}
+
+	public CacheScopeType getCacheScope() {
+		return cacheScope;
+	}
+
+	public void setCacheScope(CacheScopeType cacheScope) {
+		this.cacheScope = cacheScope;
+	}
+
+	public int getMaxAge() {
+		return maxAge;
+	}
+
+	public void setMaxAge(int maxAge) {
+		this.maxAge = maxAge;
+	}
+
+	public boolean isCoalesced() {
+		return coalesced;
+	}
+
+	public void setCoalesced(boolean coalesced) {
+		this.coalesced = coalesced;
+	}
+
+	/**
+	 * 是否只允许GET请求，这类服务方法的成功响应带有ETag，支持If-None-Match条件请求
+	 *
+	 * @return
+	 */
+	public boolean isGetOnly() {
+		return httpAction != null && httpAction.length > 0 && !Arrays.asList(httpAction).contains(HttpAction.POST);
+	}
+
+	/**
+	 * 是否缓存响应
+	 *
+	 * @return
+	 */
+	public boolean isResponseCached() {
+		return cacheTtl > 0;
+	}
+
+	/**
+	 * 是否使用独立的线程池
+	 *
+	 * @return
+	 */
+	public boolean isBulkheaded() {
+		return pool != null || maxConcurrency > 0;
+	}
+}
@@ -14,6 +14,9 @@ public class ServiceMethodHandler {
     //处理器的处理方法
     private Method handlerMethod;
 
+    //处理方法的调用器
+    private ServiceMethodInvoker serviceMethodInvoker;
+
     private ServiceMethodDefinition serviceMethodDefinition;
 
     //无需签名的字段列表
@@ -25,6 +28,9 @@ public class ServiceMethodHandler {
 	//方法参数列表
 	private Class<?>[] methodParameterTypes = new Class<?>[]{};
 
+	//注册时分配的序号，从0开始连续编号，可作为数组下标
+	private int index = -1;
+
 	public ServiceMethodHandler() {
     }
 
@@ -44,6 +50,14 @@ public class ServiceMethodHandler {
         this.handlerMethod = handlerMethod;
     }
 
+    public ServiceMethodInvoker getServiceMethodInvoker() {
+        return serviceMethodInvoker;
+    }
+
+    public void setServiceMethodInvoker(ServiceMethodInvoker serviceMethodInvoker) {
+        this.serviceMethodInvoker = serviceMethodInvoker;
+    }
+
     public void setIgnoreSignFieldNames(Set<String> ignoreSignFieldNames) {
         this.ignoreSignFieldNames = ignoreSignFieldNames;
     }
@@ -76,6 +90,14 @@ public class ServiceMethodHandler {
         return uploadFileFieldNames != null && uploadFileFieldNames.size() > 0;
     }
 
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
 	public Class<?>[] getMethodParameterTypes() {
 		return methodParameterTypes;
 	}
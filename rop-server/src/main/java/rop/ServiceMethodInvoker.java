@@ -0,0 +1,23 @@
+package rop;
+
+/**
+ * <pre>
+ *     服务方法调用器，以统一的方式调用处理器对象上的服务方法。
+ *     默认在注册服务方法时为每个服务方法生成一个直接调用的字节码实现，无法生成时退化为反射调用。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public interface ServiceMethodInvoker {
+
+    /**
+     * 调用服务方法，服务方法抛出的异常原样抛出，不作包装
+     *
+     * @param handler 处理器对象
+     * @param args    服务方法入参
+     * @return 服务方法的返回值，void方法返回null
+     * @throws Throwable
+     */
+    Object invoke(Object handler, Object[] args) throws Throwable;
+}
@@ -133,6 +133,18 @@ public interface ServiceRouter {
      */
     void setInvokeTimesController(InvokeTimesController invokeTimesController);
 
+	/**
+	 * 设置是否开启Servlet 3.0异步处理模式，开启后容器线程不再阻塞等待服务结果
+	 * @param asyncEnable
+	 */
+	void setAsyncEnable(boolean asyncEnable);
+
+	/**
+	 * 是否开启了Servlet 3.0异步处理模式
+	 * @return
+	 */
+	boolean isAsyncEnable();
+
 	/*
 	 * 设置时间戳误差容忍度
 	 * @param timestampTolerance
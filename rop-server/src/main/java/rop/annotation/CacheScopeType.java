@@ -0,0 +1,25 @@
+package rop.annotation;
+
+/**
+ * <pre>
+ * 功能说明：响应缓存的共享范围
+ *   APP_KEY：同一应用的请求共享缓存；
+ *   SESSION：同一会话的请求共享缓存；
+ *   GLOBAL：所有请求共享缓存；
+ *   DEFAULT：需要会话的服务方法为SESSION，否则为APP_KEY。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public enum CacheScopeType {
+    APP_KEY, SESSION, GLOBAL, DEFAULT;
+
+    public static CacheScopeType resolve(CacheScopeType type, boolean needInSession) {
+        if (DEFAULT == type) {
+            return needInSession ? SESSION : APP_KEY;
+        } else {
+            return type;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package rop.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * <pre>
+ *  服务方法的响应缓存配置，通过{@link ServiceMethod#cache()}声明。缓存的是序列化后的响应报文，命中时
+ *  仍进行业务参数绑定、安全检查及服务调用前的拦截，只跳过服务方法调用及响应的序列化，只缓存成功的响应。
+ *  拦截器在服务调用前产生了响应时不使用缓存；命中时响应前的拦截器得到的是{@link rop.response.CachedRopResponse}，
+ *  不能修改其中已序列化的报文，需要修改响应的服务方法不应开启缓存。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+@Target({})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ResponseCache {
+
+    /**
+     * 缓存的存活时间，单位为秒，0或负数表示不缓存
+     *
+     * @return
+     */
+    int ttl() default 0;
+
+    /**
+     * 最多缓存的响应数，{@link #maxWeight()}大于0时不起作用
+     *
+     * @return
+     */
+    long maxEntries() default 1000;
+
+    /**
+     * 缓存的响应报文的总字节数上限，0或负数表示按{@link #maxEntries()}限制
+     *
+     * @return
+     */
+    long maxWeight() default -1;
+
+    /**
+     * 参与构造缓存键的业务参数名，为空表示所有业务参数。请求体为json、msgpack等报文时始终使用整个请求体
+     *
+     * @return
+     */
+    String[] keyFields() default {};
+
+    /**
+     * 缓存的共享范围
+     *
+     * @return
+     */
+    CacheScopeType scope() default CacheScopeType.DEFAULT;
+}
@@ -95,4 +95,47 @@ public @interface ServiceMethod {
      * @return
      */
     ObsoletedType obsoleted() default  ObsoletedType.DEFAULT;
+
+    /**
+     * 服务所使用的线程池名称，对应&lt;rop:service-pool name="..."/&gt;的配置，为空表示使用公共线程池
+     *
+     * @return
+     */
+    String pool() default "";
+
+    /**
+     * 最大并发数，大于0时若{@link #pool()}未在配置中定义，则按该值创建独立的线程池
+     *
+     * @return
+     */
+    int maxConcurrency() default -1;
+
+    /**
+     * 线程池的等待队列容量，配合{@link #maxConcurrency()}使用，0表示不排队
+     *
+     * @return
+     */
+    int queueCapacity() default -1;
+
+    /**
+     * 响应缓存配置，默认不缓存
+     *
+     * @return
+     */
+    ResponseCache cache() default @ResponseCache;
+
+    /**
+     * GET请求成功响应的Cache-Control: max-age，单位为秒，0或负数表示不输出该响应头
+     *
+     * @return
+     */
+    int maxAge() default -1;
+
+    /**
+     * 是否合并执行相同的并发请求：指纹(见{@link #cache()}的scope及keyFields)相同的请求同时到达时，
+     * 只有一个请求调用服务方法，其它请求等待并共用其响应，默认不合并
+     *
+     * @return
+     */
+    boolean coalesce() default false;
 }
@@ -85,5 +85,24 @@ public @interface ServiceMethodBean {
      */
     ObsoletedType obsoleted() default  ObsoletedType.DEFAULT;
 
-}
+    /**
+     * 服务所使用的线程池名称，对应&lt;rop:service-pool name="..."/&gt;的配置，为空表示使用公共线程池
+     *
+     * @return
+     */
+    String pool() default "";
 
+    /**
+     * 最大并发数，大于0时若{@link #pool()}未在配置中定义，则按该值创建独立的线程池
+     *
+     * @return
+     */
+    int maxConcurrency() default -1;
+
+    /**
+     * 线程池的等待队列容量，配合{@link #maxConcurrency()}使用，0表示不排队
+     *
+     * @return
+     */
+    int queueCapacity() default -1;
+}
@@ -6,10 +6,12 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.beans.factory.parsing.BeanComponentDefinition;
 import org.springframework.beans.factory.parsing.CompositeComponentDefinition;
+import org.springframework.beans.factory.support.ManagedList;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.beans.factory.xml.BeanDefinitionParser;
 import org.springframework.beans.factory.xml.ParserContext;
 import org.springframework.util.StringUtils;
+import org.springframework.util.xml.DomUtils;
 import org.w3c.dom.Element;
 import rop.impl.AnnotationServletServiceRouterFactoryBean;
 import rop.impl.DefaultServiceAccessController;
@@ -18,6 +20,8 @@ import rop.security.DefaultSecurityManager;
 import rop.security.FileBaseAppSecretManager;
 import rop.session.DefaultSessionManager;
 
+import java.util.List;
+
 /**
  * <pre>
  *     为注解&lt;rop:annotation/&gt;提供解析功能
@@ -74,12 +78,36 @@ public class AnnotationDrivenBeanDefinitionParser implements BeanDefinitionParse
         //设置TaskExecutor
         setTaskExecutor(element, parserContext, source, serviceRouterDef);
 
+        //设置服务线程池(舱壁)
+        setServicePools(element, source, serviceRouterDef);
+
+        //设置并发准入控制器
+        setConcurrencyLimiter(element, serviceRouterDef);
+
 		//设置eventExecutor
 		setEventExecutor(element,parserContext,source,serviceRouterDef);
 
         //设置signEnable
         setSignEnable(element, serviceRouterDef);
 
+        //设置异步处理模式
+        setAsyncEnable(element, serviceRouterDef);
+
+        //设置响应压缩
+        setCompression(element, serviceRouterDef);
+
+        //设置启动预热
+        setWarmUp(element, serviceRouterDef);
+
+        //设置批量调用
+        setBatch(element, serviceRouterDef);
+
+        //设置重放请求检查
+        setReplayProtection(element, serviceRouterDef);
+
+        //设置密钥查询结果的缓存时间
+        setAppSecretCache(element, serviceRouterDef);
+
         //设置国际化错误文件
         setExtErrorBaseNames(element, serviceRouterDef);
 
@@ -139,6 +167,54 @@ public class AnnotationDrivenBeanDefinitionParser implements BeanDefinitionParse
             }
             serviceRouterDef.getPropertyValues().addPropertyValue("uploadFileTypes", uploadFileTypes);
         }
+
+        String uploadStreamingEnable = element.getAttribute("upload-streaming-enable");
+        if (StringUtils.hasText(uploadStreamingEnable)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置流式解析上传数据开关为{}",uploadStreamingEnable);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("uploadStreamingEnable", uploadStreamingEnable);
+        }
+
+        String uploadTempDir = element.getAttribute("upload-temp-dir");
+        if (StringUtils.hasText(uploadTempDir)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置上传文件的临时目录为{}",uploadTempDir);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("uploadTempDir", uploadTempDir);
+        }
+
+        String uploadRequestMaxBytes = element.getAttribute("upload-request-max-bytes");
+        if (StringUtils.hasText(uploadRequestMaxBytes)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置每个请求上传数据的最大字节数为{}",uploadRequestMaxBytes);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("uploadRequestMaxBytes", uploadRequestMaxBytes);
+        }
+
+        String uploadTotalSpoolBytes = element.getAttribute("upload-total-spool-bytes");
+        if (StringUtils.hasText(uploadTotalSpoolBytes)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置上传文件临时目录的最大字节数为{}",uploadTotalSpoolBytes);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("uploadTotalSpoolBytes", uploadTotalSpoolBytes);
+        }
+
+        String requestBodyMaxBytes = element.getAttribute("request-body-max-bytes");
+        if (StringUtils.hasText(requestBodyMaxBytes)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置请求体的最大字节数为{}",requestBodyMaxBytes);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("requestBodyMaxBytes", requestBodyMaxBytes);
+        }
+
+        if (element.hasAttribute("upload-stream-handler")) {
+            RuntimeBeanReference uploadStreamHandlerRef = new RuntimeBeanReference(element.getAttribute("upload-stream-handler"));
+            serviceRouterDef.getPropertyValues().add("uploadStreamHandler", uploadStreamHandlerRef);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop装配一个上传文件数据流处理器:" + uploadStreamHandlerRef.getBeanName());
+            }
+        }
     }
 
     private void setTaskExecutor(Element element, ParserContext parserContext, Object source, RootBeanDefinition serviceRouterDef) {
@@ -201,6 +277,41 @@ public class AnnotationDrivenBeanDefinitionParser implements BeanDefinitionParse
 //        }
     }
 
+    private void setServicePools(Element element, Object source, RootBeanDefinition serviceRouterDef) {
+        List<Element> poolElements = DomUtils.getChildElementsByTagName(element, "service-pool");
+        if (poolElements.isEmpty()) {
+            return;
+        }
+        ManagedList<BeanDefinition> poolDefinitions = new ManagedList<BeanDefinition>(poolElements.size());
+        poolDefinitions.setSource(source);
+        for (Element poolElement : poolElements) {
+            RootBeanDefinition poolDef = new RootBeanDefinition(ServicePoolDefinition.class);
+            poolDef.setSource(source);
+            poolDef.getPropertyValues().addPropertyValue("name", poolElement.getAttribute("name"));
+            poolDef.getPropertyValues().addPropertyValue("maxConcurrency", poolElement.getAttribute("max-concurrency"));
+            String queueCapacity = poolElement.getAttribute("queue-capacity");
+            if (StringUtils.hasText(queueCapacity)) {
+                poolDef.getPropertyValues().addPropertyValue("queueCapacity", queueCapacity);
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置服务线程池{}：最大并发数{}，队列容量{}", new Object[]{poolElement.getAttribute("name"),
+                        poolElement.getAttribute("max-concurrency"), queueCapacity});
+            }
+            poolDefinitions.add(poolDef);
+        }
+        serviceRouterDef.getPropertyValues().add("servicePoolDefinitions", poolDefinitions);
+    }
+
+    private void setConcurrencyLimiter(Element element, RootBeanDefinition serviceRouterDef) {
+        if (element.hasAttribute("concurrency-limiter")) {
+            RuntimeBeanReference concurrencyLimiterRef = new RuntimeBeanReference(element.getAttribute("concurrency-limiter"));
+            serviceRouterDef.getPropertyValues().add("concurrencyLimiter", concurrencyLimiterRef);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop装配一个并发准入控制器:" + concurrencyLimiterRef.getBeanName());
+            }
+        }
+    }
+
     private void setSignEnable(Element element, RootBeanDefinition serviceRouterDef) {
         String signEnable = element.getAttribute("sign-enable");
         if (StringUtils.hasText(signEnable)) {
@@ -211,6 +322,122 @@ public class AnnotationDrivenBeanDefinitionParser implements BeanDefinitionParse
         }
     }
 
+    private void setAsyncEnable(Element element, RootBeanDefinition serviceRouterDef) {
+        String asyncEnable = element.getAttribute("async-enable");
+        if (StringUtils.hasText(asyncEnable)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置异步处理模式开关为{}",asyncEnable);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("asyncEnable", asyncEnable);
+        }
+    }
+
+    private void setCompression(Element element, RootBeanDefinition serviceRouterDef) {
+        String compressionEnable = element.getAttribute("compression-enable");
+        if (StringUtils.hasText(compressionEnable)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置响应压缩开关为{}",compressionEnable);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("compressionEnable", compressionEnable);
+        }
+
+        String compressionMinSize = element.getAttribute("compression-min-size");
+        if (StringUtils.hasText(compressionMinSize)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置响应压缩阈值为{}字节",compressionMinSize);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("compressionMinSize", compressionMinSize);
+        }
+
+        String compressionContentTypes = element.getAttribute("compression-content-types");
+        if (StringUtils.hasText(compressionContentTypes)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置需要压缩的响应类型为{}",compressionContentTypes);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("compressionContentTypes", compressionContentTypes);
+        }
+    }
+
+    private void setWarmUp(Element element, RootBeanDefinition serviceRouterDef) {
+        String warmUpEnable = element.getAttribute("warm-up-enable");
+        if (StringUtils.hasText(warmUpEnable)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置启动预热开关为{}",warmUpEnable);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("warmUpEnable", warmUpEnable);
+        }
+
+        String warmUpInvocations = element.getAttribute("warm-up-invocations");
+        if (StringUtils.hasText(warmUpInvocations)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置每个服务方法的预热模拟调用次数为{}",warmUpInvocations);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("warmUpInvocations", warmUpInvocations);
+        }
+    }
+
+    private void setBatch(Element element, RootBeanDefinition serviceRouterDef) {
+        String batchEnable = element.getAttribute("batch-enable");
+        if (StringUtils.hasText(batchEnable)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置批量调用开关为{}",batchEnable);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("batchEnable", batchEnable);
+        }
+
+        String batchMaxCalls = element.getAttribute("batch-max-calls");
+        if (StringUtils.hasText(batchMaxCalls)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置一次批量调用最多包含的服务调用数为{}",batchMaxCalls);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("batchMaxCalls", batchMaxCalls);
+        }
+
+        if (element.hasAttribute("batch-executor")) {
+            RuntimeBeanReference batchExecutorRef = new RuntimeBeanReference(element.getAttribute("batch-executor"));
+            serviceRouterDef.getPropertyValues().add("batchExecutor", batchExecutorRef);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop装配批量调用的线程池:" + batchExecutorRef.getBeanName());
+            }
+        }
+    }
+
+    private void setReplayProtection(Element element, RootBeanDefinition serviceRouterDef) {
+        String replayProtectionEnable = element.getAttribute("replay-protection-enable");
+        if (StringUtils.hasText(replayProtectionEnable)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置重放请求检查开关为{}",replayProtectionEnable);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("replayProtectionEnable", replayProtectionEnable);
+        }
+
+        String replayExpectedRequests = element.getAttribute("replay-expected-requests");
+        if (StringUtils.hasText(replayExpectedRequests)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置每个时间戳容忍时间内预计的请求数为{}",replayExpectedRequests);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("replayExpectedRequests", replayExpectedRequests);
+        }
+
+        if (element.hasAttribute("replay-guard")) {
+            RuntimeBeanReference replayGuardRef = new RuntimeBeanReference(element.getAttribute("replay-guard"));
+            serviceRouterDef.getPropertyValues().add("replayGuard", replayGuardRef);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop装配一个重放请求检查器:" + replayGuardRef.getBeanName());
+            }
+        }
+    }
+
+    private void setAppSecretCache(Element element, RootBeanDefinition serviceRouterDef) {
+        String appSecretCacheSeconds = element.getAttribute("app-secret-cache-seconds");
+        if (StringUtils.hasText(appSecretCacheSeconds)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rop配置密钥查询结果的缓存时间为{}秒",appSecretCacheSeconds);
+            }
+            serviceRouterDef.getPropertyValues().addPropertyValue("appSecretCacheSeconds", appSecretCacheSeconds);
+        }
+    }
+
     private void setServiceTimeout(Element element, RootBeanDefinition serviceRouterDef) {
         String serviceTimeoutSeconds = element.getAttribute("service-timeout-seconds");
         if (StringUtils.hasText(serviceTimeoutSeconds)) {
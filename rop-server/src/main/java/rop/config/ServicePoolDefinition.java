@@ -0,0 +1,62 @@
+package rop.config;
+
+/**
+ * <pre>
+ *     服务线程池(舱壁)定义，对应&lt;rop:annotation-driven&gt;下的&lt;rop:service-pool/&gt;配置。
+ *     服务方法通过{@link rop.annotation.ServiceMethod#pool()}指定所使用的线程池，各线程池相互隔离，
+ *     某个慢服务占满自己的线程池时不会影响其它服务。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class ServicePoolDefinition {
+
+	/**
+	 * 线程池名称
+	 */
+	private String name;
+
+	/**
+	 * 最大并发数，即线程池的最大线程数
+	 */
+	private int maxConcurrency;
+
+	/**
+	 * 等待队列容量，为0表示不排队，线程全忙时直接拒绝
+	 */
+	private int queueCapacity = 0;
+
+	public ServicePoolDefinition() {
+	}
+
+	public ServicePoolDefinition(String name, int maxConcurrency, int queueCapacity) {
+		this.name = name;
+		this.maxConcurrency = maxConcurrency;
+		this.queueCapacity = queueCapacity;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	public void setMaxConcurrency(int maxConcurrency) {
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+}
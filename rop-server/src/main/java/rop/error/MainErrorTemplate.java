@@ -0,0 +1,118 @@
+package rop.error;
+
+import rop.MessageCodec;
+import rop.RopException;
+import rop.response.RopResponse;
+import rop.security.MainError;
+import rop.security.MainErrorType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <pre>
+ *     已解析好国际化信息的主错误模板，每个(错误类型，Locale)只解析一次。
+ *     模板同时缓存了只包含该主错误(无子错误)的错误响应按各报文格式序列化后的字节，
+ *     签名错误、缺少appKey、超过调用频率等高频错误可直接一次写出，无需重新构建对象及序列化。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class MainErrorTemplate {
+
+	private final MainErrorType mainErrorType;
+
+	private final Locale locale;
+
+	private final String code;
+
+	private final String message;
+
+	private final String solution;
+
+	//键为报文格式，值为序列化后的错误响应
+	private final ConcurrentMap<String, byte[]> renderedResponses = new ConcurrentHashMap<String, byte[]>(4);
+
+	MainErrorTemplate(MainErrorType mainErrorType, Locale locale, String message, String solution) {
+		this.mainErrorType = mainErrorType;
+		this.locale = locale;
+		this.code = mainErrorType.value();
+		this.message = message;
+		this.solution = solution;
+	}
+
+	/**
+	 * 创建一个新的主错误，调用者可以自由地添加子错误
+	 *
+	 * @return
+	 */
+	public MainError newError() {
+		return new TemplateMainError(this, code, message, solution);
+	}
+
+	/**
+	 * 主错误是否仍与模板一致(未添加子错误，也未修改代码、信息及解决方案)，一致时才能使用预先序列化的响应
+	 *
+	 * @param mainError
+	 * @return
+	 */
+	public boolean isUnmodified(MainError mainError) {
+		return code.equals(mainError.getCode()) && message.equals(mainError.getMessage())
+				&& (solution == null ? mainError.getSolution() == null : solution.equals(mainError.getSolution()))
+				&& (mainError.getSubErrors() == null || mainError.getSubErrors().isEmpty());
+	}
+
+	/**
+	 * 获取只包含本主错误的错误响应按指定编解码器序列化后的字节，第一次获取时序列化并缓存
+	 *
+	 * @param codec
+	 * @return
+	 */
+	public byte[] getRenderedResponse(MessageCodec codec) {
+		byte[] rendered = renderedResponses.get(codec.getFormat());
+		if (rendered == null) {
+			RopResponse response = new RopResponse();
+			response.setSuccess(false);
+			response.setError(new MainError(code, message, solution));
+			ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+			try {
+				codec.getMarshaller().marshaller(response, out);
+			} catch (IOException e) {
+				throw new RopException("序列化错误响应出错", e);
+			}
+			rendered = out.toByteArray();
+			renderedResponses.putIfAbsent(codec.getFormat(), rendered);
+		}
+		return rendered;
+	}
+
+	public MainErrorType getMainErrorType() {
+		return mainErrorType;
+	}
+
+	public Locale getLocale() {
+		return locale;
+	}
+
+	/**
+	 * 由模板创建的主错误，记录其来源模板
+	 */
+	public static class TemplateMainError extends MainError {
+
+		private final transient MainErrorTemplate template;
+
+		private TemplateMainError(MainErrorTemplate template, String code, String message, String solution) {
+			super(code, message, solution);
+			this.template = template;
+		}
+
+		//不使用getter命名，避免被当作属性序列化
+		public MainErrorTemplate template() {
+			return template;
+		}
+	}
+}
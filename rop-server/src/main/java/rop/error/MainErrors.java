@@ -9,6 +9,8 @@ import rop.security.MainError;
 import rop.security.MainErrorType;
 
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <pre>
@@ -28,14 +30,39 @@ public class MainErrors {
     // 错误信息的国际化信息
     private static MessageSourceAccessor errorMessageSourceAccessor;
 
+    // 已解析的主错误模板，键为(错误类型，Locale)
+    private static final ConcurrentMap<TemplateKey, MainErrorTemplate> templates =
+            new ConcurrentHashMap<TemplateKey, MainErrorTemplate>();
+
     public static MainError getError(MainErrorType mainErrorType, Locale locale) {
-        String errorMessage = getErrorMessage(ERROR_CODE_PREFIX + mainErrorType.value(), locale);
-        String errorSolution = getErrorSolution(ERROR_CODE_PREFIX + mainErrorType.value() + ERROR_SOLUTION_SUBFIX, locale);
-        return new MainError(mainErrorType.value(), errorMessage, errorSolution);
+        return getTemplate(mainErrorType, locale).newError();
+    }
+
+    /**
+     * 获取主错误模板，错误信息及解决方案在每个(错误类型，Locale)第一次使用时解析
+     *
+     * @param mainErrorType
+     * @param locale
+     * @return
+     */
+    public static MainErrorTemplate getTemplate(MainErrorType mainErrorType, Locale locale) {
+        TemplateKey key = new TemplateKey(mainErrorType, locale);
+        MainErrorTemplate template = templates.get(key);
+        if (template == null) {
+            String errorMessage = getErrorMessage(ERROR_CODE_PREFIX + mainErrorType.value(), locale);
+            String errorSolution = getErrorSolution(ERROR_CODE_PREFIX + mainErrorType.value() + ERROR_SOLUTION_SUBFIX, locale);
+            template = new MainErrorTemplate(mainErrorType, locale, errorMessage, errorSolution);
+            MainErrorTemplate existTemplate = templates.putIfAbsent(key, template);
+            if (existTemplate != null) {
+                template = existTemplate;
+            }
+        }
+        return template;
     }
 
     public static void setErrorMessageSourceAccessor(MessageSourceAccessor errorMessageSourceAccessor) {
         MainErrors.errorMessageSourceAccessor = errorMessageSourceAccessor;
+        templates.clear();
     }
 
     private static String getErrorMessage(String code, Locale locale) {
@@ -58,6 +85,33 @@ public class MainErrors {
         }
     }
 
+    private static class TemplateKey {
 
-}
+        private final MainErrorType mainErrorType;
+
+        private final Locale locale;
 
+        private TemplateKey(MainErrorType mainErrorType, Locale locale) {
+            this.mainErrorType = mainErrorType;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey that = (TemplateKey) o;
+            return mainErrorType == that.mainErrorType
+                    && (locale == null ? that.locale == null : locale.equals(that.locale));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mainErrorType.hashCode() + (locale == null ? 0 : locale.hashCode());
+        }
+    }
+}
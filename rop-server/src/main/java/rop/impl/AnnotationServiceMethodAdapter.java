@@ -5,10 +5,9 @@ import org.slf4j.LoggerFactory;
 import rop.RopRequestContext;
 import rop.ServiceMethodAdapter;
 import rop.ServiceMethodHandler;
+import rop.ServiceMethodInvoker;
 import rop.response.RopResponse;
 
-import java.lang.reflect.InvocationTargetException;
-
 /**
  * <pre>
  *     通过该服务方法适配器调用目标的服务方法
@@ -29,21 +28,22 @@ public class AnnotationServiceMethodAdapter implements ServiceMethodAdapter {
 	 * @return
 	 */
 	public RopResponse invokeServiceMethod(RopRequestContext ropRequestContext) {
+		ServiceMethodHandler serviceMethodHandler = ropRequestContext.getServiceMethodHandler();
+		if (logger.isDebugEnabled()) {
+			logger.debug("执行" + serviceMethodHandler.getHandler().getClass() +
+						 "." + serviceMethodHandler.getHandlerMethod().getName());
+		}
+		ServiceMethodInvoker invoker = serviceMethodHandler.getServiceMethodInvoker();
+		if (invoker == null) {//未经RopContext注册的服务方法，使用反射调用
+			invoker = new ReflectiveServiceMethodInvoker(serviceMethodHandler.getHandlerMethod());
+			serviceMethodHandler.setServiceMethodInvoker(invoker);
+		}
 		try {
-			ServiceMethodHandler serviceMethodHandler = ropRequestContext.getServiceMethodHandler();
-			if (logger.isDebugEnabled()) {
-				logger.debug("执行" + serviceMethodHandler.getHandler().getClass() +
-							 "." + serviceMethodHandler.getHandlerMethod().getName());
-			}
-			return (RopResponse) serviceMethodHandler.getHandlerMethod().invoke(
-					serviceMethodHandler.getHandler(), ropRequestContext.getServiceMethodParameters());
+			return (RopResponse) invoker.invoke(serviceMethodHandler.getHandler(),
+												ropRequestContext.getServiceMethodParameters());
 		} catch (Throwable e) {
-			if (e instanceof InvocationTargetException) {
-				InvocationTargetException inve = (InvocationTargetException) e;
-				throw new RuntimeException(inve.getTargetException());
-			} else {
-				throw new RuntimeException(e);
-			}
+			//与反射调用时一致，服务方法抛出的异常统一包装一层，由ServiceUnavailableErrorResponse取出原始异常
+			throw new RuntimeException(e);
 		}
 	}
 
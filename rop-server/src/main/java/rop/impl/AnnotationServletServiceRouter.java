@@ -12,11 +12,16 @@ import org.springframework.format.support.FormattingConversionServiceFactoryBean
 import org.springframework.util.Assert;
 import org.springframework.validation.SmartValidator;
 import rop.*;
+import rop.config.ServicePoolDefinition;
+import rop.annotation.HttpAction;
 import rop.converter.ConverterContainer;
+import rop.error.MainErrorTemplate;
 import rop.error.MainErrors;
 import rop.error.SubErrors;
 import rop.event.*;
-import rop.json.FastjsonRopMarshaller;
+import rop.limit.ConcurrencyLimiter;
+import rop.request.BatchCall;
+import rop.request.BatchRequest;
 import rop.request.SystemParameterNames;
 import rop.request.UploadFileConverter;
 import rop.response.*;
@@ -25,14 +30,23 @@ import rop.security.SecurityManager;
 import rop.session.DefaultSessionManager;
 import rop.session.SessionBindInterceptor;
 import rop.session.SessionManager;
+import rop.thirdparty.com.google.common.hash.Hashing;
 import rop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import rop.utils.RopUtils;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * <pre>
@@ -48,6 +62,12 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 	public static final String APPLICATION_JSON = "application/json";
 	public static final String ACCESS_CONTROL_ALLOW_ORIGIN = "Access-Control-Allow-Origin";
 	public static final String ACCESS_CONTROL_ALLOW_METHODS = "Access-Control-Allow-Methods";
+	public static final String ACCEPT_ENCODING = "Accept-Encoding";
+	public static final String CONTENT_ENCODING = "Content-Encoding";
+	public static final String VARY = "Vary";
+	public static final String ETAG = "ETag";
+	public static final String IF_NONE_MATCH = "If-None-Match";
+	public static final String CACHE_CONTROL = "Cache-Control";
 	public static final String DEFAULT_EXT_ERROR_BASE_NAME = "i18n/rop/ropError";
 
 	protected final Logger logger = LoggerFactory.getLogger(getClass());
@@ -56,7 +76,7 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 
 	private ServiceMethodAdapter serviceMethodAdapter = new AnnotationServiceMethodAdapter();
 
-	private RopMarshaller ropMarshaller = new FastjsonRopMarshaller();
+	private MessageCodecRegistry messageCodecRegistry = MessageCodecRegistry.createDefault();
 
 	private RequestContextBuilder requestContextBuilder;
 
@@ -74,6 +94,16 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 	 */
 	private ThreadPoolExecutor eventPoolExecutor;
 
+	/**
+	 * 配置的服务线程池(舱壁)定义
+	 */
+	private List<ServicePoolDefinition> servicePoolDefinitions = new ArrayList<ServicePoolDefinition>();
+
+	/**
+	 * 服务线程池(舱壁)，键为线程池名称，服务方法指定了线程池时使用，与主线程池相互隔离
+	 */
+	private final Map<String, ThreadPoolExecutor> servicePoolExecutors = new HashMap<String, ThreadPoolExecutor>();
+
 	private RopContext ropContext;
 
 	private RopEventMulticaster ropEventMulticaster;
@@ -102,11 +132,94 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 	//时间戳误差容忍
 	private long timestampTolerance;
 
+	//是否开启Servlet 3.0异步处理模式
+	private boolean asyncEnable = false;
+
+	//并发准入控制器，为null表示不进行准入控制
+	private ConcurrencyLimiter concurrencyLimiter;
+
+	//是否开启响应压缩
+	private boolean compressionEnable = false;
+
+	//响应内容达到该字节数才进行压缩
+	private int compressionMinSize = 2048;
+
+	//需要压缩的响应内容类型
+	private Set<String> compressionContentTypes = new HashSet<String>(Arrays.asList(APPLICATION_JSON));
+
+	//启动时是否预热服务方法
+	private boolean warmUpEnable = true;
+
+	//预热时每个服务方法的模拟调用次数
+	private int warmUpInvocations = 0;
+
+	//服务方法的响应缓存
+	private ServiceResponseCache serviceResponseCache;
+
+	//相同并发请求的合并执行器
+	private final ServiceCallCoalescer serviceCallCoalescer = new ServiceCallCoalescer();
+
+	//是否开启批量调用服务(rop.batch)
+	private boolean batchEnable = true;
+
+	//一次批量调用最多包含的服务调用数
+	private int batchMaxCalls = 20;
+
+	//批量调用中未指定线程池的服务调用的执行器，批量调用本身占用公共线程池的线程等待服务调用完成，
+	//服务调用不能再提交到公共线程池，否则公共线程池只有一个线程或已满时所有服务调用都会超时
+	private ThreadPoolExecutor batchExecutor;
+
+	//是否开启重放请求检查，需要设置时间戳容忍时间
+	private boolean replayProtectionEnable = false;
+
+	//每个时间戳容忍时间内预计的请求数，用于确定默认重放请求检查器的大小
+	private int replayExpectedRequests = 100000;
+
+	//默认重放请求检查器的误判率
+	private double replayFalsePositiveRate = 0.000001;
+
+	//重放请求检查器，未设置且开启重放请求检查时使用BloomFilterReplayGuard
+	private ReplayGuard replayGuard;
+
+	//是否流式解析上传数据，边读取边检查大小。文件部分不读入请求参数，不参与签名验证
+	private boolean uploadStreamingEnable = false;
+
+	//流式解析时文件部分的临时目录，默认为java.io.tmpdir
+	private String uploadTempDir;
+
+	//流式解析时文件部分保存在内存中的最大字节数
+	private int uploadMemoryThreshold = 10240;
+
+	//流式解析时每个请求上传数据的最大字节数，0表示不限制
+	private long uploadRequestMaxBytes;
+
+	//流式解析时所有请求同时写入临时目录的最大字节数，0表示不限制
+	private long uploadTotalSpoolBytes;
+
+	//流式解析时处理文件部分的数据流，设置后文件部分不再写入临时目录
+	private UploadStreamHandler uploadStreamHandler;
+
+	//JSON、MessagePack等格式的请求体的最大字节数，0表示不限制
+	private long requestBodyMaxBytes = 10485760;
+
+	//流式解析时检查上传文件的大小
+	private FileUploadController fileUploadController;
+
 	/**
 	 * ROP请求ID，在开始请求的时候就进行设置，贯穿整个请求周期
 	 */
 	public static final String ROP_REQUEST_ID = "_ROP_REQUEST_ID_";
 
+	/**
+	 * 响应缓存未命中时，服务方法执行完成后在请求属性中设置缓存位置，由响应输出环节写入序列化后的报文
+	 */
+	private static final String ROP_RESPONSE_CACHE_SLOT = "_ROP_RESPONSE_CACHE_SLOT_";
+
+	/**
+	 * 请求的服务方法处理器，开始处理请求时设置，响应输出环节不再重新查找
+	 */
+	private static final String ROP_SERVICE_METHOD_HANDLER = "_ROP_SERVICE_METHOD_HANDLER_";
+
 	@Override
 	public void service(Object request, Object response) {
 		HttpServletRequest servletRequest = (HttpServletRequest) request;
@@ -120,18 +233,29 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		if (logger.isDebugEnabled()) {
 			logger.debug("调用服务方法：" + method + "(" + version + ")");
 		}
-		int serviceMethodTimeout = getServiceMethodTimeout(method, version);
+		ServiceMethodHandler serviceMethodHandler = ropContext.getServiceMethodHandler(method, version);
+		if (serviceMethodHandler != null) {
+			servletRequest.setAttribute(ROP_SERVICE_METHOD_HANDLER, serviceMethodHandler);
+		}
+		int serviceMethodTimeout = getServiceMethodTimeout(serviceMethodHandler);
+		ThreadPoolExecutor serviceExecutor = getServiceExecutor(serviceMethodHandler);
 		long beginTime = System.currentTimeMillis();
 		String jsonpCallback = ServletRequestContextBuilder.getJsonpCallback(servletRequest);
 
+		//RopServlet已开启异步上下文，容器线程直接返回，由服务线程完成响应
+		if (asyncEnable && servletRequest.isAsyncStarted()) {
+			serviceAsync(servletRequest, serviceExecutor, method, version, serviceMethodTimeout, beginTime, jsonpCallback);
+			return;
+		}
+
 		//使用异常方式调用服务方法
 		try {
 
 
 		    //这里去掉了源代码中的"线程摆渡"代码，这里采用alibaba开源的multithread.context实现更为高雅 :)
 
-			ServiceRunnable runnable = new ServiceRunnable(servletRequest);
-			Future<RopResponse> future = this.threadPoolExecutor.submit(runnable);
+			ServiceRunnable runnable = new ServiceRunnable(servletRequest, acquireConcurrency());
+			Future<RopResponse> future = submit(serviceExecutor, runnable);
 			RopResponse ropResponse = future.get(serviceMethodTimeout, TimeUnit.SECONDS);
 
 			writeResponse(servletRequest, servletResponse, ropResponse, jsonpCallback);
@@ -166,6 +290,66 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		}
 	}
 
+	/**
+	 * 异步处理服务请求：容器线程不再阻塞等待服务结果，由服务线程写出响应并结束{@link AsyncContext}，
+	 * 超时及容器错误通过{@link AsyncListener}回调处理。
+	 */
+	private void serviceAsync(HttpServletRequest servletRequest, ThreadPoolExecutor serviceExecutor, String method, String version,
+							  int serviceMethodTimeout, long beginTime, String jsonpCallback) {
+		AsyncContext asyncContext = servletRequest.getAsyncContext();
+		//0表示容器不进行超时控制
+		asyncContext.setTimeout(serviceMethodTimeout >= Integer.MAX_VALUE ? 0 : serviceMethodTimeout * 1000L);
+
+		AsyncServiceRunnable runnable = null;
+		try {
+			runnable = new AsyncServiceRunnable(asyncContext, new ServiceRunnable(servletRequest, acquireConcurrency()),
+					servletRequest, method, version, serviceMethodTimeout, beginTime, jsonpCallback);
+			asyncContext.addListener(runnable);
+			try {
+				serviceExecutor.execute(runnable);
+			} catch (RejectedExecutionException ree) {
+				runnable.serviceRunnable.releaseConcurrency(true);
+				throw ree;
+			}
+		} catch (RejectedExecutionException ree) {//超过最大的服务平台的最大资源限制，无法提供服务
+			if (logger.isInfoEnabled()) {
+				logger.info("调用服务方法:" + method + "(" + version + ")，超过最大资源限制，无法提供服务。");
+			}
+			RejectedServiceResponse ropResponse = new RejectedServiceResponse(ServletRequestContextBuilder.getLocale(servletRequest));
+			if (runnable != null) {
+				runnable.completeWithError(ropResponse);
+			} else {
+				writeResponse(servletRequest, (HttpServletResponse) asyncContext.getResponse(), ropResponse, jsonpCallback);
+				fireErrorEvent(servletRequest, beginTime, ropResponse);
+				asyncContext.complete();
+			}
+		}
+	}
+
+	/**
+	 * 申请并发许可，超过并发上限时抛出{@link RejectedExecutionException}，按拒绝服务处理
+	 *
+	 * @return 是否持有许可
+	 */
+	private boolean acquireConcurrency() {
+		if (concurrencyLimiter == null) {
+			return false;
+		}
+		if (!concurrencyLimiter.tryAcquire()) {
+			throw new RejectedExecutionException("超过并发上限:" + concurrencyLimiter.getLimit());
+		}
+		return true;
+	}
+
+	private Future<RopResponse> submit(ThreadPoolExecutor serviceExecutor, ServiceRunnable runnable) {
+		try {
+			return serviceExecutor.submit(runnable);
+		} catch (RejectedExecutionException ree) {
+			runnable.releaseConcurrency(true);
+			throw ree;
+		}
+	}
+
 	private void buildRopRequestId(HttpServletRequest servletRequest) {
 		servletRequest.setAttribute(ROP_REQUEST_ID,UUID.randomUUID().toString());
 	}
@@ -196,7 +380,14 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		registerConverters();
 
 		//实例化ServletRequestContextBuilder
-		this.requestContextBuilder = new ServletRequestContextBuilder(this.converterContainer, this.sessionManager);
+		ServletRequestContextBuilder servletRequestContextBuilder =
+				new ServletRequestContextBuilder(this.converterContainer, this.sessionManager);
+		servletRequestContextBuilder.setMessageCodecRegistry(this.messageCodecRegistry);
+		servletRequestContextBuilder.setRequestBodyMaxBytes(this.requestBodyMaxBytes);
+		if (this.uploadStreamingEnable) {
+			servletRequestContextBuilder.setMultipartParser(buildMultipartParser());
+		}
+		this.requestContextBuilder = servletRequestContextBuilder;
 		try {
 			SmartValidator validator = applicationContext.getBean(SmartValidator.class);
 			this.requestContextBuilder.setValidator(validator);
@@ -209,6 +400,9 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 			this.securityManager = new DefaultSecurityManager();
 		}
 
+		//设置重放请求检查器
+		initReplayGuard();
+
 		//设置异步执行器
 		if (this.threadPoolExecutor == null) {
 			ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("roptask-%d").build();
@@ -221,9 +415,27 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 			this.eventPoolExecutor = threadPoolExecutor;
 		}
 
+		//批量调用的执行器，线程数达到上限时由批量调用的线程自己执行服务调用
+		if (this.batchEnable && this.batchExecutor == null) {
+			ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("ropbatch-%d").setDaemon(true).build();
+			this.batchExecutor = new ThreadPoolExecutor(0, 200, 60, TimeUnit.SECONDS,
+					new SynchronousQueue<Runnable>(), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+
 		//创建Rop上下文
 		this.ropContext = buildRopContext();
 
+		//为服务方法编译请求检查流水线
+		if (this.securityManager instanceof DefaultSecurityManager) {
+			((DefaultSecurityManager) this.securityManager).compileCheckStages(this.ropContext);
+		}
+
+		//创建服务线程池(舱壁)
+		initServicePools();
+
+		//创建服务方法的响应缓存
+		this.serviceResponseCache = new ServiceResponseCache(this.ropContext, this.messageCodecRegistry);
+
 		//初始化事件发布器
 		this.ropEventMulticaster = buildRopEventMulticaster();
 
@@ -233,6 +445,12 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		//初始化信息源
 		initMessageSource();
 
+		//预热服务方法用到的序列化器、反序列化器及绑定计划
+		if (warmUpEnable) {
+			new ServiceMethodWarmer(this.ropContext, servletRequestContextBuilder, this.messageCodecRegistry)
+					.warmUp(warmUpInvocations);
+		}
+
 		//产生Rop框架初始化事件
 		fireRopStartedEvent();
 
@@ -241,16 +459,137 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		}
 	}
 
+	private StreamingMultipartParser buildMultipartParser() {
+		StreamingMultipartParser multipartParser = new StreamingMultipartParser();
+		if (this.uploadTempDir != null) {
+			multipartParser.setTempDirectory(new File(this.uploadTempDir));
+		}
+		multipartParser.setMemoryThreshold(this.uploadMemoryThreshold);
+		multipartParser.setRequestMaxBytes(this.uploadRequestMaxBytes);
+		multipartParser.setTotalSpoolBytes(this.uploadTotalSpoolBytes);
+		multipartParser.setFileUploadController(this.fileUploadController);
+		multipartParser.setUploadStreamHandler(this.uploadStreamHandler);
+		if (logger.isInfoEnabled()) {
+			logger.info("流式解析上传数据，临时目录{}，每个请求最多{}字节，临时目录最多{}字节",
+					new Object[]{multipartParser.getTempDirectory(), this.uploadRequestMaxBytes, this.uploadTotalSpoolBytes});
+		}
+		return multipartParser;
+	}
+
+	private void initReplayGuard() {
+		if (this.replayGuard == null && this.replayProtectionEnable) {
+			if (this.timestampTolerance <= 0) {
+				logger.warn("未设置时间戳容忍时间，无法开启重放请求检查");
+			} else {
+				this.replayGuard = new BloomFilterReplayGuard(this.timestampTolerance, this.replayExpectedRequests,
+						this.replayFalsePositiveRate);
+				if (logger.isInfoEnabled()) {
+					logger.info("开启重放请求检查，每个时间段{}秒，预计请求数{}", this.timestampTolerance, this.replayExpectedRequests);
+				}
+			}
+		}
+		if (this.replayGuard != null) {
+			if (this.securityManager instanceof DefaultSecurityManager) {
+				((DefaultSecurityManager) this.securityManager).setReplayGuard(this.replayGuard);
+			} else {
+				logger.warn("安全管理器{}不是DefaultSecurityManager，重放请求检查器未生效", this.securityManager.getClass().getName());
+			}
+		}
+	}
+
 	private void registerConverters() {
 		converterContainer.addConverter(new UploadFileConverter());
 	}
 
+	/**
+	 * 为配置的线程池及指定了线程池的服务方法创建相互隔离的线程池
+	 */
+	private void initServicePools() {
+		for (ServicePoolDefinition poolDefinition : servicePoolDefinitions) {
+			Assert.hasText(poolDefinition.getName(), "服务线程池的名称不能为空");
+			Assert.isTrue(poolDefinition.getMaxConcurrency() > 0, "服务线程池" + poolDefinition.getName() + "的最大并发数必须大于0");
+			servicePoolExecutors.put(poolDefinition.getName(),
+					buildServicePoolExecutor(poolDefinition.getName(), poolDefinition.getMaxConcurrency(), poolDefinition.getQueueCapacity()));
+		}
+		for (ServiceMethodHandler serviceMethodHandler : ropContext.getAllServiceMethodHandlers().values()) {
+			ServiceMethodDefinition definition = serviceMethodHandler.getServiceMethodDefinition();
+			if (!definition.isBulkheaded()) {
+				continue;
+			}
+			String poolName = getServicePoolName(definition);
+			if (!servicePoolExecutors.containsKey(poolName)) {
+				if (definition.getMaxConcurrency() <= 0) {
+					throw new RopException("服务方法" + definition.getMethod() + "(" + definition.getVersion() + ")使用的线程池"
+							+ poolName + "未定义，请通过<rop:service-pool/>配置或指定maxConcurrency");
+				}
+				servicePoolExecutors.put(poolName,
+						buildServicePoolExecutor(poolName, definition.getMaxConcurrency(), definition.getQueueCapacity()));
+			}
+		}
+		if (logger.isInfoEnabled() && !servicePoolExecutors.isEmpty()) {
+			logger.info("共创建了" + servicePoolExecutors.size() + "个服务线程池：" + servicePoolExecutors.keySet());
+		}
+	}
+
+	/**
+	 * 固定大小、有界队列的线程池，满负荷时直接抛出{@link RejectedExecutionException}拒绝服务
+	 */
+	private ThreadPoolExecutor buildServicePoolExecutor(String poolName, int maxConcurrency, int queueCapacity) {
+		ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("roptask-" + poolName + "-%d").build();
+		BlockingQueue<Runnable> workQueue = queueCapacity > 0 ?
+				new ArrayBlockingQueue<Runnable>(queueCapacity) : new SynchronousQueue<Runnable>();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 5 * 60, TimeUnit.SECONDS,
+				workQueue, threadFactory, new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private String getServicePoolName(ServiceMethodDefinition definition) {
+		if (definition.getPool() != null) {
+			return definition.getPool();
+		}
+		return ServiceMethodHandler.methodWithVersion(definition.getMethod(), definition.getVersion());
+	}
+
+	/**
+	 * 获取服务方法对应的线程池，未指定线程池的服务使用公共线程池
+	 */
+	private ThreadPoolExecutor getServiceExecutor(ServiceMethodHandler serviceMethodHandler) {
+		if (serviceMethodHandler != null && serviceMethodHandler.getServiceMethodDefinition().isBulkheaded()) {
+			ThreadPoolExecutor executor = servicePoolExecutors.get(getServicePoolName(serviceMethodHandler.getServiceMethodDefinition()));
+			if (executor != null) {
+				return executor;
+			}
+		}
+		return threadPoolExecutor;
+	}
+
 	@Override
 	public void shutdown() {
 		threadPoolExecutor.shutdown();
+		for (ThreadPoolExecutor executor : servicePoolExecutors.values()) {
+			executor.shutdown();
+		}
+		if (batchExecutor != null) {
+			batchExecutor.shutdown();
+		}
+		closeInvokeTimesController();
 		fireRopClosedEvent();
 	}
 
+	/**
+	 * 服务调用次数控制器持有外部资源(如集群配额的租约)时，在关闭时释放
+	 */
+	private void closeInvokeTimesController() {
+		if (invokeTimesController instanceof Closeable) {
+			try {
+				((Closeable) invokeTimesController).close();
+			} catch (IOException e) {
+				logger.warn("关闭服务调用次数控制器出错", e);
+			}
+		}
+	}
+
 	@Override
 	public void setSignEnable(boolean signEnable) {
 		if (!signEnable && logger.isInfoEnabled()) {
@@ -264,6 +603,19 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		this.timestampTolerance = timestampTolerance;
 	}
 
+	@Override
+	public void setAsyncEnable(boolean asyncEnable) {
+		if (asyncEnable && logger.isInfoEnabled()) {
+			logger.info("开启Servlet异步处理模式");
+		}
+		this.asyncEnable = asyncEnable;
+	}
+
+	@Override
+	public boolean isAsyncEnable() {
+		return asyncEnable;
+	}
+
 	@Override
 	public void setInvokeTimesController(InvokeTimesController invokeTimesController) {
 		this.invokeTimesController = invokeTimesController;
@@ -345,12 +697,10 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 	/**
 	 * 取最小的过期时间
 	 *
-	 * @param method
-	 * @param version
+	 * @param serviceMethodHandler
 	 * @return
 	 */
-	private int getServiceMethodTimeout(String method, String version) {
-		ServiceMethodHandler serviceMethodHandler = ropContext.getServiceMethodHandler(method, version);
+	private int getServiceMethodTimeout(ServiceMethodHandler serviceMethodHandler) {
 		if (serviceMethodHandler == null) {
 			return getServiceTimeoutSeconds();
 		} else {
@@ -372,8 +722,40 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 
 		private HttpServletRequest servletRequest;
 
-		private ServiceRunnable(HttpServletRequest servletRequest) {
+		//是否持有并发许可
+		private final boolean concurrencyAcquired;
+
+		private final long admitNanos = System.nanoTime();
+
+		//批量调用中已创建好的请求上下文及系统级检查结果，普通请求为null
+		private final RopRequestContext preparedContext;
+
+		private final MainError preparedError;
+
+		private ServiceRunnable(HttpServletRequest servletRequest, boolean concurrencyAcquired) {
 			this.servletRequest = servletRequest;
+			this.concurrencyAcquired = concurrencyAcquired;
+			this.preparedContext = null;
+			this.preparedError = null;
+		}
+
+		/**
+		 * 批量调用中的一个服务调用，系统级参数已由批量调用检查过
+		 */
+		private ServiceRunnable(HttpServletRequest servletRequest, RopRequestContext preparedContext, MainError preparedError) {
+			this.servletRequest = servletRequest;
+			this.concurrencyAcquired = false;
+			this.preparedContext = preparedContext;
+			this.preparedError = preparedError;
+		}
+
+		/**
+		 * 释放并发许可，并上报从准入到完成的耗时
+		 */
+		private void releaseConcurrency(boolean dropped) {
+			if (concurrencyAcquired) {
+				concurrencyLimiter.release(System.nanoTime() - admitNanos, dropped);
+			}
 		}
 
 		@Override
@@ -383,11 +765,17 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 
 			try {
 
-				//第一阶段绑定
-				ropRequestContext = requestContextBuilder.buildSystemParams(ropContext, servletRequest);
+				MainError mainError;
+				if (preparedContext != null) {
+					ropRequestContext = preparedContext;
+					mainError = preparedError;
+				} else {
+					//第一阶段绑定
+					ropRequestContext = requestContextBuilder.buildSystemParams(ropContext, servletRequest);
 
-				//验证系统级参数的合法性
-				MainError mainError = securityManager.validateSystemParameters(ropRequestContext);
+					//验证系统级参数的合法性
+					mainError = securityManager.validateSystemParameters(ropRequestContext);
+				}
 				if (mainError != null) {
 					ropRequestContext.setRopResponse(ErrorResponseUtils.buildErrorResponse(mainError));
 				} else {
@@ -406,8 +794,20 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 						invokeBeforceServiceOfInterceptors(ropRequestContext);
 
 						if (ropRequestContext.getRopResponse() == null) { //拦截器未生成response
-							//如果拦截器没有产生ropResponse时才调用服务方法
-							ropRequestContext.setRopResponse(doService(ropRequestContext));
+							//批量调用中的服务调用不使用响应缓存，缓存的是完整的响应报文
+							ServiceResponseCache.CacheSlot cacheSlot =
+									preparedContext == null ? serviceResponseCache.getSlot(ropRequestContext) : null;
+							byte[] cachedContent = cacheSlot != null ? cacheSlot.getContent() : null;
+							if (cachedContent != null) {
+								//命中响应缓存，跳过服务方法调用及响应的序列化
+								ropRequestContext.setRopResponse(new CachedRopResponse(cachedContent));
+							} else {
+								//如果拦截器没有产生ropResponse时才调用服务方法
+								ropRequestContext.setRopResponse(invokeService(ropRequestContext));
+								if (cacheSlot != null) {
+									servletRequest.setAttribute(ROP_RESPONSE_CACHE_SLOT, cacheSlot);
+								}
+							}
 						}
 					}
 				}
@@ -415,6 +815,10 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 				return ropRequestContext.getRopResponse();
 			} catch (Throwable e) {
 				logger.error("ServiceRunnable Error:", e);
+				if (ropRequestContext == null) {//创建请求上下文时出错，如请求体超过大小限制
+					return new ServiceUnavailableErrorResponse(ServletRequestContextBuilder.getMethod(servletRequest),
+							ServletRequestContextBuilder.getLocale(servletRequest), e);
+				}
 				String method = ropRequestContext.getMethod();
 				Locale locale = ropRequestContext.getLocale();
 				ServiceUnavailableErrorResponse ropResponse = new ServiceUnavailableErrorResponse(method, locale, e);
@@ -425,35 +829,292 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 					//发布服务完成事件
 					ropRequestContext.setServiceEndTime(System.currentTimeMillis());
 					//完成一次服务请求，计算次数
-					invokeTimesController.caculateInvokeTimes(ropRequestContext.getAppKey(), ropRequestContext.getSession());
+					if (invokeTimesController instanceof RequestInvokeTimesController) {
+						((RequestInvokeTimesController) invokeTimesController).caculateInvokeTimes(ropRequestContext);
+					} else {
+						invokeTimesController.caculateInvokeTimes(ropRequestContext.getAppKey(), ropRequestContext.getSession());
+					}
 					//输出响应前拦截
 					invokeBeforceResponseOfInterceptors(ropRequestContext);
 					fireServiceFinishedEvent(ropRequestContext);
+					//删除上传数据的临时文件，批量调用中的服务调用由批量调用的请求统一删除
+					if (preparedContext == null) {
+						((ServletRequestContextBuilder) requestContextBuilder).release(ropRequestContext);
+					}
 				}
+				releaseConcurrency(false);
 			}
 		}
 	}
 
 
 	/**
-	 * 创建一个请求上下文对象
+	 * 异步模式下的服务任务，同时作为{@link AsyncListener}监听容器的超时及错误事件。
+	 * 服务线程与容器回调线程通过{@link #responded}竞争响应的写出权，保证只输出一次。
+	 */
+	private class AsyncServiceRunnable implements Runnable, AsyncListener {
+
+		private final AsyncContext asyncContext;
+
+		private final ServiceRunnable serviceRunnable;
+
+		private final HttpServletRequest servletRequest;
+
+		private final String method;
+
+		private final String version;
+
+		private final int serviceMethodTimeout;
+
+		private final long beginTime;
+
+		private final String jsonpCallback;
+
+		private final AtomicBoolean responded = new AtomicBoolean(false);
+
+		private AsyncServiceRunnable(AsyncContext asyncContext, ServiceRunnable serviceRunnable, HttpServletRequest servletRequest,
+									 String method, String version, int serviceMethodTimeout, long beginTime, String jsonpCallback) {
+			this.asyncContext = asyncContext;
+			this.serviceRunnable = serviceRunnable;
+			this.servletRequest = servletRequest;
+			this.method = method;
+			this.version = version;
+			this.serviceMethodTimeout = serviceMethodTimeout;
+			this.beginTime = beginTime;
+			this.jsonpCallback = jsonpCallback;
+		}
+
+		@Override
+		public void run() {
+			RopResponse ropResponse;
+			try {
+				ropResponse = serviceRunnable.call();
+			} catch (Throwable throwable) {//产生未知的错误
+				if (logger.isInfoEnabled()) {
+					logger.info("调用服务方法:" + method + "(" + version + ")，产生异常", throwable);
+				}
+				completeWithError(new ServiceUnavailableErrorResponse(method, ServletRequestContextBuilder.getLocale(servletRequest), throwable));
+				return;
+			}
+			if (responded.compareAndSet(false, true)) {
+				try {
+					writeResponse(servletRequest, (HttpServletResponse) asyncContext.getResponse(), ropResponse, jsonpCallback);
+				} finally {
+					asyncContext.complete();
+				}
+			} else if (logger.isInfoEnabled()) {
+				logger.info("调用服务方法:" + method + "(" + version + ")已超时响应，丢弃服务结果。");
+			}
+		}
+
+		/**
+		 * 以错误响应结束本次异步请求，并发布对应的错误事件
+		 */
+		private void completeWithError(FailedRopResponse ropResponse) {
+			if (!responded.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				writeResponse(servletRequest, (HttpServletResponse) asyncContext.getResponse(), ropResponse, jsonpCallback);
+				fireErrorEvent(servletRequest, beginTime, ropResponse);
+			} finally {
+				asyncContext.complete();
+			}
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) throws IOException {
+			if (logger.isInfoEnabled()) {
+				logger.info("调用服务方法:" + method + "(" + version + ")，服务调用超时。");
+			}
+			completeWithError(new ServiceTimeoutErrorResponse(method, ServletRequestContextBuilder.getLocale(servletRequest), serviceMethodTimeout));
+		}
+
+		@Override
+		public void onError(AsyncEvent event) throws IOException {
+			Throwable throwable = event.getThrowable() != null ? event.getThrowable() : new RopException("异步请求处理出错");
+			if (logger.isInfoEnabled()) {
+				logger.info("调用服务方法:" + method + "(" + version + ")，产生异常", throwable);
+			}
+			completeWithError(new ServiceUnavailableErrorResponse(method, ServletRequestContextBuilder.getLocale(servletRequest), throwable));
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) throws IOException {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) throws IOException {
+		}
+	}
+
+	/**
+	 * 创建一个用于错误事件的请求上下文对象，不读取上传数据及JSON等格式的请求体，
+	 * 因而不会产生需要释放的临时文件，也不会因请求体超限而出错
 	 *
 	 * @param request
 	 * @param beginTime
 	 * @return
 	 */
 	private RopRequestContext buildRequestContext(HttpServletRequest request, long beginTime) {
-		RopRequestContext ropRequestContext = requestContextBuilder.buildSystemParams(ropContext, request);
+		RopRequestContext ropRequestContext =
+				((ServletRequestContextBuilder) requestContextBuilder).buildSystemParams(ropContext, request, false);
 		ropRequestContext.setServiceBeginTime(beginTime);
 		ropRequestContext.setRequestId(ServletRequestContextBuilder.getRopRequestId(request));
 		return ropRequestContext;
 	}
 
+	/**
+	 * 执行批量调用：各服务调用共用批量调用的签名及会话检查，并行提交到各自的线程池执行，
+	 * 所有服务调用共享批量调用服务方法的超时时间，超时未完成的服务调用返回超时错误
+	 *
+	 * @param batchContext 批量调用的请求上下文
+	 * @param batchRequest
+	 * @return 与服务调用一一对应的响应
+	 */
+	BatchResponse invokeBatch(RopRequestContext batchContext, BatchRequest batchRequest) {
+		Locale locale = batchContext.getLocale();
+		BatchResponse batchResponse = new BatchResponse();
+		List<BatchCall> calls = batchRequest.getCalls();
+		if (calls == null || calls.isEmpty() || calls.size() > batchMaxCalls) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("批量调用的服务调用数必须在1到{}之间", batchMaxCalls);
+			}
+			return batchResponse.fail(MainErrors.getError(MainErrorType.INVALID_ARGUMENTS, locale));
+		}
+
+		int timeout = getServiceMethodTimeout(batchContext.getServiceMethodHandler());
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+		HttpServletRequest servletRequest = (HttpServletRequest) batchContext.getRawRequestObject();
+		ServletRequestContextBuilder servletRequestContextBuilder = (ServletRequestContextBuilder) requestContextBuilder;
+		//执行批量调用本身的线程池
+		ThreadPoolExecutor batchOwnerExecutor = getServiceExecutor(batchContext.getServiceMethodHandler());
+
+		RopResponse[] responses = new RopResponse[calls.size()];
+		List<Future<RopResponse>> futures = new ArrayList<Future<RopResponse>>(calls.size());
+		MainError sessionError = null;
+		boolean sessionChecked = false;
+		for (int i = 0; i < calls.size(); i++) {
+			BatchCall call = calls.get(i);
+			RopRequestContext callContext = servletRequestContextBuilder.buildBatchCallParams(batchContext, call, i);
+			callContext.setServiceBeginTime(System.currentTimeMillis());
+			MainError mainError = validateBatchCall(callContext);
+			if (mainError == null && callContext.getServiceMethodDefinition().isNeedInSession()) {
+				//会话在整个批量调用中只检查一次
+				if (!sessionChecked) {
+					sessionError = checkBatchSession(batchContext);
+					sessionChecked = true;
+				}
+				mainError = sessionError;
+			}
+			if (mainError != null && callContext.getServiceMethodHandler() == null) {
+				responses[i] = ErrorResponseUtils.buildErrorResponse(mainError);
+				futures.add(null);
+				continue;
+			}
+			//服务调用有自己的线程池(舱壁)时提交到该线程池，否则提交到批量调用的执行器
+			ThreadPoolExecutor executor = getServiceExecutor(callContext.getServiceMethodHandler());
+			if (executor == threadPoolExecutor || executor == batchOwnerExecutor) {
+				executor = batchExecutor;
+			}
+			if (executor == batchOwnerExecutor) {
+				//配置的批量调用执行器就是执行批量调用的线程池时，由批量调用的线程自己执行，避免等待自己
+				FutureTask<RopResponse> task = new FutureTask<RopResponse>(new ServiceRunnable(servletRequest, callContext, mainError));
+				task.run();
+				futures.add(task);
+				continue;
+			}
+			try {
+				futures.add(executor.submit(new ServiceRunnable(servletRequest, callContext, mainError)));
+			} catch (RejectedExecutionException e) {
+				if (logger.isInfoEnabled()) {
+					logger.info("批量调用中的服务方法{}({})被拒绝执行", call.getMethod(), call.getVersion());
+				}
+				responses[i] = new RejectedServiceResponse(locale);
+				futures.add(null);
+			}
+		}
+
+		for (int i = 0; i < futures.size(); i++) {
+			Future<RopResponse> future = futures.get(i);
+			if (future == null) {
+				continue;
+			}
+			String method = calls.get(i).getMethod();
+			try {
+				responses[i] = future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				future.cancel(true);
+				if (logger.isInfoEnabled()) {
+					logger.info("批量调用中的服务方法:" + method + "，服务调用超时。");
+				}
+				responses[i] = new ServiceTimeoutErrorResponse(method, locale, timeout);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				future.cancel(true);
+				responses[i] = new ServiceUnavailableErrorResponse(method, locale, e);
+			} catch (ExecutionException e) {
+				responses[i] = new ServiceUnavailableErrorResponse(method, locale, e.getCause());
+			}
+		}
+		batchResponse.setResponses(Arrays.asList(responses));
+		return batchResponse.success();
+	}
+
+	/**
+	 * 检查批量调用中服务调用的method、v参数，批量调用不能嵌套
+	 */
+	private MainError validateBatchCall(RopRequestContext callContext) {
+		Locale locale = callContext.getLocale();
+		if (callContext.getMethod() == null) {
+			return MainErrors.getError(MainErrorType.MISSING_METHOD, locale);
+		} else if (BatchRequest.METHOD.equals(callContext.getMethod()) || !ropContext.isValidMethod(callContext.getMethod())) {
+			return MainErrors.getError(MainErrorType.INVALID_METHOD, locale);
+		} else if (callContext.getVersion() == null) {
+			return MainErrors.getError(MainErrorType.MISSING_VERSION, locale);
+		} else if (callContext.getServiceMethodHandler() == null) {
+			return MainErrors.getError(MainErrorType.UNSUPPORTED_VERSION, locale);
+		} else if (callContext.getServiceMethodDefinition().isObsoleted()) {
+			return MainErrors.getError(MainErrorType.METHOD_OBSOLETED, locale);
+		} else if (!isHttpActionAllowed(callContext)) {
+			return MainErrors.getError(MainErrorType.HTTP_ACTION_NOT_ALLOWED, locale);
+		}
+		return null;
+	}
+
+	/**
+	 * 服务调用的HTTP方法即批量调用请求的HTTP方法，须是服务方法允许的
+	 */
+	private boolean isHttpActionAllowed(RopRequestContext callContext) {
+		HttpAction[] httpActions = callContext.getServiceMethodDefinition().getHttpAction();
+		if (httpActions.length == 0) {
+			return true;
+		}
+		for (HttpAction httpAction : httpActions) {
+			if (httpAction == callContext.getHttpAction()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private MainError checkBatchSession(RopRequestContext batchContext) {
+		if (batchContext.getSessionId() == null) {
+			return MainErrors.getError(MainErrorType.MISSING_SESSION, batchContext.getLocale());
+		} else if (sessionManager.getSession(batchContext.getSessionId()) == null) {
+			return MainErrors.getError(MainErrorType.INVALID_SESSION, batchContext.getLocale());
+		}
+		return null;
+	}
+
 	private RopContext buildRopContext() {
 		DefaultRopContext defaultRopContext = new DefaultRopContext(this.applicationContext);
 		defaultRopContext.setSignEnable(this.signEnable);
 		defaultRopContext.setSessionManager(sessionManager);
 		defaultRopContext.setTimestampTolerance(timestampTolerance);
+		if (batchEnable) {
+			defaultRopContext.registerServiceMethods(new BatchService(this));
+		}
 		return defaultRopContext;
 	}
 
@@ -607,38 +1268,95 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 
 			/**
 			 * edit by luopeng 取消了XML格式数据返回支持，简单就好
+			 * 按format参数选择响应格式(json或msgpack)，未指定时使用json，JSONP只对json格式有效
 			 */
-			String contentType = APPLICATION_JSON;
+			MessageCodec codec = messageCodecRegistry.getCodec(request.getHeader(SystemParameterNames.getFormat()));
+			RopMarshaller ropMarshaller = codec.getMarshaller();
+			String contentType = codec.getContentType();
+			boolean json = MessageCodecRegistry.FORMAT_JSON.equals(codec.getFormat());
+			if (!json) {
+				jsonpCallback = null;
+			}
 
-			String outContent = null;
+			httpServletResponse.addHeader(ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+			httpServletResponse.addHeader(ACCESS_CONTROL_ALLOW_METHODS, "*");
+			if (json) {
+				httpServletResponse.setCharacterEncoding(Constants.UTF8);
+			}
+
+			httpServletResponse.setContentType(contentType);
+
+			if (logger.isDebugEnabled()) {
+				if (ropResponse instanceof CachedRopResponse) {
+					logger.debug("RopResponse：命中响应缓存，" + ((CachedRopResponse) ropResponse).getContent().length + "字节");
+				} else {
+					logger.debug("RopResponse：" + ropMarshaller.marshaller(ropResponse));
+				}
+			}
+
+			//响应压缩
+			String contentEncoding = null;
+			if (compressionEnable && compressionContentTypes.contains(contentType)) {
+				httpServletResponse.addHeader(VARY, ACCEPT_ENCODING);
+				contentEncoding = CompressingOutputStream.selectEncoding(request.getHeader(ACCEPT_ENCODING));
+			}
+
+			//直接序列化到响应输出流中，JSONP的回调以前后缀的方式写出
+			ServletResponseOutputStream outputStream = new ServletResponseOutputStream(httpServletResponse, jsonpCallback,
+					contentEncoding, compressionMinSize);
 			try {
-				outContent = ropMarshaller.marshaller(ropResponse);
-				if (logger.isDebugEnabled()) {
-					logger.debug("RopResponse：" + outContent);
+				byte[] renderedResponse;
+				if (ropResponse instanceof CachedRopResponse) {//命中响应缓存
+					renderedResponse = ((CachedRopResponse) ropResponse).getContent();
+				} else {//无参数的错误响应直接写出预先序列化的内容
+					renderedResponse = getRenderedErrorResponse(ropResponse, codec);
+				}
+				boolean success = ropResponse != null && ropResponse.isSuccess();
+				ServiceMethodDefinition definition = success ? getServiceMethodDefinition(request) : null;
+				//只允许GET的服务方法的成功响应支持条件请求，JSONP的内容随回调变化，不支持
+				boolean conditional = definition != null && jsonpCallback == null && definition.isGetOnly()
+						&& HttpAction.GET.name().equalsIgnoreCase(request.getMethod());
+				ServiceResponseCache.CacheSlot cacheSlot = (ServiceResponseCache.CacheSlot) request.getAttribute(ROP_RESPONSE_CACHE_SLOT);
+				if (renderedResponse == null && success && (cacheSlot != null || conditional)) {
+					//需要缓存或计算ETag的成功响应，先序列化为字节
+					ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+					ropMarshaller.marshaller(ropResponse, out);
+					renderedResponse = out.toByteArray();
+					if (cacheSlot != null) {
+						cacheSlot.setContent(renderedResponse);
+					}
+				}
+				if (definition != null && definition.getMaxAge() > 0 && HttpAction.GET.name().equalsIgnoreCase(request.getMethod())) {
+					httpServletResponse.setHeader(CACHE_CONTROL, "private, max-age=" + definition.getMaxAge());
+				}
+				if (conditional) {
+					//与ServletResponseOutputStream一致，报文不小于compressionMinSize时才压缩
+					String eTag = buildETag(renderedResponse,
+							contentEncoding != null && renderedResponse.length >= compressionMinSize ? contentEncoding : null);
+					httpServletResponse.setHeader(ETAG, eTag);
+					if (matchesETag(request.getHeader(IF_NONE_MATCH), eTag)) {//内容未变化，不再传输响应报文
+						httpServletResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+						return;
+					}
+				}
+				if (renderedResponse != null) {
+					outputStream.setContentLength(renderedResponse.length);
+					outputStream.write(renderedResponse);
+				} else {
+					ropMarshaller.marshaller(ropResponse, outputStream);
 				}
 			} catch (Exception e) {
+				if (outputStream.isStarted()) {//已经写出部分内容，无法再输出错误响应
+					throw new RopException("Serialization Error.", e);
+				}
 				//防止序列化出错
 				String method = request.getParameter(SystemParameterNames.getMethod());
 				String localeStr = request.getParameter(SystemParameterNames.getLocale());
 				Locale locale = RopUtils.getLocale(localeStr);
-				outContent = ropMarshaller.marshaller(new ServiceUnavailableErrorResponse(method, locale, e));
+				ropMarshaller.marshaller(new ServiceUnavailableErrorResponse(method, locale, e), outputStream);
 				logger.error("Serialization Error.", e);
 			}
-
-			httpServletResponse.addHeader(ACCESS_CONTROL_ALLOW_ORIGIN, "*");
-			httpServletResponse.addHeader(ACCESS_CONTROL_ALLOW_METHODS, "*");
-			httpServletResponse.setCharacterEncoding(Constants.UTF8);
-
-			httpServletResponse.setContentType(contentType);
-
-			if (jsonpCallback != null) {
-				outContent += jsonpCallback;
-				outContent += "(";
-				outContent += outContent;
-				outContent += ");";
-			}
-
-			httpServletResponse.getOutputStream().write(outContent.getBytes(Constants.UTF8));
+			outputStream.finish();
 
 		} catch (IOException e) {
 			throw new RopException(e);
@@ -652,6 +1370,182 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		}
 	}
 
+	private ServiceMethodDefinition getServiceMethodDefinition(HttpServletRequest request) {
+		ServiceMethodHandler handler = (ServiceMethodHandler) request.getAttribute(ROP_SERVICE_METHOD_HANDLER);
+		return handler == null ? null : handler.getServiceMethodDefinition();
+	}
+
+	/**
+	 * 以响应报文的murmur3_128摘要作为强ETag，压缩的响应附加内容编码，
+	 * 不同内容编码的表示有各自的强校验值(RFC 7232)
+	 *
+	 * @param content
+	 * @param contentEncoding 实际使用的内容编码，不压缩时为null
+	 * @return
+	 */
+	private static String buildETag(byte[] content, String contentEncoding) {
+		String hash = Hashing.murmur3_128().hashBytes(content).toString();
+		return "\"" + (contentEncoding == null ? hash : hash + "-" + contentEncoding) + "\"";
+	}
+
+	/**
+	 * If-None-Match可以是"*"或以逗号分隔的多个ETag，弱ETag(W/前缀)按弱比较处理
+	 */
+	private static boolean matchesETag(String ifNoneMatch, String eTag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			if (candidate.startsWith("W/")) {
+				candidate = candidate.substring(2);
+			}
+			if ("*".equals(candidate) || eTag.equals(candidate)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 如果响应只包含一个由{@link MainErrorTemplate}创建且未被修改的主错误，返回该错误响应预先序列化的内容，否则返回null
+	 *
+	 * @param ropResponse
+	 * @param codec
+	 * @return
+	 */
+	private byte[] getRenderedErrorResponse(RopResponse ropResponse, MessageCodec codec) {
+		if (ropResponse == null || ropResponse.isSuccess()
+				|| !(ropResponse.getError() instanceof MainErrorTemplate.TemplateMainError)) {
+			return null;
+		}
+		//子类可能有额外的属性
+		Class<?> responseClass = ropResponse.getClass();
+		if (responseClass != RopResponse.class && responseClass != FailedRopResponse.class
+				&& responseClass != RejectedServiceResponse.class) {
+			return null;
+		}
+		MainErrorTemplate template = ((MainErrorTemplate.TemplateMainError) ropResponse.getError()).template();
+		if (!template.isUnmodified(ropResponse.getError())) {
+			return null;
+		}
+		return template.getRenderedResponse(codec);
+	}
+
+	/**
+	 * 响应输出流，在内容前后写出JSONP回调的前缀"callback("和后缀");"，并据此设置Content-Length。
+	 * 客户端支持压缩且内容长度达到压缩阈值(或长度未知)时，对输出进行压缩，此时不设置Content-Length。
+	 */
+	private static class ServletResponseOutputStream extends ResponseOutputStream {
+
+		private static final byte[] EMPTY = new byte[0];
+
+		private static final byte[] JSONP_SUFFIX = {')', ';'};
+
+		private final HttpServletResponse response;
+
+		private OutputStream out;
+
+		private final byte[] prefix;
+
+		private final byte[] suffix;
+
+		private final String contentEncoding;
+
+		private final int compressionMinSize;
+
+		private boolean compress;
+
+		private boolean started;
+
+		private ServletResponseOutputStream(HttpServletResponse response, String jsonpCallback,
+											String contentEncoding, int compressionMinSize) throws IOException {
+			this.response = response;
+			this.out = response.getOutputStream();
+			if (jsonpCallback != null) {
+				this.prefix = (jsonpCallback + "(").getBytes(Constants.UTF8);
+				this.suffix = JSONP_SUFFIX;
+			} else {
+				this.prefix = EMPTY;
+				this.suffix = EMPTY;
+			}
+			this.contentEncoding = contentEncoding;
+			this.compressionMinSize = compressionMinSize;
+			this.compress = contentEncoding != null;
+		}
+
+		@Override
+		public void setContentLength(int contentLength) {
+			if (!started) {
+				int totalLength = prefix.length + contentLength + suffix.length;
+				compress = contentEncoding != null && totalLength >= compressionMinSize;
+				if (!compress) {
+					response.setContentLength(totalLength);
+				}
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			start();
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			start();
+			out.write(b, off, len);
+		}
+
+		private void start() throws IOException {
+			if (!started) {
+				started = true;
+				if (compress) {
+					response.setHeader(CONTENT_ENCODING, contentEncoding);
+					out = new CompressingOutputStream(out, contentEncoding);
+				}
+				if (prefix.length > 0) {
+					out.write(prefix);
+				}
+			}
+		}
+
+		public boolean isStarted() {
+			return started;
+		}
+
+		public void finish() throws IOException {
+			start();
+			if (suffix.length > 0) {
+				out.write(suffix);
+			}
+			if (out instanceof CompressingOutputStream) {
+				((CompressingOutputStream) out).finish();
+			}
+		}
+	}
+
+	/**
+	 * 调用服务方法，开启合并执行的服务方法，指纹相同的并发请求只调用一次服务方法并共用响应，
+	 * 各请求仍各自完成安全检查、拦截器及事件的处理
+	 *
+	 * @param ropRequestContext
+	 * @return
+	 */
+	private RopResponse invokeService(final RopRequestContext ropRequestContext) throws Exception {
+		ServiceMethodHandler handler = ropRequestContext.getServiceMethodHandler();
+		if (handler == null || !handler.getServiceMethodDefinition().isCoalesced() || handler.hasUploadFiles()) {
+			return doService(ropRequestContext);
+		}
+		String fingerprint = RequestFingerprint.of(ropRequestContext, handler.getServiceMethodDefinition(), messageCodecRegistry);
+		return serviceCallCoalescer.execute(fingerprint, new Callable<RopResponse>() {
+			@Override
+			public RopResponse call() {
+				return doService(ropRequestContext);
+			}
+		});
+	}
+
 	private RopResponse doService(RopRequestContext ropRequestContext) {
 		RopResponse ropResponse = null;
 		if (ropRequestContext.getMethod() == null) {
@@ -745,4 +1639,226 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 	public void setEventPoolExecutor(ThreadPoolExecutor eventPoolExecutor) {
 		this.eventPoolExecutor = eventPoolExecutor;
 	}
+
+	public List<ServicePoolDefinition> getServicePoolDefinitions() {
+		return servicePoolDefinitions;
+	}
+
+	public void setServicePoolDefinitions(List<ServicePoolDefinition> servicePoolDefinitions) {
+		this.servicePoolDefinitions = servicePoolDefinitions;
+	}
+
+	public Map<String, ThreadPoolExecutor> getServicePoolExecutors() {
+		return servicePoolExecutors;
+	}
+
+	/**
+	 * 获取并发准入控制器，可通过{@link ConcurrencyLimiter#getLimit()}等获取其运行指标
+	 *
+	 * @return
+	 */
+	public ConcurrencyLimiter getConcurrencyLimiter() {
+		return concurrencyLimiter;
+	}
+
+	public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+
+	/**
+	 * 获取服务方法的响应缓存，可用于查看缓存统计信息或在业务数据变更时清空缓存，{@link #startup()}之后可用
+	 *
+	 * @return
+	 */
+	public ServiceResponseCache getServiceResponseCache() {
+		return serviceResponseCache;
+	}
+
+	public ServiceCallCoalescer getServiceCallCoalescer() {
+		return serviceCallCoalescer;
+	}
+
+	public boolean isBatchEnable() {
+		return batchEnable;
+	}
+
+	public void setBatchEnable(boolean batchEnable) {
+		this.batchEnable = batchEnable;
+	}
+
+	public int getBatchMaxCalls() {
+		return batchMaxCalls;
+	}
+
+	public void setBatchMaxCalls(int batchMaxCalls) {
+		this.batchMaxCalls = batchMaxCalls;
+	}
+
+	public ThreadPoolExecutor getBatchExecutor() {
+		return batchExecutor;
+	}
+
+	public void setBatchExecutor(ThreadPoolExecutor batchExecutor) {
+		this.batchExecutor = batchExecutor;
+	}
+
+	public boolean isReplayProtectionEnable() {
+		return replayProtectionEnable;
+	}
+
+	public void setReplayProtectionEnable(boolean replayProtectionEnable) {
+		this.replayProtectionEnable = replayProtectionEnable;
+	}
+
+	public int getReplayExpectedRequests() {
+		return replayExpectedRequests;
+	}
+
+	public void setReplayExpectedRequests(int replayExpectedRequests) {
+		this.replayExpectedRequests = replayExpectedRequests;
+	}
+
+	public double getReplayFalsePositiveRate() {
+		return replayFalsePositiveRate;
+	}
+
+	public void setReplayFalsePositiveRate(double replayFalsePositiveRate) {
+		this.replayFalsePositiveRate = replayFalsePositiveRate;
+	}
+
+	public ReplayGuard getReplayGuard() {
+		return replayGuard;
+	}
+
+	public void setReplayGuard(ReplayGuard replayGuard) {
+		this.replayGuard = replayGuard;
+	}
+
+	public boolean isUploadStreamingEnable() {
+		return uploadStreamingEnable;
+	}
+
+	public void setUploadStreamingEnable(boolean uploadStreamingEnable) {
+		this.uploadStreamingEnable = uploadStreamingEnable;
+	}
+
+	public String getUploadTempDir() {
+		return uploadTempDir;
+	}
+
+	public void setUploadTempDir(String uploadTempDir) {
+		this.uploadTempDir = uploadTempDir;
+	}
+
+	public int getUploadMemoryThreshold() {
+		return uploadMemoryThreshold;
+	}
+
+	public void setUploadMemoryThreshold(int uploadMemoryThreshold) {
+		this.uploadMemoryThreshold = uploadMemoryThreshold;
+	}
+
+	public long getUploadRequestMaxBytes() {
+		return uploadRequestMaxBytes;
+	}
+
+	public void setUploadRequestMaxBytes(long uploadRequestMaxBytes) {
+		this.uploadRequestMaxBytes = uploadRequestMaxBytes;
+	}
+
+	public long getUploadTotalSpoolBytes() {
+		return uploadTotalSpoolBytes;
+	}
+
+	public void setUploadTotalSpoolBytes(long uploadTotalSpoolBytes) {
+		this.uploadTotalSpoolBytes = uploadTotalSpoolBytes;
+	}
+
+	public long getRequestBodyMaxBytes() {
+		return requestBodyMaxBytes;
+	}
+
+	public void setRequestBodyMaxBytes(long requestBodyMaxBytes) {
+		this.requestBodyMaxBytes = requestBodyMaxBytes;
+	}
+
+	public UploadStreamHandler getUploadStreamHandler() {
+		return uploadStreamHandler;
+	}
+
+	public void setUploadStreamHandler(UploadStreamHandler uploadStreamHandler) {
+		this.uploadStreamHandler = uploadStreamHandler;
+	}
+
+	public FileUploadController getFileUploadController() {
+		return fileUploadController;
+	}
+
+	public void setFileUploadController(FileUploadController fileUploadController) {
+		this.fileUploadController = fileUploadController;
+	}
+
+	public boolean isWarmUpEnable() {
+		return warmUpEnable;
+	}
+
+	public void setWarmUpEnable(boolean warmUpEnable) {
+		this.warmUpEnable = warmUpEnable;
+	}
+
+	public int getWarmUpInvocations() {
+		return warmUpInvocations;
+	}
+
+	public void setWarmUpInvocations(int warmUpInvocations) {
+		this.warmUpInvocations = warmUpInvocations;
+	}
+
+	public MessageCodecRegistry getMessageCodecRegistry() {
+		return messageCodecRegistry;
+	}
+
+	/**
+	 * 设置报文格式的编解码器注册表，需在{@link #startup()}之前设置
+	 *
+	 * @param messageCodecRegistry
+	 */
+	public void setMessageCodecRegistry(MessageCodecRegistry messageCodecRegistry) {
+		this.messageCodecRegistry = messageCodecRegistry;
+	}
+
+	public boolean isCompressionEnable() {
+		return compressionEnable;
+	}
+
+	public void setCompressionEnable(boolean compressionEnable) {
+		this.compressionEnable = compressionEnable;
+	}
+
+	public int getCompressionMinSize() {
+		return compressionMinSize;
+	}
+
+	public void setCompressionMinSize(int compressionMinSize) {
+		this.compressionMinSize = compressionMinSize;
+	}
+
+	public Set<String> getCompressionContentTypes() {
+		return compressionContentTypes;
+	}
+
+	/**
+	 * 设置需要压缩的响应内容类型，多个用逗号分隔
+	 *
+	 * @param compressionContentTypes
+	 */
+	public void setCompressionContentTypes(String compressionContentTypes) {
+		Set<String> contentTypes = new HashSet<String>();
+		for (String contentType : compressionContentTypes.split(",")) {
+			if (StringUtils.isNotBlank(contentType)) {
+				contentTypes.add(contentType.trim());
+			}
+		}
+		this.compressionContentTypes = contentTypes;
+	}
 }
\ No newline at end of file
@@ -12,8 +12,10 @@ import org.springframework.context.ApplicationContextAware;
 import org.springframework.util.Assert;
 import rop.Interceptor;
 import rop.config.InterceptorHolder;
+import rop.config.ServicePoolDefinition;
 import rop.config.RopEventListenerHodler;
 import rop.event.RopEventListener;
+import rop.limit.ConcurrencyLimiter;
 import rop.security.*;
 import rop.session.SessionManager;
 
@@ -64,6 +66,58 @@ public class AnnotationServletServiceRouterFactoryBean
 	//时间戳误差容忍度
 	private long timestampTolerance = -1;
 
+	//是否开启Servlet 3.0异步处理模式
+	private boolean asyncEnable = false;
+
+	//服务线程池(舱壁)定义
+	private List<ServicePoolDefinition> servicePoolDefinitions;
+
+	//并发准入控制器
+	private ConcurrencyLimiter concurrencyLimiter;
+
+	//响应压缩配置
+	private boolean compressionEnable = false;
+
+	private int compressionMinSize = 2048;
+
+	private String compressionContentTypes = AnnotationServletServiceRouter.APPLICATION_JSON;
+
+	//启动预热配置
+	private boolean warmUpEnable = true;
+
+	private int warmUpInvocations = 0;
+
+	//是否开启批量调用服务
+	private boolean batchEnable = true;
+
+	//一次批量调用最多包含的服务调用数
+	private int batchMaxCalls = 20;
+
+	private ThreadPoolExecutor batchExecutor;
+
+	//重放请求检查配置
+	private boolean replayProtectionEnable = false;
+
+	private int replayExpectedRequests = 100000;
+
+	private ReplayGuard replayGuard;
+
+	//流式解析上传数据配置
+	private boolean uploadStreamingEnable = false;
+
+	private String uploadTempDir;
+
+	private long uploadRequestMaxBytes;
+
+	private long uploadTotalSpoolBytes;
+
+	private UploadStreamHandler uploadStreamHandler;
+
+	private long requestBodyMaxBytes = 10485760;
+
+	//密钥查询结果的缓存时间，单位为秒，不大于0时不缓存
+	private int appSecretCacheSeconds = 0;
+
     private AnnotationServletServiceRouter serviceRouter;
 
     //多值用逗号分隔,默认支持4种格式的文件
@@ -119,10 +173,11 @@ public class AnnotationServletServiceRouterFactoryBean
         DefaultSecurityManager securityManager = BeanUtils.instantiate(DefaultSecurityManager.class);
 
         securityManager.setSessionManager(sessionManager);
-        securityManager.setAppSecretManager(appSecretManager);
+        securityManager.setAppSecretManager(buildAppSecretManager());
         securityManager.setServiceAccessController(serviceAccessController);
         securityManager.setInvokeTimesController(invokeTimesController);
-        securityManager.setFileUploadController(buildFileUploadController());
+        FileUploadController fileUploadController = buildFileUploadController();
+        securityManager.setFileUploadController(fileUploadController);
 
         serviceRouter.setSecurityManager(securityManager);
         serviceRouter.setThreadPoolExecutor(threadPoolExecutor);
@@ -132,6 +187,29 @@ public class AnnotationServletServiceRouterFactoryBean
         serviceRouter.setSessionManager(sessionManager);
         serviceRouter.setInvokeTimesController(invokeTimesController);
 		serviceRouter.setTimestampTolerance(timestampTolerance);
+		serviceRouter.setAsyncEnable(asyncEnable);
+		if (servicePoolDefinitions != null) {
+			serviceRouter.setServicePoolDefinitions(servicePoolDefinitions);
+		}
+		serviceRouter.setConcurrencyLimiter(concurrencyLimiter);
+		serviceRouter.setCompressionEnable(compressionEnable);
+		serviceRouter.setCompressionMinSize(compressionMinSize);
+		serviceRouter.setCompressionContentTypes(compressionContentTypes);
+		serviceRouter.setWarmUpEnable(warmUpEnable);
+		serviceRouter.setWarmUpInvocations(warmUpInvocations);
+		serviceRouter.setBatchEnable(batchEnable);
+		serviceRouter.setBatchMaxCalls(batchMaxCalls);
+		serviceRouter.setBatchExecutor(batchExecutor);
+		serviceRouter.setReplayProtectionEnable(replayProtectionEnable);
+		serviceRouter.setReplayExpectedRequests(replayExpectedRequests);
+		serviceRouter.setReplayGuard(replayGuard);
+		serviceRouter.setUploadStreamingEnable(uploadStreamingEnable);
+		serviceRouter.setUploadTempDir(uploadTempDir);
+		serviceRouter.setUploadRequestMaxBytes(uploadRequestMaxBytes);
+		serviceRouter.setUploadTotalSpoolBytes(uploadTotalSpoolBytes);
+		serviceRouter.setUploadStreamHandler(uploadStreamHandler);
+		serviceRouter.setRequestBodyMaxBytes(requestBodyMaxBytes);
+		serviceRouter.setFileUploadController(fileUploadController);
 
         //注册拦截器
         ArrayList<Interceptor> interceptors = getInterceptors();
@@ -162,6 +240,16 @@ public class AnnotationServletServiceRouterFactoryBean
         serviceRouter.startup();
     }
 
+    private AppSecretManager buildAppSecretManager() {
+        if (appSecretCacheSeconds > 0 && appSecretManager != null && !(appSecretManager instanceof CachingAppSecretManager)) {
+            if (logger.isInfoEnabled()) {
+                logger.info("缓存密钥查询结果{}秒", appSecretCacheSeconds);
+            }
+            return new CachingAppSecretManager(appSecretManager, appSecretCacheSeconds);
+        }
+        return appSecretManager;
+    }
+
     private DefaultFileUploadController buildFileUploadController() {
         Assert.notNull(this.uploadFileTypes, "允许上传的文件类型不能为空");
         if(ALL_FILE_TYPES.equals(uploadFileTypes.trim())){
@@ -279,5 +367,172 @@ public class AnnotationServletServiceRouterFactoryBean
 	public void setEventPoolExecutor(ThreadPoolExecutor eventPoolExecutor) {
 		this.eventPoolExecutor = eventPoolExecutor;
 	}
-}
 
+	public boolean isAsyncEnable() {
+		return asyncEnable;
+	}
+
+	public void setAsyncEnable(boolean asyncEnable) {
+		this.asyncEnable = asyncEnable;
+	}
+
+	public List<ServicePoolDefinition> getServicePoolDefinitions() {
+		return servicePoolDefinitions;
+	}
+
+	public void setServicePoolDefinitions(List<ServicePoolDefinition> servicePoolDefinitions) {
+		this.servicePoolDefinitions = servicePoolDefinitions;
+	}
+
+	public ConcurrencyLimiter getConcurrencyLimiter() {
+		return concurrencyLimiter;
+	}
+
+	public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+
+	public boolean isCompressionEnable() {
+		return compressionEnable;
+	}
+
+	public void setCompressionEnable(boolean compressionEnable) {
+		this.compressionEnable = compressionEnable;
+	}
+
+	public int getCompressionMinSize() {
+		return compressionMinSize;
+	}
+
+	public void setCompressionMinSize(int compressionMinSize) {
+		this.compressionMinSize = compressionMinSize;
+	}
+
+	public String getCompressionContentTypes() {
+		return compressionContentTypes;
+	}
+
+	public void setCompressionContentTypes(String compressionContentTypes) {
+		this.compressionContentTypes = compressionContentTypes;
+	}
+
+	public boolean isWarmUpEnable() {
+		return warmUpEnable;
+	}
+
+	public void setWarmUpEnable(boolean warmUpEnable) {
+		this.warmUpEnable = warmUpEnable;
+	}
+
+	public int getWarmUpInvocations() {
+		return warmUpInvocations;
+	}
+
+	public void setWarmUpInvocations(int warmUpInvocations) {
+		this.warmUpInvocations = warmUpInvocations;
+	}
+
+	public boolean isBatchEnable() {
+		return batchEnable;
+	}
+
+	public void setBatchEnable(boolean batchEnable) {
+		this.batchEnable = batchEnable;
+	}
+
+	public int getBatchMaxCalls() {
+		return batchMaxCalls;
+	}
+
+	public void setBatchMaxCalls(int batchMaxCalls) {
+		this.batchMaxCalls = batchMaxCalls;
+	}
+
+	public ThreadPoolExecutor getBatchExecutor() {
+		return batchExecutor;
+	}
+
+	public void setBatchExecutor(ThreadPoolExecutor batchExecutor) {
+		this.batchExecutor = batchExecutor;
+	}
+
+	public boolean isReplayProtectionEnable() {
+		return replayProtectionEnable;
+	}
+
+	public int getAppSecretCacheSeconds() {
+		return appSecretCacheSeconds;
+	}
+
+	public void setAppSecretCacheSeconds(int appSecretCacheSeconds) {
+		this.appSecretCacheSeconds = appSecretCacheSeconds;
+	}
+
+	public void setReplayProtectionEnable(boolean replayProtectionEnable) {
+		this.replayProtectionEnable = replayProtectionEnable;
+	}
+
+	public int getReplayExpectedRequests() {
+		return replayExpectedRequests;
+	}
+
+	public void setReplayExpectedRequests(int replayExpectedRequests) {
+		this.replayExpectedRequests = replayExpectedRequests;
+	}
+
+	public ReplayGuard getReplayGuard() {
+		return replayGuard;
+	}
+
+	public void setReplayGuard(ReplayGuard replayGuard) {
+		this.replayGuard = replayGuard;
+	}
+
+	public boolean isUploadStreamingEnable() {
+		return uploadStreamingEnable;
+	}
+
+	public void setUploadStreamingEnable(boolean uploadStreamingEnable) {
+		this.uploadStreamingEnable = uploadStreamingEnable;
+	}
+
+	public String getUploadTempDir() {
+		return uploadTempDir;
+	}
+
+	public void setUploadTempDir(String uploadTempDir) {
+		this.uploadTempDir = uploadTempDir;
+	}
+
+	public long getUploadRequestMaxBytes() {
+		return uploadRequestMaxBytes;
+	}
+
+	public void setUploadRequestMaxBytes(long uploadRequestMaxBytes) {
+		this.uploadRequestMaxBytes = uploadRequestMaxBytes;
+	}
+
+	public long getUploadTotalSpoolBytes() {
+		return uploadTotalSpoolBytes;
+	}
+
+	public void setUploadTotalSpoolBytes(long uploadTotalSpoolBytes) {
+		this.uploadTotalSpoolBytes = uploadTotalSpoolBytes;
+	}
+
+	public long getRequestBodyMaxBytes() {
+		return requestBodyMaxBytes;
+	}
+
+	public void setRequestBodyMaxBytes(long requestBodyMaxBytes) {
+		this.requestBodyMaxBytes = requestBodyMaxBytes;
+	}
+
+	public UploadStreamHandler getUploadStreamHandler() {
+		return uploadStreamHandler;
+	}
+
+	public void setUploadStreamHandler(UploadStreamHandler uploadStreamHandler) {
+		this.uploadStreamHandler = uploadStreamHandler;
+	}
+}
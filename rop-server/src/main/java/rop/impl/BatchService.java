@@ -0,0 +1,33 @@
+package rop.impl;
+
+import rop.RopRequestContext;
+import rop.annotation.HttpAction;
+import rop.annotation.NeedInSessionType;
+import rop.annotation.ServiceMethod;
+import rop.request.BatchRequest;
+import rop.response.BatchResponse;
+
+/**
+ * <pre>
+ *     Rop框架内置的批量调用服务：一次HTTP请求以json请求体提交多个服务调用，批量调用本身按普通服务方法
+ *     进行时间戳、appKey、签名(对整个请求体)、访问权限及调用次数的检查，各服务调用由
+ *     {@link AnnotationServletServiceRouter}并行执行。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class BatchService {
+
+	private final AnnotationServletServiceRouter serviceRouter;
+
+	public BatchService(AnnotationServletServiceRouter serviceRouter) {
+		this.serviceRouter = serviceRouter;
+	}
+
+	@ServiceMethod(method = BatchRequest.METHOD, version = BatchRequest.VERSION, title = "批量调用",
+			httpAction = HttpAction.POST, needInSession = NeedInSessionType.NO)
+	public BatchResponse batch(BatchRequest batchRequest, RopRequestContext ropRequestContext) {
+		return serviceRouter.invokeBatch(ropRequestContext, batchRequest);
+	}
+}
@@ -0,0 +1,180 @@
+package rop.impl;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * <pre>
+ *     响应压缩输出流，支持gzip和deflate两种Content-Encoding。
+ *     每个线程各缓存一个{@link Deflater}，压缩完成后reset复用，避免每次请求都分配zlib的本地内存；
+ *     gzip的头部和尾部(CRC32及原始长度)由本类自行写出，因为{@link java.util.zip.GZIPOutputStream}不能指定Deflater。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class CompressingOutputStream extends FilterOutputStream {
+
+	public static final String ENCODING_GZIP = "gzip";
+
+	public static final String ENCODING_DEFLATE = "deflate";
+
+	private static final byte[] GZIP_HEADER = {
+			0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0
+	};
+
+	//gzip使用不带zlib头的原始deflate数据
+	private static final ThreadLocal<Deflater> gzipDeflaters = new ThreadLocal<Deflater>() {
+		@Override
+		protected Deflater initialValue() {
+			return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		}
+	};
+
+	private static final ThreadLocal<Deflater> zlibDeflaters = new ThreadLocal<Deflater>() {
+		@Override
+		protected Deflater initialValue() {
+			return new Deflater(Deflater.DEFAULT_COMPRESSION, false);
+		}
+	};
+
+	private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[8 * 1024];
+		}
+	};
+
+	private final boolean gzip;
+
+	private final Deflater deflater;
+
+	private final byte[] buf;
+
+	private final CRC32 crc;
+
+	private boolean finished;
+
+	public CompressingOutputStream(OutputStream out, String encoding) throws IOException {
+		super(out);
+		this.gzip = ENCODING_GZIP.equals(encoding);
+		this.deflater = gzip ? gzipDeflaters.get() : zlibDeflaters.get();
+		this.deflater.reset();
+		this.buf = buffers.get();
+		this.crc = gzip ? new CRC32() : null;
+		if (gzip) {
+			out.write(GZIP_HEADER);
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (finished) {
+			throw new IOException("write beyond end of stream");
+		}
+		if (len == 0) {
+			return;
+		}
+		if (gzip) {
+			crc.update(b, off, len);
+		}
+		deflater.setInput(b, off, len);
+		while (!deflater.needsInput()) {
+			deflate();
+		}
+	}
+
+	/**
+	 * 写出剩余的压缩数据(gzip还包括尾部)，不关闭底层输出流，Deflater重置后留给本线程的下一个请求使用
+	 *
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		try {
+			deflater.finish();
+			while (!deflater.finished()) {
+				deflate();
+			}
+			if (gzip) {
+				writeInt((int) crc.getValue());
+				writeInt(deflater.getTotalIn());
+			}
+		} finally {
+			deflater.reset();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+		super.close();
+	}
+
+	private void deflate() throws IOException {
+		int len = deflater.deflate(buf, 0, buf.length);
+		if (len > 0) {
+			out.write(buf, 0, len);
+		}
+	}
+
+	//gzip尾部使用小端序
+	private void writeInt(int i) throws IOException {
+		out.write(i & 0xff);
+		out.write((i >> 8) & 0xff);
+		out.write((i >> 16) & 0xff);
+		out.write((i >> 24) & 0xff);
+	}
+
+	/**
+	 * 根据请求的Accept-Encoding选择压缩方式，优先使用gzip，都不支持时返回null
+	 *
+	 * @param acceptEncoding
+	 * @return
+	 */
+	public static String selectEncoding(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+		boolean deflate = false;
+		for (String item : acceptEncoding.split(",")) {
+			String[] parts = item.trim().split(";");
+			String coding = parts[0].trim().toLowerCase();
+			if (isRefused(parts)) {
+				continue;
+			}
+			if (ENCODING_GZIP.equals(coding) || "*".equals(coding)) {
+				return ENCODING_GZIP;
+			} else if (ENCODING_DEFLATE.equals(coding)) {
+				deflate = true;
+			}
+		}
+		return deflate ? ENCODING_DEFLATE : null;
+	}
+
+	//q=0表示客户端明确拒绝该编码
+	private static boolean isRefused(String[] parts) {
+		for (int i = 1; i < parts.length; i++) {
+			String param = parts[i].trim();
+			if (param.startsWith("q=")) {
+				try {
+					return Double.parseDouble(param.substring(2)) <= 0;
+				} catch (NumberFormatException e) {
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+}
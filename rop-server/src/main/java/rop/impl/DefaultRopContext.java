@@ -36,12 +36,23 @@ public class DefaultRopContext implements RopContext {
 
     private final Set<String> serviceMethods = new HashSet<String>();
 
+    //按序号排列的服务处理器
+    private final List<ServiceMethodHandler> indexedHandlers = new ArrayList<ServiceMethodHandler>();
+
     private boolean signEnable;
 
     private SessionManager sessionManager;
 
 	private long timestampTolerance;
 
+    private final ServiceMethodInvokerFactory serviceMethodInvokerFactory = new ServiceMethodInvokerFactory();
+
+    private static final ReflectionUtils.MethodFilter SERVICE_METHOD_FILTER = new ReflectionUtils.MethodFilter() {
+        public boolean matches(Method method) {
+            return !method.isSynthetic() && AnnotationUtils.findAnnotation(method, ServiceMethod.class) != null;
+        }
+    };
+
     public DefaultRopContext(ApplicationContext context) {
         registerFromContext(context);
     }
@@ -49,7 +60,16 @@ public class DefaultRopContext implements RopContext {
     @Override
     public void addServiceMethod(String methodName, String version, ServiceMethodHandler serviceMethodHandler) {
         serviceMethods.add(methodName);
-        serviceHandlerMap.put(ServiceMethodHandler.methodWithVersion(methodName, version), serviceMethodHandler);
+        ServiceMethodHandler previous =
+                serviceHandlerMap.put(ServiceMethodHandler.methodWithVersion(methodName, version), serviceMethodHandler);
+        //同一方法版本重复注册时沿用原来的序号
+        if (previous != null) {
+            serviceMethodHandler.setIndex(previous.getIndex());
+            indexedHandlers.set(previous.getIndex(), serviceMethodHandler);
+        } else {
+            serviceMethodHandler.setIndex(indexedHandlers.size());
+            indexedHandlers.add(serviceMethodHandler);
+        }
     }
 
     @Override
@@ -58,6 +78,16 @@ public class DefaultRopContext implements RopContext {
     }
 
 
+    @Override
+    public ServiceMethodHandler getServiceMethodHandler(int index) {
+        return index >= 0 && index < indexedHandlers.size() ? indexedHandlers.get(index) : null;
+    }
+
+    @Override
+    public int getServiceMethodCount() {
+        return indexedHandlers.size();
+    }
+
     @Override
     public boolean isValidMethod(String methodName) {
         return serviceMethods.contains(methodName);
@@ -117,67 +147,81 @@ public class DefaultRopContext implements RopContext {
             if(AnnotationUtils.findAnnotation(handlerType,ServiceMethodBean.class) != null){
                 ReflectionUtils.doWithMethods(handlerType, new ReflectionUtils.MethodCallback() {
                             public void doWith(Method method) throws IllegalArgumentException, IllegalAccessException {
-                                ReflectionUtils.makeAccessible(method);
+                                registerServiceMethod(context.getBean(beanName), method);
+                            }
+                        },
+                        SERVICE_METHOD_FILTER
+                );
+            }
+        }
+        if (context.getParent() != null) {
+            registerFromContext(context.getParent());
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("共注册了" + serviceHandlerMap.size() + "个服务方法");
+        }
+    }
+
+    /**
+     * 注册非Spring容器管理的对象中标注了{@link ServiceMethod}的服务方法，如Rop框架内置的批量调用服务
+     *
+     * @param bean
+     */
+    public void registerServiceMethods(final Object bean) {
+        ReflectionUtils.doWithMethods(bean.getClass(), new ReflectionUtils.MethodCallback() {
+            public void doWith(Method method) throws IllegalArgumentException, IllegalAccessException {
+                registerServiceMethod(bean, method);
+            }
+        }, SERVICE_METHOD_FILTER);
+    }
 
-                                ServiceMethod serviceMethod = AnnotationUtils.findAnnotation(method,ServiceMethod.class);
-                                ServiceMethodBean serviceMethodBean =AnnotationUtils.findAnnotation(method.getDeclaringClass(),ServiceMethodBean.class);
+    private void registerServiceMethod(Object bean, Method method) {
+        ReflectionUtils.makeAccessible(method);
 
-                                ServiceMethodDefinition definition = null;
-                                if (serviceMethodBean != null) {
-                                    definition = buildServiceMethodDefinition(serviceMethodBean, serviceMethod);
-                                } else {
-                                    definition = buildServiceMethodDefinition(serviceMethod);
-                                }
+        ServiceMethod serviceMethod = AnnotationUtils.findAnnotation(method,ServiceMethod.class);
+        ServiceMethodBean serviceMethodBean =AnnotationUtils.findAnnotation(method.getDeclaringClass(),ServiceMethodBean.class);
 
-								//设置服务方法定义的参数注解 add by luopeng 2014.04.24
-								definition.setMethodParameterAnnotaions(method.getParameterAnnotations());
+        ServiceMethodDefinition definition = null;
+        if (serviceMethodBean != null) {
+            definition = buildServiceMethodDefinition(serviceMethodBean, serviceMethod);
+        } else {
+            definition = buildServiceMethodDefinition(serviceMethod);
+        }
 
-                                ServiceMethodHandler serviceMethodHandler = new ServiceMethodHandler();
-                                serviceMethodHandler.setServiceMethodDefinition(definition);
+        //设置服务方法定义的参数注解 add by luopeng 2014.04.24
+        definition.setMethodParameterAnnotaions(method.getParameterAnnotations());
 
-                                //1.set handler
-                                serviceMethodHandler.setHandler(context.getBean(beanName)); //handler
-                                serviceMethodHandler.setHandlerMethod(method); //handler'method
+        ServiceMethodHandler serviceMethodHandler = new ServiceMethodHandler();
+        serviceMethodHandler.setServiceMethodDefinition(definition);
 
-								List<Class<?>> methodParameterTypes = new ArrayList<Class<?>>();
-								Class<?>[] parameterTypes = method.getParameterTypes();
-								for(Class<?> type : parameterTypes){
-									if(!ClassUtils.isAssignable(RopRequestContext.class, type) && !ClassUtils.isAssignable(ServiceRequest.class, type)){
-										throw new RopException(method.getDeclaringClass().getName() + "." + method.getName()
-															   + "入参类型非法:" + type.getName());
-									}
-								}
+        //1.set handler
+        serviceMethodHandler.setHandler(bean); //handler
+        serviceMethodHandler.setHandlerMethod(method); //handler'method
 
-								serviceMethodHandler.setMethodParameterTypes(parameterTypes);
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for(Class<?> type : parameterTypes){
+            if(!ClassUtils.isAssignable(RopRequestContext.class, type) && !ClassUtils.isAssignable(ServiceRequest.class, type)){
+                throw new RopException(method.getDeclaringClass().getName() + "." + method.getName()
+                                       + "入参类型非法:" + type.getName());
+            }
+        }
 
-								List<Class<?>> classTypeList = Arrays.asList(parameterTypes);
-                                //2.set sign fieldNames
-                                serviceMethodHandler.setIgnoreSignFieldNames(RequestUtils.getIgnoreSignFieldNames(classTypeList));
+        serviceMethodHandler.setMethodParameterTypes(parameterTypes);
+        //入参类型合法后才生成调用器，非法的服务方法不会生成类
+        serviceMethodHandler.setServiceMethodInvoker(serviceMethodInvokerFactory.createInvoker(method));
 
-                                //3.set fileItemFieldNames
-                                serviceMethodHandler.setUploadFileFieldNames(getFileItemFieldNames(classTypeList));
+        List<Class<?>> classTypeList = Arrays.asList(parameterTypes);
+        //2.set sign fieldNames
+        serviceMethodHandler.setIgnoreSignFieldNames(RequestUtils.getIgnoreSignFieldNames(classTypeList));
 
-                                addServiceMethod(definition.getMethod(), definition.getVersion(), serviceMethodHandler);
+        //3.set fileItemFieldNames
+        serviceMethodHandler.setUploadFileFieldNames(getFileItemFieldNames(classTypeList));
 
-                                if (logger.isDebugEnabled()) {
-                                    logger.debug("注册服务方法：" + method.getDeclaringClass().getCanonicalName() +
-                                            "#" + method.getName() + "(..)");
-                                }
-                            }
-                        },
-                        new ReflectionUtils.MethodFilter() {
-                            public boolean matches(Method method) {
-                                return !method.isSynthetic() && AnnotationUtils.findAnnotation(method, ServiceMethod.class) != null;
-                            }
-                        }
-                );
-            }
-        }
-        if (context.getParent() != null) {
-            registerFromContext(context.getParent());
-        }
-        if (logger.isInfoEnabled()) {
-            logger.info("共注册了" + serviceHandlerMap.size() + "个服务方法");
+        addServiceMethod(definition.getMethod(), definition.getVersion(), serviceMethodHandler);
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("注册服务方法：" + method.getDeclaringClass().getCanonicalName() +
+                    "#" + method.getName() + "(..)");
         }
     }
 
@@ -194,6 +238,10 @@ public class DefaultRopContext implements RopContext {
         definition.setNeedInSession(NeedInSessionType.isNeedInSession(serviceMethod.needInSession()));
         definition.setObsoleted(ObsoletedType.isObsoleted(serviceMethod.obsoleted()));
         definition.setHttpAction(serviceMethod.httpAction());
+        setServicePool(definition, serviceMethod.pool(), serviceMethod.maxConcurrency(), serviceMethod.queueCapacity());
+        setResponseCache(definition, serviceMethod.cache());
+        definition.setMaxAge(serviceMethod.maxAge());
+        definition.setCoalesced(serviceMethod.coalesce());
         return definition;
     }
 
@@ -208,6 +256,7 @@ public class DefaultRopContext implements RopContext {
         definition.setNeedInSession(NeedInSessionType.isNeedInSession(serviceMethodBean.needInSession()));
         definition.setHttpAction(serviceMethodBean.httpAction());
         definition.setObsoleted(ObsoletedType.isObsoleted(serviceMethodBean.obsoleted()));
+        setServicePool(definition, serviceMethodBean.pool(), serviceMethodBean.maxConcurrency(), serviceMethodBean.queueCapacity());
 
         //如果ServiceMethod所提供的值和ServiceMethodGroup不一样，覆盖之
         definition.setMethod(serviceMethod.method());
@@ -249,9 +298,34 @@ public class DefaultRopContext implements RopContext {
             definition.setHttpAction(serviceMethod.httpAction());
         }
 
+        if (StringUtils.hasText(serviceMethod.pool()) || serviceMethod.maxConcurrency() > 0) {
+            setServicePool(definition, serviceMethod.pool(), serviceMethod.maxConcurrency(), serviceMethod.queueCapacity());
+        }
+
+        setResponseCache(definition, serviceMethod.cache());
+        definition.setMaxAge(serviceMethod.maxAge());
+        definition.setCoalesced(serviceMethod.coalesce());
+
         return definition;
     }
 
+    private void setServicePool(ServiceMethodDefinition definition, String pool, int maxConcurrency, int queueCapacity) {
+        definition.setPool(StringUtils.hasText(pool) ? pool : null);
+        definition.setMaxConcurrency(maxConcurrency);
+        definition.setQueueCapacity(queueCapacity);
+    }
+
+    /**
+     * 响应缓存只能在服务方法上声明，缓存范围依赖会话设置，所以需在needInSession确定后调用
+     */
+    private void setResponseCache(ServiceMethodDefinition definition, ResponseCache cache) {
+        definition.setCacheTtl(cache.ttl());
+        definition.setCacheMaxEntries(cache.maxEntries());
+        definition.setCacheMaxWeight(cache.maxWeight());
+        definition.setCacheKeyFields(cache.keyFields());
+        definition.setCacheScope(CacheScopeType.resolve(cache.scope(), definition.isNeedInSession()));
+    }
+
     private List<String> getFileItemFieldNames(List<Class<?>> classTypes) {
         final ArrayList<String> fileItemFieldNames = new ArrayList<String>(1);
 		for(Class<?> classType : classTypes){
@@ -0,0 +1,37 @@
+package rop.impl;
+
+import rop.ServiceMethodInvoker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * <pre>
+ *     基于反射的服务方法调用器，在无法生成字节码调用器时使用。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class ReflectiveServiceMethodInvoker implements ServiceMethodInvoker {
+
+	private final Method method;
+
+	public ReflectiveServiceMethodInvoker(Method method) {
+		this.method = method;
+	}
+
+	@Override
+	public Object invoke(Object handler, Object[] args) throws Throwable {
+		try {
+			return method.invoke(handler, args);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ReflectiveServiceMethodInvoker{" + method + "}";
+	}
+}
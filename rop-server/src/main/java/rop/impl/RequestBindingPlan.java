@@ -0,0 +1,231 @@
+package rop.impl;
+
+import org.apache.commons.beanutils.ConvertUtils;
+import org.apache.commons.beanutils.Converter;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ReflectionUtils;
+import rop.RopException;
+import rop.converter.Complex;
+import rop.converter.ConverterContainer;
+import rop.converter.RopConverter;
+import rop.converter.Style;
+import rop.thirdparty.com.alibaba.fastjson.JSON;
+import rop.utils.spring.AnnotationUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     {@link rop.request.ServiceRequest}的绑定计划，每个请求类只在第一次绑定时构建一次。
+ *     构建时确定每个可写属性的setter方法及取值转换方式：
+ *       1.属性类型有{@link RopConverter}时使用该转换器；
+ *       2.属性标注了{@link Complex}(style=JSON)时使用JSON反序列化；
+ *       3.String类型直接赋值；
+ *       4.其它类型(基本类型、包装类型、数组等)使用commons-beanutils预先查找好的转换器。
+ *     绑定时只需对请求参数做一次遍历，不再复制参数Map，也不再每次通过commons-beanutils的BeanUtils.populate进行内省。
+ *     参数名中含有"."或"["的嵌套属性仍交由commons-beanutils处理。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class RequestBindingPlan {
+
+	private final Class<?> classType;
+
+	private final Constructor<?> constructor;
+
+	private final Map<String, PropertyBinder> propertyBinders;
+
+	private RequestBindingPlan(Class<?> classType, Constructor<?> constructor, Map<String, PropertyBinder> propertyBinders) {
+		this.classType = classType;
+		this.constructor = constructor;
+		this.propertyBinders = propertyBinders;
+	}
+
+	/**
+	 * 构建请求类的绑定计划
+	 *
+	 * @param classType          请求类
+	 * @param converterContainer 自定义转换器
+	 * @return
+	 */
+	public static RequestBindingPlan build(Class<?> classType, ConverterContainer converterContainer) {
+		Constructor<?> constructor;
+		try {
+			constructor = classType.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			throw new RopException(classType.getName() + "没有默认的构造函数", e);
+		}
+		ReflectionUtils.makeAccessible(constructor);
+
+		Map<String, PropertyBinder> propertyBinders = new HashMap<String, PropertyBinder>();
+		for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(classType)) {
+			Method writeMethod = descriptor.getWriteMethod();
+			if (writeMethod == null) {
+				continue;
+			}
+			ReflectionUtils.makeAccessible(writeMethod);
+			String name = descriptor.getName();
+			Class<?> propertyType = descriptor.getPropertyType();
+			Field field = ReflectionUtils.findField(classType, name);
+
+			ValueResolver resolver;
+			if (field != null && converterContainer.support(field.getType())) {
+				resolver = new RopConverterResolver(converterContainer.getConverter(field.getType()));
+			} else if (field != null && Style.JSON.equals(getStyle(field))) {
+				resolver = new JsonResolver(field.getType());
+			} else if (propertyType == String.class) {
+				resolver = STRING_RESOLVER;
+			} else {
+				Converter converter = ConvertUtils.lookup(propertyType);
+				if (converter != null) {
+					resolver = new BeanUtilsConverterResolver(converter, propertyType);
+				} else if (propertyType.isAssignableFrom(String.class)) {
+					resolver = STRING_RESOLVER;
+				} else {
+					resolver = new UnsupportedResolver(propertyType);
+				}
+			}
+			propertyBinders.put(name, new PropertyBinder(name, writeMethod, resolver));
+		}
+		return new RequestBindingPlan(classType, constructor, propertyBinders);
+	}
+
+	/**
+	 * 创建请求对象并将请求参数绑定到对象中
+	 *
+	 * @param requestBodyMap 请求参数
+	 * @return
+	 */
+	public Object bind(Map<String, String> requestBodyMap) {
+		Object bindObject = BeanUtils.instantiateClass(constructor);
+		if (requestBodyMap == null) {
+			return bindObject;
+		}
+		try {
+			for (Map.Entry<String, String> entry : requestBodyMap.entrySet()) {
+				String name = entry.getKey();
+				PropertyBinder binder = propertyBinders.get(name);
+				if (binder != null) {
+					binder.bind(bindObject, entry.getValue());
+				} else if (name != null && (name.indexOf('.') >= 0 || name.indexOf('[') >= 0)) {
+					org.apache.commons.beanutils.BeanUtils.setProperty(bindObject, name, entry.getValue());
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new RopException("doBind error", e);
+		} catch (InvocationTargetException e) {
+			throw new RopException("doBind error", e);
+		}
+		return bindObject;
+	}
+
+	public Class<?> getClassType() {
+		return classType;
+	}
+
+	private static Style getStyle(Field field) {
+		Complex complex = AnnotationUtils.getAnnotation(field, Complex.class);
+		if (complex != null) {
+			return complex.style();
+		}
+		return null;
+	}
+
+	private static class PropertyBinder {
+
+		private final String name;
+
+		private final Method writeMethod;
+
+		private final ValueResolver resolver;
+
+		private PropertyBinder(String name, Method writeMethod, ValueResolver resolver) {
+			this.name = name;
+			this.writeMethod = writeMethod;
+			this.resolver = resolver;
+		}
+
+		void bind(Object target, String value) throws IllegalAccessException, InvocationTargetException {
+			writeMethod.invoke(target, resolver.resolve(name, value));
+		}
+	}
+
+	private interface ValueResolver {
+
+		Object resolve(String name, String value);
+	}
+
+	private static final ValueResolver STRING_RESOLVER = new ValueResolver() {
+		@Override
+		public Object resolve(String name, String value) {
+			return value;
+		}
+	};
+
+	private static class RopConverterResolver implements ValueResolver {
+
+		private final RopConverter<?> converter;
+
+		private RopConverterResolver(RopConverter<?> converter) {
+			this.converter = converter;
+		}
+
+		@Override
+		public Object resolve(String name, String value) {
+			return converter.convertToObject(value);
+		}
+	}
+
+	private static class JsonResolver implements ValueResolver {
+
+		private final Class<?> type;
+
+		private JsonResolver(Class<?> type) {
+			this.type = type;
+		}
+
+		@Override
+		public Object resolve(String name, String value) {
+			return JSON.parseObject(value, type);
+		}
+	}
+
+	private static class BeanUtilsConverterResolver implements ValueResolver {
+
+		private final Converter converter;
+
+		private final Class<?> type;
+
+		private BeanUtilsConverterResolver(Converter converter, Class<?> type) {
+			this.converter = converter;
+			this.type = type;
+		}
+
+		@Override
+		public Object resolve(String name, String value) {
+			return converter.convert(type, value);
+		}
+	}
+
+	private static class UnsupportedResolver implements ValueResolver {
+
+		private final Class<?> type;
+
+		private UnsupportedResolver(Class<?> type) {
+			this.type = type;
+		}
+
+		@Override
+		public Object resolve(String name, String value) {
+			throw new RopException("doBind error，不支持将参数" + name + "转换为" + type.getName());
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package rop.impl;
+
+import rop.MessageCodecRegistry;
+import rop.RopRequestContext;
+import rop.ServiceMethodDefinition;
+import rop.annotation.CacheScopeType;
+import rop.thirdparty.org.apache.commons.codec.binary.Hex;
+import rop.thirdparty.org.apache.commons.codec.digest.DigestUtils;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <pre>
+ *     请求的规范化指纹，用于响应缓存及相同请求的合并执行。与签名一样按参数名排序拼接业务参数，
+ *     但不包含时间戳、签名等每次请求都变化的内容，指纹是以下内容的SHA-1摘要：
+ *       1.服务方法名及版本；
+ *       2.响应的报文格式及本地化；
+ *       3.共享范围对应的appKey或会话ID(见{@link CacheScopeType})；
+ *       4.业务参数(可由{@link rop.annotation.ResponseCache#keyFields()}限定)，请求体为json、msgpack等报文时使用整个请求体。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class RequestFingerprint {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private RequestFingerprint() {
+	}
+
+	/**
+	 * 计算请求的指纹
+	 *
+	 * @param ropRequestContext
+	 * @param definition           服务方法定义，提供共享范围及参与指纹的参数名
+	 * @param messageCodecRegistry 用于规范化报文格式
+	 * @return 十六进制的摘要
+	 */
+	public static String of(RopRequestContext ropRequestContext, ServiceMethodDefinition definition,
+							MessageCodecRegistry messageCodecRegistry) {
+		MessageDigest digest = DigestUtils.getSha1Digest();
+		update(digest, definition.getMethod());
+		update(digest, definition.getVersion());
+		update(digest, messageCodecRegistry.getCodec(ropRequestContext.getFormat()).getFormat());
+		update(digest, String.valueOf(ropRequestContext.getLocale()));
+
+		CacheScopeType scope = definition.getCacheScope();
+		if (scope == CacheScopeType.SESSION) {
+			update(digest, ropRequestContext.getSessionId());
+		} else if (scope != CacheScopeType.GLOBAL) {
+			update(digest, ropRequestContext.getAppKey());
+		}
+
+		if (ropRequestContext.hasRequestBody()) {
+			digest.update(ropRequestContext.getRequestBody());
+		} else {
+			String[] keyFields = definition.getCacheKeyFields();
+			Map<String, String> params = new TreeMap<String, String>(ropRequestContext.getRequestBodyMap());
+			if (keyFields != null && keyFields.length > 0) {
+				params.keySet().retainAll(Arrays.asList(keyFields));
+			}
+			for (Map.Entry<String, String> entry : params.entrySet()) {
+				update(digest, entry.getKey());
+				update(digest, entry.getValue());
+			}
+		}
+		return Hex.encodeHexString(digest.digest());
+	}
+
+	/**
+	 * 带长度前缀写入摘要，避免不同的参数拼接后产生相同的内容
+	 */
+	private static void update(MessageDigest digest, String value) {
+		if (value == null) {
+			digest.update((byte) 0xff);
+			return;
+		}
+		byte[] bytes = value.getBytes(UTF8);
+		int length = bytes.length;
+		digest.update(new byte[]{(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+		digest.update(bytes);
+	}
+}
@@ -0,0 +1,78 @@
+package rop.impl;
+
+import rop.response.RopResponse;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ *     合并执行相同的并发服务调用(single-flight)：同一指纹的调用正在执行时，后到的调用不再执行，
+ *     而是等待并共用先到调用的响应，执行完成后即移除，不缓存结果。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class ServiceCallCoalescer {
+
+	private final ConcurrentMap<String, FutureTask<RopResponse>> inFlightCalls =
+			new ConcurrentHashMap<String, FutureTask<RopResponse>>();
+
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	/**
+	 * 执行服务调用，相同指纹的调用正在执行时等待其响应
+	 *
+	 * @param fingerprint 调用的指纹
+	 * @param call        服务调用
+	 * @return
+	 */
+	public RopResponse execute(String fingerprint, Callable<RopResponse> call) throws Exception {
+		FutureTask<RopResponse> task = new FutureTask<RopResponse>(call);
+		FutureTask<RopResponse> inFlight = inFlightCalls.putIfAbsent(fingerprint, task);
+		if (inFlight == null) {
+			try {
+				task.run();
+			} finally {
+				inFlightCalls.remove(fingerprint, task);
+			}
+			inFlight = task;
+		} else {
+			coalescedCount.incrementAndGet();
+		}
+		try {
+			return inFlight.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * 共用了其它调用响应的调用次数
+	 *
+	 * @return
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * 正在执行的可合并调用数
+	 *
+	 * @return
+	 */
+	public int getInFlightCount() {
+		return inFlightCalls.size();
+	}
+}
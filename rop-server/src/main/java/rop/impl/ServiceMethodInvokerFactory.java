@@ -0,0 +1,159 @@
+package rop.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rop.ServiceMethodInvoker;
+import rop.thirdparty.com.alibaba.fastjson.asm.ClassWriter;
+import rop.thirdparty.com.alibaba.fastjson.asm.MethodVisitor;
+import rop.thirdparty.com.alibaba.fastjson.util.ASMClassLoader;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static rop.thirdparty.com.alibaba.fastjson.asm.Opcodes.*;
+import static rop.thirdparty.com.alibaba.fastjson.util.ASMUtils.getDesc;
+import static rop.thirdparty.com.alibaba.fastjson.util.ASMUtils.getType;
+
+/**
+ * <pre>
+ *     服务方法调用器工厂。
+ *     使用内置的ASM为每个服务方法生成一个{@link ServiceMethodInvoker}实现类，生成的invoke方法将入参强制转型后
+ *     直接调用服务方法(invokevirtual/invokeinterface)，避免每次请求都走{@link Method#invoke}的反射调用。
+ *     以下情况无法直接调用，退化为{@link ReflectiveServiceMethodInvoker}：
+ *       1.服务类、服务方法或入参类型不是public的；
+ *       2.静态方法或返回值为基本类型的方法；
+ *       3.生成或加载字节码失败。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class ServiceMethodInvokerFactory {
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private static final String INVOKER_TYPE = getType(ServiceMethodInvoker.class);
+
+	private static final String INVOKE_DESC = "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
+
+	private static final AtomicLong seed = new AtomicLong();
+
+	/**
+	 * 每个服务类所在的类加载器对应一个ASMClassLoader，保证生成的类能访问到服务类
+	 */
+	private final Map<ClassLoader, ASMClassLoader> classLoaders = new HashMap<ClassLoader, ASMClassLoader>();
+
+	private boolean asmEnable = true;
+
+	/**
+	 * 为服务方法创建调用器，优先使用字节码生成的直接调用器
+	 *
+	 * @param method 服务方法
+	 * @return
+	 */
+	public ServiceMethodInvoker createInvoker(Method method) {
+		if (asmEnable && isAsmSupported(method)) {
+			try {
+				return createAsmInvoker(method);
+			} catch (Throwable e) {
+				logger.warn("生成服务方法调用器失败，改用反射调用：" + method, e);
+			}
+		}
+		return new ReflectiveServiceMethodInvoker(method);
+	}
+
+	private boolean isAsmSupported(Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		if (declaringClass.getClassLoader() == null) {
+			return false;
+		}
+		if (!Modifier.isPublic(declaringClass.getModifiers()) || !Modifier.isPublic(method.getModifiers())
+				|| Modifier.isStatic(method.getModifiers())) {
+			return false;
+		}
+		if (method.getReturnType().isPrimitive() && method.getReturnType() != Void.TYPE) {
+			return false;
+		}
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		if (parameterTypes.length > Byte.MAX_VALUE) {
+			return false;
+		}
+		for (Class<?> parameterType : parameterTypes) {
+			if (parameterType.isPrimitive() || !Modifier.isPublic(parameterType.getModifiers())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private ServiceMethodInvoker createAsmInvoker(Method method) throws Exception {
+		Class<?> declaringClass = method.getDeclaringClass();
+		String className = "RopInvoker_" + declaringClass.getSimpleName() + "_" + method.getName() + "_"
+				+ seed.incrementAndGet();
+		String ownerType = getType(declaringClass);
+
+		ClassWriter cw = new ClassWriter();
+		cw.visit(V1_5, ACC_PUBLIC + ACC_SUPER, className, "java/lang/Object", new String[]{INVOKER_TYPE});
+
+		MethodVisitor mw = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+		mw.visitVarInsn(ALOAD, 0);
+		mw.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+		mw.visitInsn(RETURN);
+		mw.visitMaxs(1, 1);
+		mw.visitEnd();
+
+		//invoke(Object handler, Object[] args): return ((Owner) handler).method((P0) args[0], (P1) args[1], ...);
+		mw = cw.visitMethod(ACC_PUBLIC, "invoke", INVOKE_DESC, null, null);
+		mw.visitVarInsn(ALOAD, 1);
+		mw.visitTypeInsn(CHECKCAST, ownerType);
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			mw.visitVarInsn(ALOAD, 2);
+			mw.visitIntInsn(BIPUSH, i);
+			mw.visitInsn(AALOAD);
+			mw.visitTypeInsn(CHECKCAST, getType(parameterTypes[i]));
+		}
+		int invokeOpcode = declaringClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL;
+		mw.visitMethodInsn(invokeOpcode, ownerType, method.getName(), getDesc(method));
+		if (method.getReturnType() == Void.TYPE) {
+			mw.visitInsn(ACONST_NULL);
+		}
+		mw.visitInsn(ARETURN);
+		mw.visitMaxs(parameterTypes.length + 3, 3);
+		mw.visitEnd();
+
+		byte[] code = cw.toByteArray();
+		Class<?> invokerClass = getClassLoader(declaringClass).defineClassPublic(className, code, 0, code.length);
+		ServiceMethodInvoker invoker = (ServiceMethodInvoker) invokerClass.newInstance();
+		if (logger.isDebugEnabled()) {
+			logger.debug("生成服务方法调用器" + className + "：" + method);
+		}
+		return invoker;
+	}
+
+	private synchronized ASMClassLoader getClassLoader(Class<?> declaringClass) {
+		ClassLoader parent = declaringClass.getClassLoader();
+		ASMClassLoader classLoader = classLoaders.get(parent);
+		if (classLoader == null) {
+			classLoader = new ASMClassLoader(parent);
+			classLoaders.put(parent, classLoader);
+		}
+		return classLoader;
+	}
+
+	public boolean isAsmEnable() {
+		return asmEnable;
+	}
+
+	/**
+	 * 是否使用字节码生成调用器，为false时全部使用反射调用
+	 *
+	 * @param asmEnable
+	 */
+	public void setAsmEnable(boolean asmEnable) {
+		this.asmEnable = asmEnable;
+	}
+}
@@ -0,0 +1,202 @@
+package rop.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+import rop.MessageCodec;
+import rop.MessageCodecRegistry;
+import rop.RopContext;
+import rop.ServiceMethodHandler;
+import rop.request.ServiceRequest;
+import rop.thirdparty.com.alibaba.fastjson.parser.ParserConfig;
+import rop.thirdparty.com.alibaba.fastjson.serializer.JSONSerializer;
+import rop.thirdparty.com.alibaba.fastjson.serializer.SerializeWriter;
+
+import java.beans.PropertyDescriptor;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <pre>
+ *     服务方法预热器，在Rop框架启动时(产生{@link rop.event.RopStartedEvent}之前)执行：
+ *       1.遍历所有服务方法的请求类及声明的返回类型(包括其属性中引用的类型)，预先创建fastjson的序列化器(ASM生成)和反序列化器；
+ *       2.预先构建请求类的{@link RequestBindingPlan}；
+ *       3.可选地对每个服务方法执行若干次模拟调用(绑定空请求，按各报文格式序列化/反序列化返回类型的实例)，让JIT提前编译热点路径。
+ *     模拟调用不会执行服务方法本身，以免产生业务副作用。预热出错只记录日志，不影响框架启动。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class ServiceMethodWarmer {
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final RopContext ropContext;
+
+	private final ServletRequestContextBuilder requestContextBuilder;
+
+	private final MessageCodecRegistry messageCodecRegistry;
+
+	//已预热的类，一个类被多个服务方法引用时只预热一次
+	private final Set<Class<?>> warmedClasses = new LinkedHashSet<Class<?>>();
+
+	public ServiceMethodWarmer(RopContext ropContext, ServletRequestContextBuilder requestContextBuilder,
+							   MessageCodecRegistry messageCodecRegistry) {
+		this.ropContext = ropContext;
+		this.requestContextBuilder = requestContextBuilder;
+		this.messageCodecRegistry = messageCodecRegistry;
+	}
+
+	/**
+	 * 预热所有服务方法
+	 *
+	 * @param invocations 每个服务方法的模拟调用次数，为0时不进行模拟调用
+	 */
+	public void warmUp(int invocations) {
+		long beginTime = System.currentTimeMillis();
+		Map<String, ServiceMethodHandler> handlers = ropContext.getAllServiceMethodHandlers();
+		for (ServiceMethodHandler handler : handlers.values()) {
+			warmUp(handler, invocations);
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("预热{}个服务方法，共{}个类，耗时{}ms", new Object[]{handlers.size(), warmedClasses.size(),
+					System.currentTimeMillis() - beginTime});
+		}
+	}
+
+	private void warmUp(ServiceMethodHandler handler, int invocations) {
+		Method handlerMethod = handler.getHandlerMethod();
+		Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+		for (Type parameterType : handlerMethod.getGenericParameterTypes()) {
+			collectClasses(parameterType, classes);
+		}
+		collectClasses(handlerMethod.getGenericReturnType(), classes);
+
+		for (Class<?> clazz : classes) {
+			if (warmedClasses.add(clazz)) {
+				warmUpClass(clazz);
+			}
+		}
+
+		if (invocations > 0) {
+			long beginTime = System.currentTimeMillis();
+			for (int i = 0; i < invocations; i++) {
+				simulateInvocation(handler);
+			}
+			if (logger.isInfoEnabled()) {
+				logger.info("服务方法{}({})模拟调用{}次，耗时{}ms", new Object[]{
+						handler.getServiceMethodDefinition().getMethod(), handler.getServiceMethodDefinition().getVersion(),
+						invocations, System.currentTimeMillis() - beginTime});
+			}
+		}
+	}
+
+	/**
+	 * 创建类的fastjson序列化器、反序列化器，请求类还要构建绑定计划
+	 *
+	 * @param clazz
+	 */
+	private void warmUpClass(Class<?> clazz) {
+		long beginTime = System.nanoTime();
+		try {
+			SerializeWriter out = new SerializeWriter();
+			try {
+				new JSONSerializer(out).getObjectWriter(clazz);
+			} finally {
+				out.close();
+			}
+			if (isInstantiable(clazz)) {
+				ParserConfig.getGlobalInstance().getDeserializer(clazz);
+			}
+			if (ServiceRequest.class.isAssignableFrom(clazz) && isInstantiable(clazz)) {
+				requestContextBuilder.getBindingPlan(clazz);
+			}
+		} catch (Throwable e) {
+			logger.warn("预热" + clazz.getName() + "出错，将在第一次请求时初始化", e);
+			return;
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("预热{}耗时{}ms", clazz.getName(), (System.nanoTime() - beginTime) / 1000000.0);
+		}
+	}
+
+	private void simulateInvocation(ServiceMethodHandler handler) {
+		try {
+			for (Class<?> parameterType : handler.getMethodParameterTypes()) {
+				if (ClassUtils.isAssignable(ServiceRequest.class, parameterType) && isInstantiable(parameterType)) {
+					requestContextBuilder.getBindingPlan(parameterType).bind(Collections.<String, String>emptyMap());
+				}
+			}
+			Class<?> returnType = handler.getHandlerMethod().getReturnType();
+			if (isInstantiable(returnType)) {
+				Object response = BeanUtils.instantiateClass(returnType);
+				for (String format : new String[]{MessageCodecRegistry.FORMAT_JSON, MessageCodecRegistry.FORMAT_MSGPACK}) {
+					MessageCodec codec = messageCodecRegistry.getCodec(format);
+					ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+					codec.getMarshaller().marshaller(response, out);
+					codec.getUnmarshaller().unmarshaller(out.toByteArray(), returnType);
+				}
+			}
+		} catch (Throwable e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("模拟调用服务方法" + handler.getServiceMethodDefinition().getMethod() + "出错", e);
+			}
+		}
+	}
+
+	/**
+	 * 收集类型中引用的所有应用类(非JDK类)，包括泛型参数、数组元素及Bean属性的类型
+	 *
+	 * @param type
+	 * @param classes
+	 */
+	private void collectClasses(Type type, Set<Class<?>> classes) {
+		if (type instanceof ParameterizedType) {
+			collectClasses(((ParameterizedType) type).getRawType(), classes);
+			for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+				collectClasses(argument, classes);
+			}
+		} else if (type instanceof GenericArrayType) {
+			collectClasses(((GenericArrayType) type).getGenericComponentType(), classes);
+		} else if (type instanceof Class) {
+			Class<?> clazz = (Class<?>) type;
+			if (clazz.isArray()) {
+				collectClasses(clazz.getComponentType(), classes);
+			} else if (!clazz.isPrimitive() && !clazz.isEnum() && !clazz.isInterface() && !isJdkClass(clazz)
+					&& classes.add(clazz)) {
+				for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(clazz)) {
+					if (descriptor.getReadMethod() != null && descriptor.getReadMethod().getDeclaringClass() != Object.class) {
+						collectClasses(descriptor.getReadMethod().getGenericReturnType(), classes);
+					}
+				}
+			}
+		}
+	}
+
+	private static boolean isJdkClass(Class<?> clazz) {
+		String name = clazz.getName();
+		return name.startsWith("java.") || name.startsWith("javax.");
+	}
+
+	private static boolean isInstantiable(Class<?> clazz) {
+		if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers()) || clazz.isPrimitive() || clazz.isArray()) {
+			return false;
+		}
+		try {
+			clazz.getDeclaredConstructor();
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+}
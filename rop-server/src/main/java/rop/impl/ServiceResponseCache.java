@@ -0,0 +1,180 @@
+package rop.impl;
+
+import org.apache.commons.fileupload.FileItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rop.MessageCodecRegistry;
+import rop.RopContext;
+import rop.RopRequestContext;
+import rop.ServiceMethodDefinition;
+import rop.ServiceMethodHandler;
+import rop.thirdparty.com.google.common.cache.Cache;
+import rop.thirdparty.com.google.common.cache.CacheBuilder;
+import rop.thirdparty.com.google.common.cache.CacheStats;
+import rop.thirdparty.com.google.common.cache.Weigher;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     服务方法的响应缓存，每个声明了{@link rop.annotation.ResponseCache}的服务方法有一个独立的缓存，
+ *     缓存的是序列化后的响应报文，按报文字节数计算权重。
+ *     缓存键为请求的{@link RequestFingerprint}。
+ *     上传文件的服务方法不缓存。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class ServiceResponseCache {
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	//按响应报文的字节数及缓存键的大小计算权重
+	private static final Weigher<String, byte[]> RESPONSE_WEIGHER = new Weigher<String, byte[]>() {
+		@Override
+		public int weigh(String key, byte[] value) {
+			return key.length() * 2 + value.length;
+		}
+	};
+
+	private final MessageCodecRegistry messageCodecRegistry;
+
+	//启动后只读
+	private final Map<ServiceMethodHandler, Cache<String, byte[]>> caches =
+			new IdentityHashMap<ServiceMethodHandler, Cache<String, byte[]>>();
+
+	public ServiceResponseCache(RopContext ropContext, MessageCodecRegistry messageCodecRegistry) {
+		this.messageCodecRegistry = messageCodecRegistry;
+		for (ServiceMethodHandler handler : ropContext.getAllServiceMethodHandlers().values()) {
+			ServiceMethodDefinition definition = handler.getServiceMethodDefinition();
+			if (definition.isResponseCached()) {
+				if (handler.hasUploadFiles()) {
+					logger.warn("服务方法{}({})包含上传文件，不缓存响应", definition.getMethod(), definition.getVersion());
+					continue;
+				}
+				caches.put(handler, buildCache(definition));
+				if (logger.isInfoEnabled()) {
+					logger.info("服务方法{}({})开启响应缓存，存活时间{}秒", new Object[]{definition.getMethod(),
+							definition.getVersion(), definition.getCacheTtl()});
+				}
+			}
+		}
+	}
+
+	private Cache<String, byte[]> buildCache(ServiceMethodDefinition definition) {
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+				.expireAfterWrite(definition.getCacheTtl(), TimeUnit.SECONDS)
+				.recordStats();
+		if (definition.getCacheMaxWeight() > 0) {
+			return builder.maximumWeight(definition.getCacheMaxWeight()).weigher(RESPONSE_WEIGHER).build();
+		}
+		if (definition.getCacheMaxEntries() > 0) {
+			builder.maximumSize(definition.getCacheMaxEntries());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * 获取请求对应的缓存位置，服务方法未开启响应缓存时返回null
+	 *
+	 * @param ropRequestContext
+	 * @return
+	 */
+	public CacheSlot getSlot(RopRequestContext ropRequestContext) {
+		ServiceMethodHandler handler = ropRequestContext.getServiceMethodHandler();
+		if (handler == null || caches.isEmpty()) {
+			return null;
+		}
+		Cache<String, byte[]> cache = caches.get(handler);
+		if (cache == null) {
+			return null;
+		}
+		List<FileItem> fileItems = ropRequestContext.getFileItems();
+		if (fileItems != null && !fileItems.isEmpty()) {
+			return null;
+		}
+		return new CacheSlot(cache, RequestFingerprint.of(ropRequestContext, handler.getServiceMethodDefinition(), messageCodecRegistry));
+	}
+
+	/**
+	 * 获取服务方法的缓存统计信息，未开启响应缓存时返回null
+	 *
+	 * @param method
+	 * @param version
+	 * @return
+	 */
+	public CacheStats getStats(String method, String version) {
+		Cache<String, byte[]> cache = getCache(method, version);
+		return cache == null ? null : cache.stats();
+	}
+
+	/**
+	 * 获取所有开启响应缓存的服务方法的缓存统计信息
+	 *
+	 * @return 键为{@link ServiceMethodHandler#methodWithVersion(String, String)}
+	 */
+	public Map<String, CacheStats> getStats() {
+		Map<String, CacheStats> stats = new LinkedHashMap<String, CacheStats>(caches.size());
+		for (Map.Entry<ServiceMethodHandler, Cache<String, byte[]>> entry : caches.entrySet()) {
+			ServiceMethodDefinition definition = entry.getKey().getServiceMethodDefinition();
+			stats.put(ServiceMethodHandler.methodWithVersion(definition.getMethod(), definition.getVersion()),
+					entry.getValue().stats());
+		}
+		return stats;
+	}
+
+	/**
+	 * 清空服务方法的响应缓存，业务数据变更时调用
+	 *
+	 * @param method
+	 * @param version
+	 */
+	public void invalidate(String method, String version) {
+		Cache<String, byte[]> cache = getCache(method, version);
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+	}
+
+	private Cache<String, byte[]> getCache(String method, String version) {
+		String methodWithVersion = ServiceMethodHandler.methodWithVersion(method, version);
+		for (Map.Entry<ServiceMethodHandler, Cache<String, byte[]>> entry : caches.entrySet()) {
+			ServiceMethodDefinition definition = entry.getKey().getServiceMethodDefinition();
+			if (methodWithVersion.equals(ServiceMethodHandler.methodWithVersion(definition.getMethod(), definition.getVersion()))) {
+				return entry.getValue();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 一次请求在缓存中的位置：未命中时，服务方法执行成功后由响应输出环节写入序列化后的报文
+	 */
+	public static class CacheSlot {
+
+		private final Cache<String, byte[]> cache;
+
+		private final String key;
+
+		private CacheSlot(Cache<String, byte[]> cache, String key) {
+			this.cache = cache;
+			this.key = key;
+		}
+
+		/**
+		 * @return 缓存的响应报文，未命中时返回null
+		 */
+		public byte[] getContent() {
+			return cache.getIfPresent(key);
+		}
+
+		public void setContent(byte[] content) {
+			cache.put(key, content);
+		}
+	}
+}
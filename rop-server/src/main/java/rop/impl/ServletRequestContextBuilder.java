@@ -11,7 +11,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeanUtils;
 import org.springframework.http.MediaType;
 import org.springframework.util.ClassUtils;
-import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StreamUtils;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
@@ -20,24 +20,27 @@ import org.springframework.validation.SmartValidator;
 import rop.*;
 import rop.annotation.HttpAction;
 import rop.annotation.ParamValid;
-import rop.converter.Complex;
 import rop.converter.ConverterContainer;
-import rop.converter.RopConverter;
-import rop.converter.Style;
+import rop.msgpack.MessagePackException;
+import rop.request.BatchCall;
 import rop.request.ServiceRequest;
 import rop.request.SystemParameterNames;
 import rop.session.SessionManager;
-import rop.thirdparty.com.alibaba.fastjson.JSON;
+import rop.thirdparty.com.alibaba.fastjson.JSONException;
+import rop.thirdparty.org.apache.commons.codec.binary.Base64;
 import rop.utils.RopUtils;
-import rop.utils.spring.AnnotationUtils;
 
 import javax.servlet.http.HttpServletRequest;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <pre>
@@ -63,6 +66,19 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
 
 	private SessionManager sessionManager;
 
+	private MessageCodecRegistry messageCodecRegistry = MessageCodecRegistry.createDefault();
+
+	//不为null时流式解析multipart请求
+	private StreamingMultipartParser multipartParser;
+
+	//读取请求体的初始缓冲区的最大字节数，不按客户端声明的Content-Length一次分配
+	private static final int MAX_INITIAL_BODY_BUFFER = 64 * 1024;
+
+	//按已注册格式读取的请求体的最大字节数，0表示不限制
+	private long requestBodyMaxBytes;
+
+	private final ConcurrentMap<Class<?>, RequestBindingPlan> bindingPlans = new ConcurrentHashMap<Class<?>, RequestBindingPlan>();
+
 	public ServletRequestContextBuilder(ConverterContainer converterContainer, SessionManager sessionManager) {
 		this.converterContainer = converterContainer;
 		this.sessionManager = sessionManager;
@@ -70,6 +86,19 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
 
 	@Override
 	public SimpleRopRequestContext buildSystemParams(RopContext ropContext, Object request) {
+		return buildSystemParams(ropContext, request, true);
+	}
+
+	/**
+	 * 创建请求上下文
+	 *
+	 * @param ropContext
+	 * @param request
+	 * @param parseBody  是否读取请求体，为false时不读取上传数据及JSON等格式的请求体，业务参数为空，
+	 *                   用于拒绝服务、超时等错误事件，避免为已失败的请求读取并暂存请求体
+	 * @return
+	 */
+	public SimpleRopRequestContext buildSystemParams(RopContext ropContext, Object request, boolean parseBody) {
 		if (!(request instanceof HttpServletRequest)) {
 			throw new IllegalArgumentException("请求对象必须是HttpServletRequest的类型");
 		}
@@ -87,8 +116,14 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
 		resolveHeaders(servletRequest, requestContext);
 
 		//处理Content-Type为multipart情况
-		if (isMultipartRequest(servletRequest)) {
+		MessageCodec bodyCodec;
+		if (!parseBody && (isMultipartRequest(servletRequest)
+				|| messageCodecRegistry.getCodecByContentType(servletRequest.getContentType()) != null)) {
+			requestContext.setRequestBodyMap(new HashMap<String, String>(0));
+		} else if (isMultipartRequest(servletRequest)) {
 			buildBusinessParamsMultipart(requestContext, servletRequest);
+		} else if ((bodyCodec = messageCodecRegistry.getCodecByContentType(servletRequest.getContentType())) != null) {
+			buildBusinessParamsBody(requestContext, servletRequest, bodyCodec);
 		} else {
 			requestContext.setRequestBodyMap(getRequestParams(servletRequest));
 		}
@@ -101,6 +136,43 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
 		return requestContext;
 	}
 
+	/**
+	 * 创建批量调用中一个服务调用的请求上下文：系统级参数(appKey、会话、本地化、报文格式等)取自批量调用的请求，
+	 * 业务参数为该服务调用的params，不再进行签名检查
+	 *
+	 * @param batchContext 批量调用的请求上下文
+	 * @param call         服务调用
+	 * @param index        服务调用在批量调用中的序号，作为请求ID的后缀
+	 * @return
+	 */
+	public SimpleRopRequestContext buildBatchCallParams(RopRequestContext batchContext, BatchCall call, int index) {
+		SimpleRopRequestContext requestContext = new SimpleRopRequestContext(batchContext.getRopContext());
+		requestContext.setRawRequestObject(batchContext.getRawRequestObject());
+		requestContext.setRequestId(batchContext.getRequestId() + "-" + index);
+		requestContext.setIp(batchContext.getIp());
+		requestContext.setAppKey(batchContext.getAppKey());
+		requestContext.setAppkeyUserId(batchContext.getAppkeyUserId());
+		requestContext.setSessionId(batchContext.getSessionId());
+		requestContext.setLocale(batchContext.getLocale());
+		requestContext.setFormat(batchContext.getFormat());
+		requestContext.setTimestamp(batchContext.getTimestamp());
+		requestContext.setExtInfoMap(batchContext.getExtInfoMap());
+		requestContext.setHttpAction(batchContext.getHttpAction());
+		requestContext.setMethod(call.getMethod());
+		requestContext.setVersion(call.getVersion());
+
+		Map<String, String> headerMap = new HashMap<String, String>(batchContext.getRequestHeaderMap());
+		headerMap.remove(SystemParameterNames.getSign());
+		headerMap.put(SystemParameterNames.getMethod(), call.getMethod());
+		headerMap.put(SystemParameterNames.getVersion(), call.getVersion());
+		requestContext.setRequestHeaderMap(headerMap);
+
+		requestContext.setRequestBodyMap(call.getParams() != null ? call.getParams() : new HashMap<String, String>(0));
+		requestContext.setServiceMethodHandler(
+				batchContext.getRopContext().getServiceMethodHandler(call.getMethod(), call.getVersion()));
+		return requestContext;
+	}
+
 	public static String getRopRequestId(HttpServletRequest request){
 		return (String)request.getAttribute(AnnotationServletServiceRouter.ROP_REQUEST_ID);
 	}
@@ -114,6 +186,7 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
 		String timestamp = servletRequest.getHeader(SystemParameterNames.getTimestamp());
 		String format = servletRequest.getHeader(SystemParameterNames.getFormat());
 		String locale = servletRequest.getHeader(SystemParameterNames.getLocale());
+		String signMethod = servletRequest.getHeader(SystemParameterNames.getSignMethod());
 		Map<String,String> extInfoMap = resolveExt(servletRequest,requestContext);
 
 		requestContext.setExtInfoMap(extInfoMap);
@@ -150,6 +223,10 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
 			requestContext.setLocale(getLocale(servletRequest));
 		}
 
+		if (signMethod != null) {
+			headerMap.put(SystemParameterNames.getSignMethod(), signMethod);
+		}
+
 		requestContext.setHttpAction(HttpAction.fromValue(servletRequest.getMethod()));
 
 		requestContext.setRequestHeaderMap(headerMap);
@@ -164,6 +241,46 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
 		return servletRequest.getContentType() != null && servletRequest.getContentType().startsWith(MediaType.MULTIPART_FORM_DATA_VALUE);
 	}
 
+	/**
+	 * 读取application/json、application/x-msgpack等已注册格式的请求体，业务参数在绑定时直接由请求体反序列化为{@link ServiceRequest}，不再经过参数Map。
+	 * 请求体在签名检查之前读取，超过requestBodyMaxBytes时立即停止读取，抛出{@link RopRequestParseException}
+	 *
+	 * @param requestContext
+	 * @param servletRequest
+	 * @param bodyCodec      请求体的编解码器
+	 */
+	private void buildBusinessParamsBody(SimpleRopRequestContext requestContext, HttpServletRequest servletRequest,
+										 MessageCodec bodyCodec) {
+		try {
+			requestContext.setRequestBodyCodec(bodyCodec);
+			int contentLength = servletRequest.getContentLength();
+			if (requestBodyMaxBytes > 0 && contentLength > requestBodyMaxBytes) {
+				throw bodyTooLarge(contentLength);
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream(
+					contentLength > 0 ? Math.min(contentLength, MAX_INITIAL_BODY_BUFFER) : StreamUtils.BUFFER_SIZE);
+			InputStream in = servletRequest.getInputStream();
+			byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+			long total = 0;
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				total += read;
+				if (requestBodyMaxBytes > 0 && total > requestBodyMaxBytes) {
+					throw bodyTooLarge(total);
+				}
+				out.write(buffer, 0, read);
+			}
+			requestContext.setRequestBody(out.toByteArray());
+			requestContext.setRequestBodyMap(new HashMap<String, String>(0));
+		} catch (IOException e) {
+			throw new RopException("读取请求体出错", e);
+		}
+	}
+
+	private RopRequestParseException bodyTooLarge(long length) {
+		return new RopRequestParseException("", "请求体超过" + requestBodyMaxBytes + "字节:" + length);
+	}
+
 	/**
 	 * 处理文件上传绑定取值
 	 *
@@ -171,6 +288,10 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
 	 * @param servletRequest
 	 */
 	private void buildBusinessParamsMultipart(SimpleRopRequestContext requestContext, HttpServletRequest servletRequest) {
+		if (multipartParser != null) {
+			multipartParser.parse(requestContext, servletRequest);
+			return;
+		}
 		ServletFileUpload upload = new ServletFileUpload(new DiskFileItemFactory());
 		upload.setHeaderEncoding(Constants.UTF8);
 		try {
@@ -302,34 +423,11 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
 
 	private BindingResult doBind(HttpServletRequest webRequest, final RopRequestContext ropRequestContext, Class<?> classType, int index) {
 
-		final Map<String, String> requestBodyMap = ropRequestContext.getRequestBodyMap();
-
-		final Map<String, Object> newRequestBodyMap = new HashMap<String, Object>();
-		for (Map.Entry<String, String> entry : requestBodyMap.entrySet()) {
-			newRequestBodyMap.put(entry.getKey(), entry.getValue());
-		}
-
-		//处理转换
-		ReflectionUtils.doWithFields(classType,new ReflectionUtils.FieldCallback() {
-			@Override
-			public void doWith(Field field) throws IllegalArgumentException, IllegalAccessException {
-				if (converterContainer.support(field.getType()) && requestBodyMap.containsKey(field.getName())) {
-					RopConverter converter = converterContainer.getConverter(field.getType());
-					newRequestBodyMap.put(field.getName(), converter.convertToObject(requestBodyMap.get(field.getName())));
-				}else if(Style.JSON.equals(getStyle(field))){
-					newRequestBodyMap.put(field.getName(), JSON.parseObject(requestBodyMap.get(field.getName()),field.getType()));
-				}
-			}
-		});
-
-		//作转换,效率可能存在一定问题
-		final Object bindObject = BeanUtils.instantiateClass(classType);
-		try {
-			org.apache.commons.beanutils.BeanUtils.populate(bindObject, newRequestBodyMap);
-		} catch (IllegalAccessException e) {
-			throw new RopException("doBind error", e);
-		} catch (InvocationTargetException e) {
-			throw new RopException("doBind error", e);
+		final Object bindObject;
+		if (ropRequestContext.hasRequestBody()) {
+			bindObject = bindRequestBody(ropRequestContext.getRequestBody(), ropRequestContext.getRequestBodyCodec(), classType);
+		} else {
+			bindObject = getBindingPlan(classType).bind(ropRequestContext.getRequestBodyMap());
 		}
 		BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(bindObject, "bindObject");
 
@@ -352,18 +450,78 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
 
 	}
 
-	private Style getStyle(Field field){
-		Complex complex = AnnotationUtils.getAnnotation(field, Complex.class);
-		if(complex != null){
-			return complex.style();
+	private Object bindRequestBody(byte[] requestBody, MessageCodec bodyCodec, Class<?> classType) {
+		Object bindObject = null;
+		if (requestBody.length > 0) {
+			try {
+				bindObject = bodyCodec.getUnmarshaller().unmarshaller(requestBody, classType);
+			} catch (JSONException e) {
+				throw new RopRequestParseException(new String(requestBody, Charset.forName(Constants.UTF8)),
+												   "JSON请求体格式错误", e);
+			} catch (MessagePackException e) {
+				throw new RopRequestParseException(Base64.encodeBase64String(requestBody),
+												   "MessagePack请求体格式错误", e);
+			}
+		}
+		if (bindObject == null) {
+			bindObject = BeanUtils.instantiateClass(classType);
+		}
+		return bindObject;
+	}
+
+	/**
+	 * 获取请求类的绑定计划，每个请求类只构建一次
+	 *
+	 * @param classType
+	 * @return
+	 */
+	RequestBindingPlan getBindingPlan(Class<?> classType) {
+		RequestBindingPlan bindingPlan = bindingPlans.get(classType);
+		if (bindingPlan == null) {
+			bindingPlan = RequestBindingPlan.build(classType, converterContainer);
+			RequestBindingPlan existPlan = bindingPlans.putIfAbsent(classType, bindingPlan);
+			if (existPlan != null) {
+				bindingPlan = existPlan;
+			}
 		}
-		return null;
+		return bindingPlan;
 	}
 
 	public void setValidator(SmartValidator validator) {
 		this.validator = validator;
 	}
 
+	public void setMessageCodecRegistry(MessageCodecRegistry messageCodecRegistry) {
+		this.messageCodecRegistry = messageCodecRegistry;
+	}
+
+	/**
+	 * 释放请求解析时占用的资源(流式解析上传数据时的临时文件)，请求处理完成后调用
+	 *
+	 * @param ropRequestContext
+	 */
+	public void release(RopRequestContext ropRequestContext) {
+		if (multipartParser != null) {
+			multipartParser.release(ropRequestContext);
+		}
+	}
+
+	public long getRequestBodyMaxBytes() {
+		return requestBodyMaxBytes;
+	}
+
+	public void setRequestBodyMaxBytes(long requestBodyMaxBytes) {
+		this.requestBodyMaxBytes = requestBodyMaxBytes;
+	}
+
+	public StreamingMultipartParser getMultipartParser() {
+		return multipartParser;
+	}
+
+	public void setMultipartParser(StreamingMultipartParser multipartParser) {
+		this.multipartParser = multipartParser;
+	}
+
 	//默认的{@link ServiceRequest}实现类
 	private static class DefaultServiceRequest implements ServiceRequest {
 	}
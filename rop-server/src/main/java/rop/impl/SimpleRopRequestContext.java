@@ -24,6 +24,9 @@ public class SimpleRopRequestContext implements RopRequestContext {
 
 	public static final String SPRING_VALIDATE_ERROR_ATTRNAME = "$SPRING_VALIDATE_ERROR_ATTRNAME";
 
+	//流式解析上传数据时超过大小限制的原因
+	public static final String UPLOAD_ERROR_ATTRNAME = "$UPLOAD_ERROR_ATTRNAME";
+
 	private RopContext ropContext;
 
 	private String method;
@@ -62,12 +65,18 @@ public class SimpleRopRequestContext implements RopRequestContext {
 
 	private Map<String, String> requestBodyMap = new HashMap<String,String>();
 
+	private byte[] requestBody;
+
+	private MessageCodec requestBodyCodec;
+
 	private Map<String,String> requestHeaderMap = new HashMap<String,String>();
 
 	private String requestId;
 
 	private Object appkeyUserId;
 
+	private AppkeyResult appkeyResult;
+
 	/**
 	 * 请求时间戳
 	 */
@@ -307,6 +316,29 @@ public class SimpleRopRequestContext implements RopRequestContext {
 		this.requestBodyMap = requestBodyMap;
 	}
 
+	@Override
+	public byte[] getRequestBody() {
+		return requestBody;
+	}
+
+	public void setRequestBody(byte[] requestBody) {
+		this.requestBody = requestBody;
+	}
+
+	@Override
+	public boolean hasRequestBody() {
+		return requestBody != null;
+	}
+
+	@Override
+	public MessageCodec getRequestBodyCodec() {
+		return requestBodyCodec;
+	}
+
+	public void setRequestBodyCodec(MessageCodec requestBodyCodec) {
+		this.requestBodyCodec = requestBodyCodec;
+	}
+
 	@Override
 	public String getBodyParameter(String paramName) {
 		if (requestBodyMap != null) {
@@ -375,6 +407,16 @@ public class SimpleRopRequestContext implements RopRequestContext {
 		return appkeyUserId;
 	}
 
+	@Override
+	public void setAppkeyResult(AppkeyResult appkeyResult) {
+		this.appkeyResult = appkeyResult;
+	}
+
+	@Override
+	public AppkeyResult getAppkeyResult() {
+		return appkeyResult;
+	}
+
 	public void setFileItems(List<FileItem> fileItems) {
 		this.fileItems = fileItems;
 	}
@@ -0,0 +1,384 @@
+package rop.impl;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.disk.DiskFileItemFactory;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rop.Constants;
+import rop.RopException;
+import rop.RopRequestContext;
+import rop.ServiceMethodHandler;
+import rop.security.FileUploadController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ *    基于FileUpload流式API解析multipart请求，边读取边检查大小，超限时立即停止读取：
+ *      1.表单字段读入请求参数，服务方法的上传文件字段(文件名@文件内容的BASE64编码)按解码后的大小
+ *        以{@link FileUploadController#isExceedMaxSize(int)}检查；
+ *      2.文件部分不再读入请求参数，因而不参与签名验证，按原始大小检查，超过memoryThreshold字节的写入tempDirectory，
+ *        或设置了{@link UploadStreamHandler}时直接交给它处理，需防篡改的文件应由服务方法另行校验(如签名的摘要参数)；
+ *      3.每个请求所有部分的字节数不超过requestMaxBytes，所有请求同时写入临时目录的字节数
+ *        不超过totalSpoolBytes，二者为0时不限制。
+ *    超限时请求上下文中设置{@link SimpleRopRequestContext#UPLOAD_ERROR_ATTRNAME}属性，
+ *    由安全管理器返回上传失败的错误。请求结束后须调用{@link #release(RopRequestContext)}删除临时文件。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class StreamingMultipartParser {
+
+	private static final String UPLOAD_BUDGET_ATTRNAME = "$UPLOAD_BUDGET_ATTRNAME";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	//所有请求当前写入临时目录的字节数
+	private final AtomicLong spooledBytes = new AtomicLong();
+
+	private File tempDirectory = new File(System.getProperty("java.io.tmpdir"));
+
+	private int memoryThreshold = DiskFileItemFactory.DEFAULT_SIZE_THRESHOLD;
+
+	private long requestMaxBytes;
+
+	private long totalSpoolBytes;
+
+	private FileUploadController fileUploadController;
+
+	private UploadStreamHandler uploadStreamHandler;
+
+	private volatile DiskFileItemFactory fileItemFactory;
+
+	/**
+	 * 解析请求的业务参数及上传文件，系统级参数须已设置
+	 *
+	 * @param requestContext
+	 * @param servletRequest
+	 */
+	public void parse(SimpleRopRequestContext requestContext, HttpServletRequest servletRequest) {
+		HashMap<String, String> destParamMap = new HashMap<String, String>();
+		List<FileItem> fileItems = new ArrayList<FileItem>();
+		requestContext.setRequestBodyMap(destParamMap);
+		requestContext.setFileItems(fileItems);
+		Budget budget = new Budget();
+		requestContext.setAttribute(UPLOAD_BUDGET_ATTRNAME, budget);
+
+		List<String> uploadFileFieldNames = getUploadFileFieldNames(requestContext);
+		ServletFileUpload upload = new ServletFileUpload();
+		upload.setHeaderEncoding(Constants.UTF8);
+		try {
+			FileItemIterator iterator = upload.getItemIterator(servletRequest);
+			while (iterator.hasNext()) {
+				FileItemStream item = iterator.next();
+				String fieldName = item.getFieldName();
+				InputStream in = item.openStream();
+				try {
+					if (item.isFormField()) {
+						boolean uploadFileField = uploadFileFieldNames.contains(fieldName);
+						PartInputStream partIn = new PartInputStream(in, budget, uploadFileField ? PartInputStream.BASE64_FILE : PartInputStream.FORM_FIELD);
+						destParamMap.put(fieldName, readString(partIn));
+					} else if (uploadStreamHandler != null) {
+						uploadStreamHandler.handle(requestContext, fieldName, item.getName(), item.getContentType(),
+								new PartInputStream(in, budget, PartInputStream.FILE));
+					} else {
+						fileItems.add(spool(item, new PartInputStream(in, budget, PartInputStream.FILE)));
+					}
+				} finally {
+					in.close();
+				}
+			}
+		} catch (UploadLimitExceededException e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("请求{}的上传数据超过限制：{}", requestContext.getRequestId(), e.getMessage());
+			}
+			requestContext.setAttribute(SimpleRopRequestContext.UPLOAD_ERROR_ATTRNAME, e.getMessage());
+			release(requestContext);
+		} catch (FileUploadException e) {
+			release(requestContext);
+			throw new RopException("解析上传数据出错", e);
+		} catch (IOException e) {
+			release(requestContext);
+			throw new RopException("读取上传数据出错", e);
+		} catch (RuntimeException e) {
+			release(requestContext);
+			throw e;
+		}
+	}
+
+	/**
+	 * 删除请求的临时文件，归还占用的临时目录额度，可重复调用
+	 *
+	 * @param ropRequestContext
+	 */
+	public void release(RopRequestContext ropRequestContext) {
+		Budget budget = (Budget) ropRequestContext.getAttribute(UPLOAD_BUDGET_ATTRNAME);
+		if (budget == null) {
+			return;
+		}
+		List<FileItem> fileItems = ropRequestContext.getFileItems();
+		if (fileItems != null) {
+			for (FileItem fileItem : fileItems) {
+				fileItem.delete();
+			}
+		}
+		spooledBytes.addAndGet(-budget.spooledBytes);
+		budget.spooledBytes = 0;
+	}
+
+	/**
+	 * @return 当前所有请求写入临时目录的字节数
+	 */
+	public long getSpooledBytes() {
+		return spooledBytes.get();
+	}
+
+	private List<String> getUploadFileFieldNames(RopRequestContext requestContext) {
+		if (requestContext.getMethod() == null || requestContext.getVersion() == null) {
+			return Collections.emptyList();
+		}
+		ServiceMethodHandler handler =
+				requestContext.getRopContext().getServiceMethodHandler(requestContext.getMethod(), requestContext.getVersion());
+		if (handler == null || !handler.hasUploadFiles()) {
+			return Collections.emptyList();
+		}
+		return handler.getUploadFileFieldNames();
+	}
+
+	private String readString(PartInputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int n;
+		while ((n = in.read(buffer)) != -1) {
+			out.write(buffer, 0, n);
+		}
+		return out.toString(Constants.UTF8);
+	}
+
+	/**
+	 * 写入文件项，超过内存阈值后写入临时文件的字节计入临时目录额度
+	 */
+	private FileItem spool(FileItemStream item, PartInputStream in) throws IOException {
+		FileItem fileItem = getFileItemFactory().createItem(item.getFieldName(), item.getContentType(), false, item.getName());
+		in.spool = true;
+		boolean completed = false;
+		try {
+			OutputStream out = fileItem.getOutputStream();
+			try {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int n;
+				while ((n = in.read(buffer)) != -1) {
+					out.write(buffer, 0, n);
+				}
+			} finally {
+				out.close();
+			}
+			completed = true;
+			return fileItem;
+		} finally {
+			if (!completed) {
+				fileItem.delete();
+			}
+		}
+	}
+
+	private DiskFileItemFactory getFileItemFactory() {
+		DiskFileItemFactory factory = fileItemFactory;
+		if (factory == null) {
+			if (!tempDirectory.exists() && !tempDirectory.mkdirs()) {
+				throw new RopException("无法创建上传文件的临时目录" + tempDirectory);
+			}
+			factory = new DiskFileItemFactory(memoryThreshold, tempDirectory);
+			fileItemFactory = factory;
+		}
+		return factory;
+	}
+
+	private void reserveSpool(Budget budget, long bytes) throws UploadLimitExceededException {
+		if (spooledBytes.addAndGet(bytes) > totalSpoolBytes && totalSpoolBytes > 0) {
+			spooledBytes.addAndGet(-bytes);
+			throw new UploadLimitExceededException("临时目录的额度已用完(" + totalSpoolBytes + "字节)");
+		}
+		budget.spooledBytes += bytes;
+	}
+
+	public File getTempDirectory() {
+		return tempDirectory;
+	}
+
+	/**
+	 * @param tempDirectory 文件部分超过内存阈值时写入的临时目录，默认为java.io.tmpdir
+	 */
+	public void setTempDirectory(File tempDirectory) {
+		this.tempDirectory = tempDirectory;
+		this.fileItemFactory = null;
+	}
+
+	public int getMemoryThreshold() {
+		return memoryThreshold;
+	}
+
+	/**
+	 * @param memoryThreshold 文件部分保存在内存中的最大字节数，默认10KB
+	 */
+	public void setMemoryThreshold(int memoryThreshold) {
+		this.memoryThreshold = memoryThreshold;
+		this.fileItemFactory = null;
+	}
+
+	public long getRequestMaxBytes() {
+		return requestMaxBytes;
+	}
+
+	/**
+	 * @param requestMaxBytes 每个请求所有部分的最大字节数，0表示不限制
+	 */
+	public void setRequestMaxBytes(long requestMaxBytes) {
+		this.requestMaxBytes = requestMaxBytes;
+	}
+
+	public long getTotalSpoolBytes() {
+		return totalSpoolBytes;
+	}
+
+	/**
+	 * @param totalSpoolBytes 所有请求同时写入临时目录的最大字节数，0表示不限制
+	 */
+	public void setTotalSpoolBytes(long totalSpoolBytes) {
+		this.totalSpoolBytes = totalSpoolBytes;
+	}
+
+	public FileUploadController getFileUploadController() {
+		return fileUploadController;
+	}
+
+	public void setFileUploadController(FileUploadController fileUploadController) {
+		this.fileUploadController = fileUploadController;
+	}
+
+	public UploadStreamHandler getUploadStreamHandler() {
+		return uploadStreamHandler;
+	}
+
+	public void setUploadStreamHandler(UploadStreamHandler uploadStreamHandler) {
+		this.uploadStreamHandler = uploadStreamHandler;
+	}
+
+	/**
+	 * 一个请求的已读字节数及占用的临时目录额度
+	 */
+	private static class Budget {
+
+		private long requestBytes;
+
+		private long spooledBytes;
+	}
+
+	private static class UploadLimitExceededException extends IOException {
+
+		private UploadLimitExceededException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * 读取一个部分的数据流，边读取边检查大小
+	 */
+	private class PartInputStream extends FilterInputStream {
+
+		private static final int FORM_FIELD = 0;
+
+		private static final int BASE64_FILE = 1;
+
+		private static final int FILE = 2;
+
+		private final Budget budget;
+
+		private final int kind;
+
+		private long partBytes;
+
+		//BASE64_FILE中文件内容的起始位置，即"@"之后
+		private long contentStart = -1;
+
+		private boolean spool;
+
+		private PartInputStream(InputStream in, Budget budget, int kind) {
+			super(in);
+			this.budget = budget;
+			this.kind = kind;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				if (kind == BASE64_FILE && contentStart < 0 && b == '@') {
+					contentStart = partBytes + 1;
+				}
+				count(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				if (kind == BASE64_FILE && contentStart < 0) {
+					for (int i = 0; i < n; i++) {
+						if (b[off + i] == '@') {
+							contentStart = partBytes + i + 1;
+							break;
+						}
+					}
+				}
+				count(n);
+			}
+			return n;
+		}
+
+		private void count(int n) throws IOException {
+			long previous = partBytes;
+			partBytes += n;
+			budget.requestBytes += n;
+			if (requestMaxBytes > 0 && budget.requestBytes > requestMaxBytes) {
+				throw new UploadLimitExceededException("请求的上传数据超过" + requestMaxBytes + "字节");
+			}
+			if (fileUploadController != null) {
+				long fileSize = 0;
+				if (kind == FILE) {
+					fileSize = partBytes;
+				} else if (kind == BASE64_FILE && contentStart >= 0) {
+					//BASE64末尾的填充最多多算2个字节，确切的大小在解码后检查
+					fileSize = (partBytes - contentStart) * 3 / 4 - 2;
+				}
+				if (fileSize > 0 && fileUploadController.isExceedMaxSize((int) Math.min(fileSize, Integer.MAX_VALUE))) {
+					throw new UploadLimitExceededException("上传文件超过大小限制");
+				}
+			}
+			//超过内存阈值时已读的字节全部写入临时文件
+			if (spool && partBytes > memoryThreshold) {
+				reserveSpool(budget, previous > memoryThreshold ? n : partBytes);
+			}
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package rop.impl;
+
+import rop.RopRequestContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <pre>
+ *    流式解析上传数据时，处理multipart请求中的文件部分(非表单字段)的数据流，
+ *    文件数据不再暂存到临时目录，而由处理器直接写入存储。
+ *    处理器在请求解析阶段调用，此时签名、会话等尚未检查，只应暂存数据，
+ *    由服务方法确认后再使用。文件数据不参与签名验证。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public interface UploadStreamHandler {
+
+	/**
+	 * 处理一个文件部分的数据流，返回后数据流不能再读取
+	 *
+	 * @param ropRequestContext 已解析系统级参数的请求上下文
+	 * @param fieldName         字段名
+	 * @param fileName          文件名
+	 * @param contentType       文件的内容类型
+	 * @param inputStream       文件数据，超过大小限制时读取抛出IOException
+	 * @throws IOException
+	 */
+	void handle(RopRequestContext ropRequestContext, String fieldName, String fileName, String contentType,
+	            InputStream inputStream) throws IOException;
+}
@@ -0,0 +1,50 @@
+package rop.limit;
+
+/**
+ * <pre>
+ *   服务并发准入控制器，位于服务路由器与服务线程池之间。
+ *   每个请求提交到线程池前先申请许可，超过当前并发上限的请求直接被拒绝，
+ *   服务执行完成后释放许可并上报耗时，实现类可据此动态调整并发上限。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public interface ConcurrencyLimiter {
+
+	/**
+	 * 申请一个并发许可
+	 *
+	 * @return 超过当前并发上限时返回false，此时请求应被拒绝
+	 */
+	boolean tryAcquire();
+
+	/**
+	 * 释放许可并上报本次请求从准入到完成的耗时
+	 *
+	 * @param latencyNanos 耗时，单位为纳秒
+	 * @param dropped      请求是否被丢弃(如线程池拒绝)，丢弃视为过载信号
+	 */
+	void release(long latencyNanos, boolean dropped);
+
+	/**
+	 * 当前的并发上限
+	 *
+	 * @return
+	 */
+	int getLimit();
+
+	/**
+	 * 当前正在处理的请求数
+	 *
+	 * @return
+	 */
+	int getInflight();
+
+	/**
+	 * 累计被拒绝的请求数
+	 *
+	 * @return
+	 */
+	long getRejectedCount();
+}
@@ -0,0 +1,214 @@
+package rop.limit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ *   基于延迟梯度的自适应并发控制器(Vegas/Gradient算法)。
+ *
+ *   同时跟踪请求耗时的短期均值(shortRtt)和长期均值(longRtt)，长期均值近似无排队时的耗时：
+ *     gradient = clamp(tolerance * longRtt / shortRtt, 0.5, 1.0)
+ *     newLimit = limit * gradient + sqrt(limit)
+ *   排队导致耗时上升时梯度小于1，上限随之收缩；耗时平稳时按sqrt(limit)缓慢探测更高的并发。
+ *   请求被丢弃时按{@link #backoffRatio}乘性回退。
+ *   只有在并发达到上限一半以上时才允许上调，避免低负载时上限无限增长。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class GradientConcurrencyLimiter implements ConcurrencyLimiter {
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final AtomicInteger inflight = new AtomicInteger(0);
+
+	private final AtomicLong rejectedCount = new AtomicLong(0);
+
+	private volatile int limit;
+
+	private int initialLimit = 20;
+
+	private int minLimit = 4;
+
+	private int maxLimit = 1000;
+
+	/**
+	 * 长期耗时可容忍的放大倍数
+	 */
+	private double rttTolerance = 1.5;
+
+	/**
+	 * 新旧上限的平滑系数
+	 */
+	private double smoothing = 0.2;
+
+	/**
+	 * 请求被丢弃时的回退比例
+	 */
+	private double backoffRatio = 0.9;
+
+	/**
+	 * 短期耗时EWMA窗口(样本数)
+	 */
+	private int shortWindow = 10;
+
+	/**
+	 * 长期耗时EWMA窗口(样本数)
+	 */
+	private int longWindow = 600;
+
+	//以下状态只在release的同步块中修改
+	private double estimatedLimit;
+
+	private double shortRtt;
+
+	private double longRtt;
+
+	private long sampleCount;
+
+	public GradientConcurrencyLimiter() {
+		setInitialLimit(initialLimit);
+	}
+
+	@Override
+	public boolean tryAcquire() {
+		while (true) {
+			int current = inflight.get();
+			if (current >= limit) {
+				rejectedCount.incrementAndGet();
+				return false;
+			}
+			if (inflight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public void release(long latencyNanos, boolean dropped) {
+		int currentInflight = inflight.getAndDecrement();
+		if (latencyNanos <= 0 && !dropped) {
+			return;
+		}
+		synchronized (this) {
+			double newLimit;
+			if (dropped) {
+				newLimit = estimatedLimit * backoffRatio;
+			} else {
+				sampleCount++;
+				if (sampleCount == 1) {
+					shortRtt = latencyNanos;
+					longRtt = latencyNanos;
+				} else {
+					shortRtt = ewma(shortRtt, latencyNanos, shortWindow);
+					longRtt = ewma(longRtt, latencyNanos, longWindow);
+				}
+
+				//负载长期下降后长期均值明显偏大，使其更快地向短期均值收敛
+				if (longRtt / shortRtt > 2) {
+					longRtt = longRtt * 0.95;
+				}
+
+				//并发远低于上限时说明请求量不足，不作上调
+				if (currentInflight < estimatedLimit / 2) {
+					return;
+				}
+
+				double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+				newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+				newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+			}
+			newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+			int oldLimit = limit;
+			estimatedLimit = newLimit;
+			limit = (int) newLimit;
+			if (oldLimit != limit && logger.isDebugEnabled()) {
+				logger.debug("并发上限由{}调整为{}，shortRtt={}ms，longRtt={}ms", new Object[]{oldLimit, limit,
+						shortRtt / 1000000, longRtt / 1000000});
+			}
+		}
+	}
+
+	private static double ewma(double average, double sample, int window) {
+		double factor = 2.0 / (window + 1);
+		return average * (1 - factor) + sample * factor;
+	}
+
+	@Override
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public int getInflight() {
+		return inflight.get();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * 短期耗时均值，单位为毫秒
+	 *
+	 * @return
+	 */
+	public synchronized double getShortRttMillis() {
+		return shortRtt / 1000000;
+	}
+
+	/**
+	 * 长期(无排队)耗时均值，单位为毫秒
+	 *
+	 * @return
+	 */
+	public synchronized double getLongRttMillis() {
+		return longRtt / 1000000;
+	}
+
+	public synchronized void setInitialLimit(int initialLimit) {
+		this.initialLimit = initialLimit;
+		this.estimatedLimit = initialLimit;
+		this.limit = initialLimit;
+	}
+
+	public void setMinLimit(int minLimit) {
+		this.minLimit = minLimit;
+	}
+
+	public void setMaxLimit(int maxLimit) {
+		this.maxLimit = maxLimit;
+	}
+
+	public void setRttTolerance(double rttTolerance) {
+		this.rttTolerance = rttTolerance;
+	}
+
+	public void setSmoothing(double smoothing) {
+		this.smoothing = smoothing;
+	}
+
+	public void setBackoffRatio(double backoffRatio) {
+		this.backoffRatio = backoffRatio;
+	}
+
+	public void setShortWindow(int shortWindow) {
+		this.shortWindow = shortWindow;
+	}
+
+	public void setLongWindow(int longWindow) {
+		this.longWindow = longWindow;
+	}
+
+	@Override
+	public String toString() {
+		return "GradientConcurrencyLimiter{limit=" + limit + ", inflight=" + inflight.get()
+				+ ", rejected=" + rejectedCount.get() + "}";
+	}
+}
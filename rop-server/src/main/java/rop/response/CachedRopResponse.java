@@ -0,0 +1,26 @@
+package rop.response;
+
+/**
+ * 命中响应缓存时的Rop响应，持有已序列化的响应报文，输出时直接写出，不再序列化
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class CachedRopResponse extends RopResponse {
+
+    private final byte[] content;
+
+    public CachedRopResponse(byte[] content) {
+        this.content = content;
+        this.setSuccess(true);
+    }
+
+    /**
+     * 已序列化的响应报文，格式与请求的format一致
+     *
+     * @return
+     */
+    public byte[] getContent() {
+        return content;
+    }
+}
@@ -0,0 +1,256 @@
+package rop.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rop.RopContext;
+import rop.RopRequestContext;
+import rop.ServiceMethodHandler;
+import rop.session.Session;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ *    基于位图的服务访问控制器：每个appKey及角色一个{@link BitSet}，第i位表示序号为i的服务方法是否授权，
+ *    权限判断只需一次Map查找及一次位测试。
+ *    授权数据从{@link ServiceAccessSource}加载，调用{@link #reload()}重新加载后整体替换，判断过程无锁。
+ *    用户的角色取自会话属性roleAttributeName，值可以是单个角色字符串或角色集合，具有任一授权角色即可访问；
+ *    没有会话的请求不检查用户权限。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class BitSetServiceAccessController implements IndexedServiceAccessController {
+
+	/**
+	 * 会话中保存用户角色的默认属性名
+	 */
+	public static final String DEFAULT_ROLE_ATTRIBUTE_NAME = "ROP_ROLES";
+
+	private static final String ALL_METHODS = "*";
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final ServiceAccessSource serviceAccessSource;
+
+	private String roleAttributeName = DEFAULT_ROLE_ATTRIBUTE_NAME;
+
+	//从授权数据来源加载的原始授权
+	private volatile Grants grants;
+
+	//按服务方法序号编译后的授权
+	private volatile Snapshot snapshot;
+
+	public BitSetServiceAccessController(ServiceAccessSource serviceAccessSource) {
+		this.serviceAccessSource = serviceAccessSource;
+	}
+
+	/**
+	 * 从授权数据来源重新加载授权，加载完成后整体替换
+	 */
+	public void reload() {
+		Grants newGrants = new Grants(serviceAccessSource.loadAppGrants(), serviceAccessSource.loadRoleGrants());
+		synchronized (this) {
+			grants = newGrants;
+			//在锁内读取，保证与getSnapshot()的编译互斥，不会以旧授权覆盖新授权
+			Snapshot current = snapshot;
+			if (current != null) {
+				snapshot = compile(newGrants, current.ropContext);
+			}
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("加载了{}个appKey、{}个角色的服务访问授权", newGrants.appGrants.size(), newGrants.roleGrants.size());
+		}
+	}
+
+	@Override
+	public boolean isAppGranted(RopRequestContext ropRequestContext) {
+		ServiceMethodHandler handler = ropRequestContext.getServiceMethodHandler();
+		if (handler == null || handler.getIndex() < 0) {
+			return isAppGranted(ropRequestContext.getAppKey(), ropRequestContext.getMethod(), ropRequestContext.getVersion());
+		}
+		BitSet granted = getSnapshot(ropRequestContext.getRopContext()).appGrants.get(ropRequestContext.getAppKey());
+		return granted != null && granted.get(handler.getIndex());
+	}
+
+	@Override
+	public boolean isUserGranted(RopRequestContext ropRequestContext) {
+		ServiceMethodHandler handler = ropRequestContext.getServiceMethodHandler();
+		if (handler == null || handler.getIndex() < 0) {
+			return isUserGranted(ropRequestContext.getSession(), ropRequestContext.getMethod(), ropRequestContext.getVersion());
+		}
+		Map<String, BitSet> roleGrants = getSnapshot(ropRequestContext.getRopContext()).roleGrants;
+		if (roleGrants.isEmpty()) {
+			return true;
+		}
+		Session session = ropRequestContext.getSession();
+		if (session == null) {
+			return true;
+		}
+		Object roles = session.getAttribute(roleAttributeName);
+		if (roles instanceof String) {
+			return isRoleGranted(roleGrants, (String) roles, handler.getIndex());
+		} else if (roles instanceof Collection) {
+			for (Object role : (Collection<?>) roles) {
+				if (role instanceof String && isRoleGranted(roleGrants, (String) role, handler.getIndex())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean isRoleGranted(Map<String, BitSet> roleGrants, String role, int index) {
+		BitSet granted = roleGrants.get(role);
+		return granted != null && granted.get(index);
+	}
+
+	/**
+	 * 没有服务方法序号时按原始授权判断
+	 */
+	@Override
+	public boolean isAppGranted(String appKey, String method, String version) {
+		return isGranted(getGrants().appGrants.get(appKey), method, version);
+	}
+
+	@Override
+	public boolean isUserGranted(Session session, String method, String version) {
+		Map<String, Collection<String>> roleGrants = getGrants().roleGrants;
+		if (roleGrants.isEmpty() || session == null) {
+			return true;
+		}
+		Object roles = session.getAttribute(roleAttributeName);
+		if (roles instanceof String) {
+			return isGranted(roleGrants.get(roles), method, version);
+		} else if (roles instanceof Collection) {
+			for (Object role : (Collection<?>) roles) {
+				if (isGranted(roleGrants.get(role), method, version)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean isGranted(Collection<String> granted, String method, String version) {
+		return granted != null && (granted.contains(ALL_METHODS) || granted.contains(method)
+				|| granted.contains(ServiceMethodHandler.methodWithVersion(method, version)));
+	}
+
+	private Grants getGrants() {
+		Grants current = grants;
+		if (current == null) {
+			synchronized (this) {
+				if (grants == null) {
+					reload();
+				}
+				current = grants;
+			}
+		}
+		return current;
+	}
+
+	private Snapshot getSnapshot(RopContext ropContext) {
+		Snapshot current = snapshot;
+		if (current == null || current.ropContext != ropContext) {
+			synchronized (this) {
+				current = snapshot;
+				if (current == null || current.ropContext != ropContext) {
+					//在锁内读取授权，避免编译并发布并发reload()之前的旧授权
+					current = compile(getGrants(), ropContext);
+					snapshot = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	private Snapshot compile(Grants source, RopContext ropContext) {
+		//服务方法名到其所有版本的服务处理器
+		Map<String, List<ServiceMethodHandler>> methodHandlers = new HashMap<String, List<ServiceMethodHandler>>();
+		for (ServiceMethodHandler handler : ropContext.getAllServiceMethodHandlers().values()) {
+			String method = handler.getServiceMethodDefinition().getMethod();
+			List<ServiceMethodHandler> handlers = methodHandlers.get(method);
+			if (handlers == null) {
+				handlers = new ArrayList<ServiceMethodHandler>(2);
+				methodHandlers.put(method, handlers);
+			}
+			handlers.add(handler);
+		}
+		return new Snapshot(ropContext, compile(source.appGrants, ropContext, methodHandlers),
+				compile(source.roleGrants, ropContext, methodHandlers));
+	}
+
+	private Map<String, BitSet> compile(Map<String, Collection<String>> grants, RopContext ropContext,
+										Map<String, List<ServiceMethodHandler>> methodHandlers) {
+		int count = ropContext.getServiceMethodCount();
+		Map<String, BitSet> compiled = new HashMap<String, BitSet>(grants.size() * 2);
+		for (Map.Entry<String, Collection<String>> entry : grants.entrySet()) {
+			BitSet granted = new BitSet(count);
+			for (String method : entry.getValue()) {
+				if (ALL_METHODS.equals(method)) {
+					granted.set(0, count);
+				} else if (ropContext.getAllServiceMethodHandlers().containsKey(method)) {
+					granted.set(ropContext.getAllServiceMethodHandlers().get(method).getIndex());
+				} else if (methodHandlers.containsKey(method)) {
+					for (ServiceMethodHandler handler : methodHandlers.get(method)) {
+						granted.set(handler.getIndex());
+					}
+				} else if (logger.isWarnEnabled()) {
+					logger.warn("{}授权的服务方法{}不存在", entry.getKey(), method);
+				}
+			}
+			compiled.put(entry.getKey(), granted);
+		}
+		return compiled;
+	}
+
+	public String getRoleAttributeName() {
+		return roleAttributeName;
+	}
+
+	public void setRoleAttributeName(String roleAttributeName) {
+		this.roleAttributeName = roleAttributeName;
+	}
+
+	private static class Grants {
+
+		private final Map<String, Collection<String>> appGrants;
+
+		private final Map<String, Collection<String>> roleGrants;
+
+		private Grants(Map<String, ? extends Collection<String>> appGrants, Map<String, ? extends Collection<String>> roleGrants) {
+			this.appGrants = copy(appGrants);
+			this.roleGrants = copy(roleGrants);
+		}
+
+		private static Map<String, Collection<String>> copy(Map<String, ? extends Collection<String>> grants) {
+			if (grants == null || grants.isEmpty()) {
+				return Collections.emptyMap();
+			}
+			return new HashMap<String, Collection<String>>(grants);
+		}
+	}
+
+	private static class Snapshot {
+
+		private final RopContext ropContext;
+
+		private final Map<String, BitSet> appGrants;
+
+		private final Map<String, BitSet> roleGrants;
+
+		private Snapshot(RopContext ropContext, Map<String, BitSet> appGrants, Map<String, BitSet> roleGrants) {
+			this.ropContext = ropContext;
+			this.appGrants = appGrants;
+			this.roleGrants = roleGrants;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package rop.security;
+
+import rop.thirdparty.com.google.common.hash.HashFunction;
+import rop.thirdparty.com.google.common.hash.Hashing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <pre>
+ *    基于按时间分段轮换的布隆过滤器的重放请求检查器，占用内存固定，读写均无锁。
+ *    请求按其时间戳(而非到达时间)落入长度为时间戳容忍时间的时间段，每个时间段一个布隆过滤器，
+ *    时间戳容忍范围[now - tolerance, now + tolerance]最多跨3个时间段，环形保留4个，
+ *    新时间段的第一个请求替换掉环中最老的过滤器。
+ *    布隆过滤器存在误判：一个时间段内的请求数不超过expectedRequests时，新请求被误判为重放的概率不超过falsePositiveRate；
+ *    完全相同的两个请求同时到达时，极小概率下两者都被放行。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class BloomFilterReplayGuard implements ReplayGuard {
+
+	private static final int BUCKET_COUNT = 4;
+
+	private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+	private final long bucketMillis;
+
+	private final int bitCount;
+
+	private final int hashCount;
+
+	private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<Bucket>(BUCKET_COUNT);
+
+	/**
+	 * @param timestampToleranceSeconds 时间戳容忍时间，单位为秒
+	 * @param expectedRequests          每个时间段(时间戳容忍时间)内预计的请求数
+	 * @param falsePositiveRate         误判率
+	 */
+	public BloomFilterReplayGuard(long timestampToleranceSeconds, int expectedRequests, double falsePositiveRate) {
+		if (timestampToleranceSeconds <= 0 || expectedRequests <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException("时间戳容忍时间、预计请求数必须大于0，误判率必须在0到1之间");
+		}
+		this.bucketMillis = timestampToleranceSeconds * 1000;
+		long bits = (long) Math.ceil(-expectedRequests * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		//按64位对齐
+		this.bitCount = (int) Math.min((bits + 63) / 64 * 64, Integer.MAX_VALUE - 63);
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedRequests * Math.log(2)));
+	}
+
+	@Override
+	public boolean isReplayed(String appKey, String sign, long timestamp) {
+		Bucket bucket = getBucket(Math.max(timestamp, 0) / bucketMillis);
+		if (bucket == null) {
+			//时间戳早于环中保留的所有时间段，无法判断，按重放处理
+			return true;
+		}
+		byte[] hash = HASH_FUNCTION.newHasher()
+				.putUnencodedChars(appKey != null ? appKey : "")
+				.putChar('\0')
+				.putUnencodedChars(sign)
+				.hash().asBytes();
+		long hash1 = toLong(hash, 0);
+		long hash2 = toLong(hash, 8);
+		boolean added = false;
+		long combinedHash = hash1;
+		for (int i = 0; i < hashCount; i++) {
+			//取非负数后对位数取模
+			added |= bucket.set((int) ((combinedHash & Long.MAX_VALUE) % bitCount));
+			combinedHash += hash2;
+		}
+		return !added;
+	}
+
+	/**
+	 * 获取时间段对应的过滤器，环中该位置是更早的时间段时替换为新的过滤器
+	 *
+	 * @param epoch 时间段序号
+	 * @return 环中该位置已是更新的时间段时返回null
+	 */
+	private Bucket getBucket(long epoch) {
+		int index = (int) (epoch % BUCKET_COUNT);
+		while (true) {
+			Bucket bucket = buckets.get(index);
+			if (bucket != null && bucket.epoch == epoch) {
+				return bucket;
+			} else if (bucket != null && bucket.epoch > epoch) {
+				return null;
+			}
+			Bucket newBucket = new Bucket(epoch, bitCount);
+			if (buckets.compareAndSet(index, bucket, newBucket)) {
+				return newBucket;
+			}
+		}
+	}
+
+	private static long toLong(byte[] bytes, int offset) {
+		long value = 0;
+		for (int i = offset + 7; i >= offset; i--) {
+			value = (value << 8) | (bytes[i] & 0xff);
+		}
+		return value;
+	}
+
+	public long getBucketMillis() {
+		return bucketMillis;
+	}
+
+	public int getBitCount() {
+		return bitCount;
+	}
+
+	public int getHashCount() {
+		return hashCount;
+	}
+
+	/**
+	 * 一个时间段的布隆过滤器
+	 */
+	private static class Bucket {
+
+		private final long epoch;
+
+		private final AtomicLongArray bits;
+
+		private Bucket(long epoch, int bitCount) {
+			this.epoch = epoch;
+			this.bits = new AtomicLongArray(bitCount / 64);
+		}
+
+		/**
+		 * 置位
+		 *
+		 * @return 该位原来为0返回true
+		 */
+		private boolean set(int index) {
+			int wordIndex = index >>> 6;
+			long mask = 1L << index;
+			while (true) {
+				long word = bits.get(wordIndex);
+				if ((word & mask) != 0) {
+					return false;
+				}
+				if (bits.compareAndSet(wordIndex, word, word | mask)) {
+					return true;
+				}
+			}
+		}
+	}
+}
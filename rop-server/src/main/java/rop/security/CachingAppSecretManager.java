@@ -0,0 +1,208 @@
+package rop.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rop.AppkeyResult;
+import rop.RopRequestContext;
+import rop.thirdparty.com.google.common.cache.Cache;
+import rop.thirdparty.com.google.common.cache.CacheBuilder;
+import rop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <pre>
+ *    带缓存的密钥管理器，装饰实际的{@link AppSecretManager}(如查询数据库的实现)：
+ *      1.查询结果按appKey缓存ttlSeconds秒，成功与失败的结果分开缓存，不存在的appKey只缓存negativeTtlSeconds秒；
+ *      2.缓存的结果存在超过refreshAheadSeconds秒后，下一次访问仍返回缓存的结果，同时在后台线程重新查询，
+ *        避免缓存到期时请求线程同步等待查询；
+ *      3.缓存的结果只与appKey相关，被装饰的密钥管理器不应依据请求上下文返回不同的结果，后台刷新时请求上下文为null。
+ *    返回的{@link AppkeyResult}为多个请求共享的实例，调用方不要修改。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class CachingAppSecretManager implements AppSecretManager {
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final AppSecretManager appSecretManager;
+
+	private final long refreshAheadMillis;
+
+	//getSecret()的结果
+	private final Cache<String, CachedResult> secretCache;
+
+	//isValidAppKey()的结果
+	private final Cache<String, CachedResult> validCache;
+
+	//失败(appKey不存在、未激活等)的结果
+	private final Cache<String, CachedResult> negativeCache;
+
+	private final ThreadPoolExecutor refreshExecutor;
+
+	/**
+	 * @param appSecretManager    被装饰的密钥管理器
+	 * @param ttlSeconds          成功结果的缓存时间
+	 * @param refreshAheadSeconds 成功结果缓存多久后在后台刷新，不小于ttlSeconds时不提前刷新
+	 * @param negativeTtlSeconds  失败结果的缓存时间，为0时不缓存失败结果
+	 * @param maximumSize         最多缓存的appKey数
+	 */
+	public CachingAppSecretManager(AppSecretManager appSecretManager, int ttlSeconds, int refreshAheadSeconds,
+								   int negativeTtlSeconds, int maximumSize) {
+		this.appSecretManager = appSecretManager;
+		this.refreshAheadMillis = refreshAheadSeconds > 0 && refreshAheadSeconds < ttlSeconds ?
+				TimeUnit.SECONDS.toMillis(refreshAheadSeconds) : Long.MAX_VALUE;
+		this.secretCache = buildCache(ttlSeconds, maximumSize);
+		this.validCache = buildCache(ttlSeconds, maximumSize);
+		this.negativeCache = buildCache(negativeTtlSeconds, maximumSize);
+		this.refreshExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(maximumSize),
+				new ThreadFactoryBuilder().setNameFormat("rop-appsecret-refresh-%d").setDaemon(true).build(),
+				new RejectedExecutionHandler() {
+					@Override
+					public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+						//刷新队列已满时放弃本次刷新，下一次访问再尝试
+						((RefreshTask) r).cached.refreshing.set(false);
+					}
+				});
+		this.refreshExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	public CachingAppSecretManager(AppSecretManager appSecretManager, int ttlSeconds) {
+		this(appSecretManager, ttlSeconds, ttlSeconds * 4 / 5, Math.min(ttlSeconds, 30), 10000);
+	}
+
+	private static Cache<String, CachedResult> buildCache(int ttlSeconds, int maximumSize) {
+		return CacheBuilder.newBuilder()
+				.expireAfterWrite(Math.max(ttlSeconds, 0), TimeUnit.SECONDS)
+				.maximumSize(ttlSeconds > 0 ? maximumSize : 0)
+				.build();
+	}
+
+	@Override
+	public AppkeyResult getSecret(String appKey, RopRequestContext requestContext) {
+		return lookup(appKey, requestContext, true);
+	}
+
+	@Override
+	public AppkeyResult isValidAppKey(String appKey, RopRequestContext requestContext) {
+		return lookup(appKey, requestContext, false);
+	}
+
+	private AppkeyResult lookup(String appKey, RopRequestContext requestContext, boolean secret) {
+		if (appKey == null) {
+			return load(null, requestContext, secret);
+		}
+		Cache<String, CachedResult> cache = secret ? secretCache : validCache;
+		CachedResult cached = cache.getIfPresent(appKey);
+		if (cached != null) {
+			if (System.currentTimeMillis() - cached.loadTime > refreshAheadMillis && cached.refreshing.compareAndSet(false, true)) {
+				refreshExecutor.execute(new RefreshTask(cache, appKey, secret, cached));
+			}
+			return cached.result;
+		}
+		CachedResult negative = negativeCache.getIfPresent(key(appKey, secret));
+		if (negative != null) {
+			return negative.result;
+		}
+		AppkeyResult result = load(appKey, requestContext, secret);
+		store(cache, appKey, result);
+		return result;
+	}
+
+	private AppkeyResult load(String appKey, RopRequestContext requestContext, boolean secret) {
+		return secret ? appSecretManager.getSecret(appKey, requestContext) : appSecretManager.isValidAppKey(appKey, requestContext);
+	}
+
+	private void store(Cache<String, CachedResult> cache, String appKey, AppkeyResult result) {
+		if (result == null) {
+			return;
+		}
+		if (result.isSuccess()) {
+			cache.put(appKey, new CachedResult(result));
+			negativeCache.invalidate(key(appKey, cache == secretCache));
+		} else {
+			cache.invalidate(appKey);
+			negativeCache.put(key(appKey, cache == secretCache), new CachedResult(result));
+		}
+	}
+
+	private static String key(String appKey, boolean secret) {
+		return secret ? "S" + appKey : "V" + appKey;
+	}
+
+	/**
+	 * 清除appKey的缓存，密钥变更或appKey激活后调用
+	 *
+	 * @param appKey
+	 */
+	public void invalidate(String appKey) {
+		secretCache.invalidate(appKey);
+		validCache.invalidate(appKey);
+		negativeCache.invalidate(key(appKey, true));
+		negativeCache.invalidate(key(appKey, false));
+	}
+
+	public void invalidateAll() {
+		secretCache.invalidateAll();
+		validCache.invalidateAll();
+		negativeCache.invalidateAll();
+	}
+
+	public AppSecretManager getAppSecretManager() {
+		return appSecretManager;
+	}
+
+	/**
+	 * 后台刷新一个appKey的缓存结果，无论刷新成功与否都清除刷新标志，
+	 * 查询结果为null或出错时继续使用缓存的结果，下一次访问再刷新
+	 */
+	private class RefreshTask implements Runnable {
+
+		private final Cache<String, CachedResult> cache;
+
+		private final String appKey;
+
+		private final boolean secret;
+
+		private final CachedResult cached;
+
+		private RefreshTask(Cache<String, CachedResult> cache, String appKey, boolean secret, CachedResult cached) {
+			this.cache = cache;
+			this.appKey = appKey;
+			this.secret = secret;
+			this.cached = cached;
+		}
+
+		@Override
+		public void run() {
+			try {
+				//请求已经结束，容器可能已回收请求对象，后台刷新不传入请求上下文
+				AppkeyResult result = load(appKey, null, secret);
+				store(cache, appKey, result);
+			} catch (RuntimeException e) {
+				logger.warn("后台刷新" + appKey + "的密钥出错，继续使用缓存的结果", e);
+			} finally {
+				cached.refreshing.set(false);
+			}
+		}
+	}
+
+	private static class CachedResult {
+
+		private final AppkeyResult result;
+
+		private final long loadTime = System.currentTimeMillis();
+
+		private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+		private CachedResult(AppkeyResult result) {
+			this.result = result;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package rop.security;
+
+/**
+ * <pre>
+ *    检查环节所属的阶段，对应{@link SecurityManager}的各个校验方法
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public enum CheckPhase {
+
+	/**
+	 * 系统参数校验，{@link SecurityManager#validateSystemParameters(rop.RopRequestContext)}
+	 */
+	SYSTEM_PARAMETERS,
+
+	/**
+	 * 访问权限及调用次数校验，{@link DefaultSecurityManager#validateServiceAccess(rop.RopRequestContext)}
+	 */
+	SERVICE_ACCESS,
+
+	/**
+	 * 上传文件、业务参数等其它校验，在{@link #SERVICE_ACCESS}之后执行，{@link SecurityManager#validateOther(rop.RopRequestContext)}
+	 */
+	OTHER
+}
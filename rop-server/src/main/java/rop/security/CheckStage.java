@@ -0,0 +1,21 @@
+package rop.security;
+
+import rop.RopRequestContext;
+
+/**
+ * <pre>
+ *    请求检查流水线中的一个检查环节，{@link DefaultSecurityManager}为每个服务方法编译出只包含适用环节的数组，
+ *    请求到达时依次执行，返回第一个错误。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public interface CheckStage {
+
+	/**
+	 * @param ropRequestContext
+	 * @return 检查不通过时返回错误，否则返回null
+	 */
+	MainError check(RopRequestContext ropRequestContext);
+}
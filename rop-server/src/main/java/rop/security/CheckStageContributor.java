@@ -0,0 +1,27 @@
+package rop.security;
+
+import rop.RopContext;
+import rop.ServiceMethodHandler;
+
+import java.util.List;
+
+/**
+ * <pre>
+ *    向{@link DefaultSecurityManager}为服务方法编译的检查流水线添加自定义的检查环节。
+ *    编译在启动时(或服务方法第一次被请求时)对每个服务方法、每个阶段进行一次，
+ *    对不适用的服务方法不添加环节，请求时就没有额外的开销。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public interface CheckStageContributor {
+
+	/**
+	 * @param handler    服务方法
+	 * @param ropContext
+	 * @param phase      阶段
+	 * @param stages     该阶段已有的内置检查环节，可以追加、插入或移除
+	 */
+	void contribute(ServiceMethodHandler handler, RopContext ropContext, CheckPhase phase, List<CheckStage> stages);
+}
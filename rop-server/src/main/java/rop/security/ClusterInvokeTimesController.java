@@ -0,0 +1,389 @@
+package rop.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rop.thirdparty.com.google.common.cache.Cache;
+import rop.thirdparty.com.google.common.cache.CacheBuilder;
+import rop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <pre>
+ *    集群范围的应用访问频率控制器：应用每个时间窗口(frequencyWindowMillis，默认1秒)的访问次数上限为集群共享的配额，
+ *    各节点从{@link QuotaBackend}成批租借令牌(每批leaseSize个)后在本地消耗，访问配额存储都在后台线程进行，
+ *    请求线程不做I/O：
+ *      1.本地剩余令牌不足一批的refillRatio时在后台线程续租；
+ *      2.时间窗口过去prefetchRatio后在后台预租下一个窗口的第一批令牌，窗口切换时直接使用；
+ *      3.本地令牌用完且后台未及续租时，请求线程最多等待acquireTimeoutMillis毫秒，超时按放行处理，
+ *        配额已用完后本窗口内直接拒绝；
+ *      4.配额存储出错时按本地租借放行，不因配额存储不可用而拒绝服务；
+ *      5.{@link #close()}时归还未用完的令牌，服务路由器关闭时调用。
+ *    每批令牌越大，访问配额存储越少，但令牌可能滞留在访问少的节点上，使其它节点提前被拒绝，
+ *    leaseSize为0时取每窗口上限的1/20。高并发下本地令牌用完的瞬间可能多放行几次。
+ *    应用、会话、用户的调用次数限制仍由{@link LocalInvokeTimesController}在本机统计。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class ClusterInvokeTimesController extends LocalInvokeTimesController implements Closeable {
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final QuotaBackend quotaBackend;
+
+	private final Cache<String, AppLease> appLeases;
+
+	private final ThreadPoolExecutor leaseExecutor;
+
+	private static final int LEASE_THREADS = 4;
+
+	private long frequencyWindowMillis = 1000;
+
+	private int leaseSize;
+
+	private double refillRatio = 0.2;
+
+	private double prefetchRatio = 0.8;
+
+	private long acquireTimeoutMillis = 100;
+
+	public ClusterInvokeTimesController(QuotaBackend quotaBackend) {
+		this(quotaBackend, 10000);
+	}
+
+	/**
+	 * @param quotaBackend 配额存储
+	 * @param maximumApps  最多保留租约的应用数，空闲1分钟的租约被淘汰
+	 */
+	public ClusterInvokeTimesController(QuotaBackend quotaBackend, int maximumApps) {
+		this.quotaBackend = quotaBackend;
+		this.appLeases = CacheBuilder.newBuilder()
+				.maximumSize(maximumApps)
+				.expireAfterAccess(1, TimeUnit.MINUTES)
+				.build();
+		this.leaseExecutor = new ThreadPoolExecutor(LEASE_THREADS, LEASE_THREADS, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(maximumApps),
+				new ThreadFactoryBuilder().setNameFormat("rop-quota-lease-%d").setDaemon(true).build());
+		this.leaseExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	@Override
+	public boolean isAppInvokeFrequencyExceed(String appKey) {
+		if (appKey == null) {
+			return false;
+		}
+		int limit = appFrequencyLimitOf(appKey);
+		if (limit <= 0) {
+			return false;
+		}
+		long now = System.currentTimeMillis();
+		long window = now / frequencyWindowMillis;
+		AppLease appLease = getAppLease(appKey);
+		Lease lease = appLease.current;
+		if (lease == null || lease.window != window) {
+			lease = switchWindow(appKey, appLease, window, limit);
+		}
+		long remaining = lease.remaining.decrementAndGet();
+		if (remaining < 0) {
+			if (lease.exhausted) {
+				return true;
+			}
+			return !awaitRefill(refill(appKey, lease, limit), appKey);
+		}
+		if (remaining <= leaseSizeOf(limit) * refillRatio && !lease.exhausted) {
+			refill(appKey, lease, limit);
+		} else if (now - window * frequencyWindowMillis >= frequencyWindowMillis * prefetchRatio && appLease.next == null) {
+			prefetchAsync(appKey, appLease, window + 1, limit);
+		}
+		return false;
+	}
+
+	/**
+	 * 进入新的时间窗口：有预租的令牌时直接使用，否则从空的租约开始，由第一个请求触发后台租借
+	 */
+	private Lease switchWindow(String appKey, AppLease appLease, long window, int limit) {
+		synchronized (appLease) {
+			Lease current = appLease.current;
+			if (current != null && current.window >= window) {
+				return current;
+			}
+			Lease next = appLease.next;
+			if (next != null && next.window == window) {
+				appLease.next = null;
+			} else {
+				next = new Lease(window);
+			}
+			appLease.current = next;
+			return next;
+		}
+	}
+
+	/**
+	 * 在后台为租约续租一批令牌，同一租约同时只有一个续租任务
+	 *
+	 * @return 续租任务，提交失败时返回null
+	 */
+	private RefillTask refill(String appKey, Lease lease, int limit) {
+		RefillTask task = lease.refill.get();
+		if (task != null) {
+			return task;
+		}
+		task = new RefillTask(appKey, lease, limit);
+		if (!lease.refill.compareAndSet(null, task)) {
+			return lease.refill.get();
+		}
+		try {
+			leaseExecutor.execute(task);
+			return task;
+		} catch (RejectedExecutionException e) {
+			lease.refill.compareAndSet(task, null);
+			return null;
+		}
+	}
+
+	/**
+	 * 本地令牌用完时等待续租完成
+	 *
+	 * @return 是否放行，续租超时或无法提交时按放行处理
+	 */
+	private boolean awaitRefill(RefillTask task, String appKey) {
+		if (task == null) {
+			return true;
+		}
+		try {
+			task.get(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("等待{}的令牌超过{}毫秒，按放行处理", appKey, acquireTimeoutMillis);
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return true;
+		} catch (ExecutionException e) {
+			return true;
+		}
+		return !task.lease.exhausted;
+	}
+
+	private void prefetchAsync(final String appKey, final AppLease appLease, final long window, final int limit) {
+		submit(appLease, new Runnable() {
+			@Override
+			public void run() {
+				if (appLease.next != null) {
+					return;
+				}
+				Lease next = new Lease(window);
+				long granted = acquire(appKey, window, limit);
+				next.remaining.set(granted);
+				next.exhausted = granted <= 0;
+				synchronized (appLease) {
+					Lease current = appLease.current;
+					if (current == null || current.window < window) {
+						appLease.next = next;
+						return;
+					}
+				}
+				//窗口已经切换，归还预租的令牌
+				release(appKey, next);
+			}
+		});
+	}
+
+	/**
+	 * 每个应用同时只有一个后台租借任务
+	 */
+	private void submit(final AppLease appLease, final Runnable task) {
+		if (!appLease.leasing.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			leaseExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run();
+					} finally {
+						appLease.leasing.set(false);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			appLease.leasing.set(false);
+		}
+	}
+
+	/**
+	 * 租借一批令牌，配额存储出错时按本地租借放行
+	 */
+	private long acquire(String appKey, long window, int limit) {
+		int size = leaseSizeOf(limit);
+		try {
+			return quotaBackend.acquire(appKey, window, size, limit);
+		} catch (RuntimeException e) {
+			logger.warn("从配额存储租借" + appKey + "的令牌出错，按本地租借放行", e);
+			return size;
+		}
+	}
+
+	private void release(String appKey, Lease lease) {
+		long unused = lease.remaining.getAndSet(0);
+		if (unused > 0) {
+			try {
+				quotaBackend.release(appKey, lease.window, unused);
+			} catch (RuntimeException e) {
+				logger.warn("向配额存储归还" + appKey + "的令牌出错", e);
+			}
+		}
+	}
+
+	private int leaseSizeOf(int limit) {
+		return leaseSize > 0 ? Math.min(leaseSize, limit) : Math.max(limit / 20, 1);
+	}
+
+	private AppLease getAppLease(String appKey) {
+		AppLease appLease = appLeases.getIfPresent(appKey);
+		if (appLease == null) {
+			appLease = new AppLease();
+			AppLease existing = appLeases.asMap().putIfAbsent(appKey, appLease);
+			if (existing != null) {
+				appLease = existing;
+			}
+		}
+		return appLease;
+	}
+
+	/**
+	 * 停止后台租借，归还所有未用完的令牌
+	 */
+	@Override
+	public void close() {
+		leaseExecutor.shutdown();
+		for (Map.Entry<String, AppLease> entry : appLeases.asMap().entrySet()) {
+			AppLease appLease = entry.getValue();
+			synchronized (appLease) {
+				if (appLease.current != null) {
+					release(entry.getKey(), appLease.current);
+				}
+				if (appLease.next != null) {
+					release(entry.getKey(), appLease.next);
+				}
+			}
+		}
+		appLeases.invalidateAll();
+	}
+
+	public QuotaBackend getQuotaBackend() {
+		return quotaBackend;
+	}
+
+	public long getFrequencyWindowMillis() {
+		return frequencyWindowMillis;
+	}
+
+	/**
+	 * @param frequencyWindowMillis 访问频率的时间窗口，appFrequencyLimit为每个窗口的访问次数上限
+	 */
+	public void setFrequencyWindowMillis(long frequencyWindowMillis) {
+		this.frequencyWindowMillis = frequencyWindowMillis;
+	}
+
+	public int getLeaseSize() {
+		return leaseSize;
+	}
+
+	public void setLeaseSize(int leaseSize) {
+		this.leaseSize = leaseSize;
+	}
+
+	public double getRefillRatio() {
+		return refillRatio;
+	}
+
+	public void setRefillRatio(double refillRatio) {
+		this.refillRatio = refillRatio;
+	}
+
+	public long getAcquireTimeoutMillis() {
+		return acquireTimeoutMillis;
+	}
+
+	/**
+	 * @param acquireTimeoutMillis 本地令牌用完时请求线程等待后台租借的最长时间，超时按放行处理
+	 */
+	public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+	}
+
+	public double getPrefetchRatio() {
+		return prefetchRatio;
+	}
+
+	public void setPrefetchRatio(double prefetchRatio) {
+		this.prefetchRatio = prefetchRatio;
+	}
+
+	private static class AppLease {
+
+		private volatile Lease current;
+
+		//预租的下一个时间窗口的令牌
+		private volatile Lease next;
+
+		private final AtomicBoolean leasing = new AtomicBoolean(false);
+	}
+
+	private static class Lease {
+
+		private final long window;
+
+		private final AtomicLong remaining = new AtomicLong();
+
+		//配额存储中本窗口的配额已用完
+		private volatile boolean exhausted;
+
+		//正在进行的续租
+		private final AtomicReference<RefillTask> refill = new AtomicReference<RefillTask>();
+
+		private Lease(long window) {
+			this.window = window;
+		}
+	}
+
+	private class RefillTask extends FutureTask<Void> {
+
+		private final Lease lease;
+
+		private RefillTask(final String appKey, final Lease lease, final int limit) {
+			super(new Runnable() {
+				@Override
+				public void run() {
+					long granted = acquire(appKey, lease.window, limit);
+					if (granted > 0) {
+						lease.remaining.addAndGet(granted);
+					} else {
+						lease.exhausted = true;
+					}
+				}
+			}, null);
+			this.lease = lease;
+		}
+
+		@Override
+		protected void done() {
+			lease.refill.compareAndSet(this, null);
+		}
+	}
+}
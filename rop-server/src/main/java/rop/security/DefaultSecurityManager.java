@@ -10,6 +10,7 @@ import rop.error.MainErrors;
 import rop.error.SubErrors;
 import rop.impl.DefaultServiceAccessController;
 import rop.impl.SimpleRopRequestContext;
+import rop.request.ServiceRequest;
 import rop.request.SystemParameterNames;
 import rop.request.UploadFileUtils;
 import rop.session.SessionManager;
@@ -40,6 +41,97 @@ public class DefaultSecurityManager implements SecurityManager {
 
     protected FileUploadController fileUploadController;
 
+    protected ReplayGuard replayGuard;
+
+    private List<CheckStageContributor> checkStageContributors = Collections.emptyList();
+
+    //按服务方法序号保存的检查流水线，配置变更后清空重新编译
+    private volatile CompiledChecks[] compiledChecks = new CompiledChecks[0];
+
+    private final CheckStage uploadLimitStage = new CheckStage() {
+        @Override
+        public MainError check(RopRequestContext ropRequestContext) {
+            return checkUploadLimit(ropRequestContext);
+        }
+    };
+
+    private final CheckStage timestampStage = new CheckStage() {
+        @Override
+        public MainError check(RopRequestContext ropRequestContext) {
+            return checkTimestamp(ropRequestContext);
+        }
+    };
+
+    private final CheckStage appKeyStage = new CheckStage() {
+        @Override
+        public MainError check(RopRequestContext ropRequestContext) {
+            return checkAppKey(ropRequestContext);
+        }
+    };
+
+    private final CheckStage sessionStage = new CheckStage() {
+        @Override
+        public MainError check(RopRequestContext ropRequestContext) {
+            return checkSession(ropRequestContext);
+        }
+    };
+
+    private final CheckStage signStage = new CheckStage() {
+        @Override
+        public MainError check(RopRequestContext ropRequestContext) {
+            return checkSign(ropRequestContext);
+        }
+    };
+
+    private final CheckStage replayStage = new CheckStage() {
+        @Override
+        public MainError check(RopRequestContext ropRequestContext) {
+            return checkReplay(ropRequestContext);
+        }
+    };
+
+    private final CheckStage obsoletedStage = new CheckStage() {
+        @Override
+        public MainError check(RopRequestContext ropRequestContext) {
+            return MainErrors.getError(MainErrorType.METHOD_OBSOLETED, ropRequestContext.getLocale());
+        }
+    };
+
+    private final CheckStage httpActionStage = new CheckStage() {
+        @Override
+        public MainError check(RopRequestContext ropRequestContext) {
+            return validateHttpAction(ropRequestContext);
+        }
+    };
+
+    private final CheckStage serviceAccessStage = new CheckStage() {
+        @Override
+        public MainError check(RopRequestContext ropRequestContext) {
+            return checkServiceAccessAllow(ropRequestContext);
+        }
+    };
+
+    private final CheckStage invokeTimesStage = new CheckStage() {
+        @Override
+        public MainError check(RopRequestContext ropRequestContext) {
+            return checkInvokeTimesLimit(ropRequestContext);
+        }
+    };
+
+    private final CheckStage uploadFileStage = new CheckStage() {
+        @Override
+        public MainError check(RopRequestContext ropRequestContext) {
+            return checkUploadFile(ropRequestContext);
+        }
+    };
+
+    private final CheckStage businessParamsStage = new CheckStage() {
+        @Override
+        public MainError check(RopRequestContext ropRequestContext) {
+            return validateBusinessParams(ropRequestContext);
+        }
+    };
+
     private static final Map<String, SubErrorType> INVALIDE_CONSTRAINT_SUBERROR_MAPPINGS = new LinkedHashMap<String, SubErrorType>();
 
     static {
@@ -102,30 +194,26 @@ public class DefaultSecurityManager implements SecurityManager {
 
     @Override
     public MainError validateSystemParameters(RopRequestContext rrc) {
-        RopContext ropContext = rrc.getRopContext();
-        MainError mainError = null;
-
-		//0.检查时间戳是否正确
-		long currTime = System.currentTimeMillis();
-		if(ropContext.getTimestampTolerance() > 0 && Math.abs(currTime - rrc.getTimestamp())/1000 > ropContext.getTimestampTolerance()){
-			return MainErrors.getError(MainErrorType.TIMESTAMP_TOKEN_EXPIRE, rrc.getLocale());
-		}
+        CompiledChecks compiledChecks = getCompiledChecks(rrc);
+        if (compiledChecks != null) {
+            return check(compiledChecks.systemParameterStages, rrc);
+        }
 
+        //服务方法不存在，逐项检查以返回准确的错误
+        MainError mainError = checkUploadLimit(rrc);
+        if (mainError != null) {
+            return mainError;
+        }
 
-        //1.检查appKey
-        if (rrc.getAppKey() == null) {
-            return MainErrors.getError(MainErrorType.MISSING_APP_KEY, rrc.getLocale());
+        mainError = checkTimestamp(rrc);
+        if (mainError != null) {
+            return mainError;
         }
 
-		AppkeyResult appkeyResult = appSecretManager.isValidAppKey(rrc.getAppKey(),rrc);
-		rrc.setAppkeyUserId(appkeyResult.getAppkeyUserId());
-		if(!appkeyResult.isSuccess()){
-			if (AppkeyResult.APPKEY_INACTIVE.equals(appkeyResult.getResultCode())) {
-				return MainErrors.getError(MainErrorType.APPKEY_INACTIVE, rrc.getLocale());
-			}else{
-				return MainErrors.getError(MainErrorType.INVALID_APP_KEY, rrc.getLocale());
-			}
-		}
+        mainError = checkAppKey(rrc);
+        if (mainError != null) {
+            return mainError;
+        }
 
         //2.检查会话
         mainError = checkSession(rrc);
@@ -134,6 +222,7 @@ public class DefaultSecurityManager implements SecurityManager {
         }
 
         //3.检查method参数
+        RopContext ropContext = rrc.getRopContext();
         if (rrc.getMethod() == null) {
             return MainErrors.getError(MainErrorType.MISSING_METHOD, rrc.getLocale());
         } else {
@@ -151,55 +240,211 @@ public class DefaultSecurityManager implements SecurityManager {
             }
         }
 
-        //5.检查签名正确性
-        mainError = checkSign(rrc);
-        if (mainError != null) {
-            return mainError;
-        }
+        //method及v合法时服务方法一定存在，不会执行到这里
+        return MainErrors.getError(MainErrorType.INVALID_METHOD, rrc.getLocale());
+    }
 
-        //6.检查服务方法的版本是否已经过期
-        if (rrc.getServiceMethodDefinition().isObsoleted()) {
-            return MainErrors.getError(MainErrorType.METHOD_OBSOLETED, rrc.getLocale());
+    @Override
+    public MainError validateOther(RopRequestContext rrctx) {
+        CompiledChecks compiledChecks = getCompiledChecks(rrctx);
+        if (compiledChecks == null) {
+            return MainErrors.getError(MainErrorType.INVALID_METHOD, rrctx.getLocale());
         }
 
-        //7.检查请求HTTP方法的匹配性
-        mainError = validateHttpAction(rrc);
+        //1.判断应用/用户是否有权访问目标服务，2.判断应用/会话/用户访问服务的次数或频度是否超限
+        MainError mainError = check(compiledChecks.serviceAccessStages, rrctx);
         if (mainError != null) {
             return mainError;
         }
 
+        //3.如果是上传文件的服务，检查文件类型和大小是否满足要求，4.检查业务参数合法性
+        return check(compiledChecks.otherStages, rrctx);
+    }
+
+    /**
+     * 只验证应用/会话是否有权访问目标服务及调用次数是否超限，这些检查不依赖业务参数，
+     * 包含在{@link #validateOther(RopRequestContext)}中
+     *
+     * @param rrctx
+     * @return
+     */
+    public MainError validateServiceAccess(RopRequestContext rrctx) {
+        CompiledChecks compiledChecks = getCompiledChecks(rrctx);
+        if (compiledChecks == null) {
+            return MainErrors.getError(MainErrorType.INVALID_METHOD, rrctx.getLocale());
+        }
+        return check(compiledChecks.serviceAccessStages, rrctx);
+    }
+
+    private static MainError check(CheckStage[] stages, RopRequestContext rrctx) {
+        for (CheckStage stage : stages) {
+            MainError mainError = stage.check(rrctx);
+            if (mainError != null) {
+                return mainError;
+            }
+        }
         return null;
     }
 
-    @Override
-    public MainError validateOther(RopRequestContext rrctx) {
+    /**
+     * 为所有服务方法编译检查流水线，服务路由器启动时调用，
+     * 启动后注册的服务方法在第一次请求时编译
+     *
+     * @param ropContext
+     */
+    public void compileCheckStages(RopContext ropContext) {
+        for (ServiceMethodHandler handler : ropContext.getAllServiceMethodHandlers().values()) {
+            getCompiledChecks(handler, ropContext);
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("编译了{}个服务方法的请求检查流水线", ropContext.getServiceMethodCount());
+        }
+    }
 
-        MainError mainError = null;
+    private CompiledChecks getCompiledChecks(RopRequestContext rrctx) {
+        ServiceMethodHandler handler = rrctx.getServiceMethodHandler();
+        if (handler == null) {
+            return null;
+        }
+        return getCompiledChecks(handler, rrctx.getRopContext());
+    }
 
-        //1.判断应用/用户是否有权访问目标服务
-        mainError = checkServiceAccessAllow(rrctx);
-        if (mainError != null) {
-            return mainError;
+    /**
+     * 获取服务方法的检查流水线，按服务方法序号保存在写时复制的数组中
+     */
+    private CompiledChecks getCompiledChecks(ServiceMethodHandler handler, RopContext ropContext) {
+        int index = handler.getIndex();
+        CompiledChecks[] current = compiledChecks;
+        if (index >= 0 && index < current.length && current[index] != null && current[index].handler == handler) {
+            return current[index];
+        }
+        CompiledChecks checks = new CompiledChecks(handler,
+                buildStages(handler, ropContext, CheckPhase.SYSTEM_PARAMETERS),
+                buildStages(handler, ropContext, CheckPhase.SERVICE_ACCESS),
+                buildStages(handler, ropContext, CheckPhase.OTHER));
+        if (index >= 0) {
+            synchronized (this) {
+                current = compiledChecks;
+                CompiledChecks[] copy = Arrays.copyOf(current, Math.max(current.length, Math.max(index + 1, ropContext.getServiceMethodCount())));
+                copy[index] = checks;
+                compiledChecks = copy;
+            }
         }
+        return checks;
+    }
 
-        //2.判断应用/会话/用户访问服务的次数或频度是否超限
-        mainError = checkInvokeTimesLimit(rrctx);
-        if (mainError != null) {
-            return mainError;
+    private CheckStage[] buildStages(ServiceMethodHandler handler, RopContext ropContext, CheckPhase phase) {
+        List<CheckStage> stages = new ArrayList<CheckStage>();
+        buildStages(handler, ropContext, phase, stages);
+        for (CheckStageContributor contributor : checkStageContributors) {
+            contributor.contribute(handler, ropContext, phase, stages);
         }
+        return stages.toArray(new CheckStage[stages.size()]);
+    }
 
-        //3.如果是上传文件的服务，检查文件类型和大小是否满足要求
-        mainError = checkUploadFile(rrctx);
-        if (mainError != null) {
-            return mainError;
+    /**
+     * 添加服务方法在某个阶段适用的内置检查环节，不适用的环节不添加，子类可以覆盖以调整
+     *
+     * @param handler
+     * @param ropContext
+     * @param phase
+     * @param stages
+     */
+    protected void buildStages(ServiceMethodHandler handler, RopContext ropContext, CheckPhase phase, List<CheckStage> stages) {
+        ServiceMethodDefinition definition = handler.getServiceMethodDefinition();
+        if (phase == CheckPhase.SYSTEM_PARAMETERS) {
+            //流式解析上传数据时已超过大小限制，请求参数不完整
+            stages.add(uploadLimitStage);
+            //0.检查时间戳是否正确
+            if (ropContext.getTimestampTolerance() > 0) {
+                stages.add(timestampStage);
+            }
+            //1.检查appKey
+            stages.add(appKeyStage);
+            //2.检查会话
+            if (definition.isNeedInSession()) {
+                stages.add(sessionStage);
+            }
+            //3.4.服务方法按method及v找到，二者一定合法
+            //5.检查签名正确性，5.1检查是否是重放的请求
+            if (ropContext.isSignEnable()) {
+                if (definition.isIgnoreSign()) {
+                    if (logger.isWarnEnabled()) {
+                        logger.warn(definition.getMethod() + "忽略了签名");
+                    }
+                } else {
+                    stages.add(signStage);
+                    if (replayGuard != null) {
+                        stages.add(replayStage);
+                    }
+                }
+            }
+            //6.检查服务方法的版本是否已经过期
+            if (definition.isObsoleted()) {
+                stages.add(obsoletedStage);
+            }
+            //7.检查请求HTTP方法的匹配性
+            if (definition.getHttpAction().length > 0) {
+                stages.add(httpActionStage);
+            }
+        } else if (phase == CheckPhase.SERVICE_ACCESS) {
+            //默认的控制器不做任何限制
+            if (serviceAccessController != null && serviceAccessController.getClass() != DefaultServiceAccessController.class) {
+                stages.add(serviceAccessStage);
+            }
+            if (invokeTimesController != null && invokeTimesController.getClass() != DefaultInvokeTimesController.class) {
+                stages.add(invokeTimesStage);
+            }
+        } else if (phase == CheckPhase.OTHER) {
+            if (handler.hasUploadFiles()) {
+                stages.add(uploadFileStage);
+            }
+            //只有请求对象参数会产生绑定及校验错误
+            for (Class<?> parameterType : handler.getMethodParameterTypes()) {
+                if (ServiceRequest.class.isAssignableFrom(parameterType)) {
+                    stages.add(businessParamsStage);
+                    break;
+                }
+            }
         }
+    }
 
-        //4.检查业务参数合法性
-        mainError = validateBusinessParams(rrctx);
-        if (mainError != null) {
-            return mainError;
+    /**
+     * 检查时间戳是否正确
+     */
+    private MainError checkTimestamp(RopRequestContext rrc) {
+        long tolerance = rrc.getRopContext().getTimestampTolerance();
+        if (tolerance > 0 && Math.abs(System.currentTimeMillis() - rrc.getTimestamp()) / 1000 > tolerance) {
+            return MainErrors.getError(MainErrorType.TIMESTAMP_TOKEN_EXPIRE, rrc.getLocale());
+        }
+        return null;
+    }
+
+    /**
+     * 检查appKey
+     */
+    private MainError checkAppKey(RopRequestContext rrc) {
+        if (rrc.getAppKey() == null) {
+            return MainErrors.getError(MainErrorType.MISSING_APP_KEY, rrc.getLocale());
         }
 
+		AppkeyResult appkeyResult = appSecretManager.isValidAppKey(rrc.getAppKey(),rrc);
+		rrc.setAppkeyResult(appkeyResult);
+		rrc.setAppkeyUserId(appkeyResult.getAppkeyUserId());
+		if(!appkeyResult.isSuccess()){
+			if (AppkeyResult.APPKEY_INACTIVE.equals(appkeyResult.getResultCode())) {
+				return MainErrors.getError(MainErrorType.APPKEY_INACTIVE, rrc.getLocale());
+			}else{
+				return MainErrors.getError(MainErrorType.INVALID_APP_KEY, rrc.getLocale());
+			}
+		}
+        return null;
+    }
+
+    private MainError checkUploadLimit(RopRequestContext rrctx) {
+        if (rrctx.getAttribute(SimpleRopRequestContext.UPLOAD_ERROR_ATTRNAME) != null) {
+            return MainErrors.getError(MainErrorType.UPLOAD_FAIL, rrctx.getLocale());
+        }
         return null;
     }
 
@@ -231,11 +476,13 @@ public class DefaultSecurityManager implements SecurityManager {
     @Override
     public void setInvokeTimesController(InvokeTimesController invokeTimesController) {
         this.invokeTimesController = invokeTimesController;
+        resetCompiledChecks();
     }
 
     @Override
     public void setServiceAccessController(ServiceAccessController serviceAccessController) {
         this.serviceAccessController = serviceAccessController;
+        resetCompiledChecks();
     }
 
     @Override
@@ -251,11 +498,64 @@ public class DefaultSecurityManager implements SecurityManager {
     @Override
     public void setFileUploadController(FileUploadController fileUploadController) {
         this.fileUploadController = fileUploadController;
+        resetCompiledChecks();
+    }
+
+    public List<CheckStageContributor> getCheckStageContributors() {
+        return checkStageContributors;
+    }
+
+    /**
+     * 设置向检查流水线添加自定义检查环节的贡献者
+     *
+     * @param checkStageContributors
+     */
+    public void setCheckStageContributors(List<CheckStageContributor> checkStageContributors) {
+        this.checkStageContributors = checkStageContributors != null ?
+                new ArrayList<CheckStageContributor>(checkStageContributors) : Collections.<CheckStageContributor>emptyList();
+        resetCompiledChecks();
+    }
+
+    /**
+     * 清空已编译的检查流水线，影响检查环节取舍的配置变更后调用
+     */
+    protected void resetCompiledChecks() {
+        compiledChecks = new CompiledChecks[0];
+    }
+
+    /**
+     * 设置重放请求检查器，为null表示不检查重放
+     *
+     * @param replayGuard
+     */
+    public void setReplayGuard(ReplayGuard replayGuard) {
+        this.replayGuard = replayGuard;
+        resetCompiledChecks();
+    }
+
+    /**
+     * 签名通过后检查请求是否重放：签名覆盖了时间戳，相同appKey的相同签名在时间戳容忍范围内只能出现一次
+     */
+    private MainError checkReplay(RopRequestContext ctx) {
+        if (replayGuard == null || !ctx.isSignEnable() || ctx.getSign() == null
+                || ctx.getServiceMethodDefinition().isIgnoreSign()) {
+            return null;
+        }
+        if (replayGuard.isReplayed(ctx.getAppKey(), ctx.getSign(), ctx.getTimestamp())) {
+            if (logger.isWarnEnabled()) {
+                logger.warn(ctx.getAppKey() + "的请求重复提交，签名为" + ctx.getSign());
+            }
+            return MainErrors.getError(MainErrorType.REPLAYED_REQUEST, ctx.getLocale());
+        }
+        return null;
     }
 
     private MainError checkInvokeTimesLimit(RopRequestContext rrctx) {
         if (invokeTimesController.isAppInvokeFrequencyExceed(rrctx.getAppKey())) {
             return MainErrors.getError(MainErrorType.EXCEED_APP_INVOKE_FREQUENCY_LIMITED, rrctx.getLocale());
+        } else if (invokeTimesController instanceof RequestInvokeTimesController
+                && ((RequestInvokeTimesController) invokeTimesController).isServiceInvokeFrequencyExceed(rrctx)) {
+            return MainErrors.getError(MainErrorType.EXCEED_APP_INVOKE_FREQUENCY_LIMITED, rrctx.getLocale());
         } else if (invokeTimesController.isAppInvokeLimitExceed(rrctx.getAppKey())) {
             return MainErrors.getError(MainErrorType.EXCEED_APP_INVOKE_LIMITED, rrctx.getLocale());
         } else if (invokeTimesController.isSessionInvokeLimitExceed(rrctx.getAppKey(), rrctx.getSessionId())) {
@@ -299,7 +599,11 @@ public class DefaultSecurityManager implements SecurityManager {
     }
 
     private MainError checkServiceAccessAllow(RopRequestContext smc) {
-        if (!getServiceAccessController().isAppGranted(smc.getAppKey(), smc.getMethod(), smc.getVersion())) {
+        ServiceAccessController controller = getServiceAccessController();
+        //按服务方法序号判断，省去服务方法名的拼接及查找
+        boolean indexed = controller instanceof IndexedServiceAccessController && smc.getServiceMethodHandler() != null;
+        if (!(indexed ? ((IndexedServiceAccessController) controller).isAppGranted(smc) :
+                controller.isAppGranted(smc.getAppKey(), smc.getMethod(), smc.getVersion()))) {
             MainError mainError = SubErrors.getMainError(SubErrorType.ISV_INVALID_PERMISSION, smc.getLocale());
             SubError subError = SubErrors.getSubError(SubErrorType.ISV_INVALID_PERMISSION.value(),
                     SubErrorType.ISV_INVALID_PERMISSION.value(),
@@ -310,7 +614,8 @@ public class DefaultSecurityManager implements SecurityManager {
             }
             return mainError;
         } else {
-            if (!getServiceAccessController().isUserGranted(smc.getSession(), smc.getMethod(), smc.getVersion())) {
+            if (!(indexed ? ((IndexedServiceAccessController) controller).isUserGranted(smc) :
+                    controller.isUserGranted(smc.getSession(), smc.getMethod(), smc.getVersion()))) {
                 MainError mainError = MainErrors.getError(MainErrorType.INSUFFICIENT_USER_PERMISSIONS, smc.getLocale());
                 SubError subError = SubErrors.getSubError(SubErrorType.ISV_INVALID_PERMISSION.value(),
                         SubErrorType.ISV_INVALID_PERMISSION.value(),
@@ -352,17 +657,22 @@ public class DefaultSecurityManager implements SecurityManager {
                     return MainErrors.getError(MainErrorType.MISSING_SIGNATURE, ctx.getLocale());
                 } else {
 
-                    //获取需要签名的参数
-                    Set<String> ignoreSignFieldNames = ctx.getServiceMethodHandler().getIgnoreSignFieldNames();
-                    HashMap<String, String> needSignParams = new HashMap<String, String>();
-                    for (Map.Entry<String, String> entry : ctx.getRequestBodyMap().entrySet()) {
-                        if (!ignoreSignFieldNames.contains(entry.getKey())) {
-                            needSignParams.put(entry.getKey(), entry.getValue());
+                    //检查签名方式
+                    String signMethod = ctx.getRequestHeaderMap().get(SystemParameterNames.getSignMethod());
+                    if (!RopUtils.isSupportedSignMethod(signMethod)) {
+                        if (logger.isErrorEnabled()) {
+                            logger.error(ctx.getAppKey() + "使用了不支持的签名方式" + signMethod);
                         }
+                        return MainErrors.getError(MainErrorType.INVALID_SIGNATURE, ctx.getLocale());
                     }
 
                     //查看密钥是否存在，不存在则说明appKey是非法的
-                    AppkeyResult appkeyResult = getAppSecretManager().getSecret(ctx.getAppKey(),ctx);
+                    //isValidAppKey()已返回密钥时不再查询
+                    AppkeyResult appkeyResult = ctx.getAppkeyResult();
+                    if (appkeyResult == null || !appkeyResult.isSuccess() || appkeyResult.getData() == null) {
+                        appkeyResult = getAppSecretManager().getSecret(ctx.getAppKey(), ctx);
+                        ctx.setAppkeyResult(appkeyResult);
+                    }
                     if (appkeyResult == null || appkeyResult.getData() == null) {
                         throw new RopException("无法获取" + ctx.getAppKey() + "对应的密钥");
                     }else if(!appkeyResult.isSuccess()) {
@@ -374,12 +684,16 @@ public class DefaultSecurityManager implements SecurityManager {
 					}
 
 					String signSecret = appkeyResult.getData();
-					Map<String,String> headerMap = new HashMap<String,String>(ctx.getRequestHeaderMap());
-					headerMap.remove(SystemParameterNames.getSign());
-
 
-                    String signValue = RopUtils.sign(needSignParams,headerMap,ctx.getExtInfoMap(), signSecret);
-                    if (!signValue.equals(ctx.getSign())) {
+                    //签名参数本身及不需要签名的参数直接在签名计算中跳过，不再复制参数
+                    String signValue;
+                    if (ctx.hasRequestBody()) {//JSON等请求体以请求体摘要参与签名
+                        signValue = RopUtils.sign(ctx.getRequestBody(), ctx.getRequestHeaderMap(), ctx.getExtInfoMap(), signSecret);
+                    } else {
+                        signValue = RopUtils.sign(ctx.getRequestBodyMap(), ctx.getServiceMethodHandler().getIgnoreSignFieldNames(),
+                                ctx.getRequestHeaderMap(), ctx.getExtInfoMap(), signSecret);
+                    }
+                    if (!RopUtils.isSignEqual(signValue, ctx.getSign())) {
                         if (logger.isErrorEnabled()) {
                             logger.error(ctx.getAppKey() + "的签名不合法，请检查");
                         }
@@ -499,5 +813,23 @@ public class DefaultSecurityManager implements SecurityManager {
         }
         return mainError;
     }
-}
 
+    private static class CompiledChecks {
+
+        private final ServiceMethodHandler handler;
+
+        private final CheckStage[] systemParameterStages;
+
+        private final CheckStage[] serviceAccessStages;
+
+        private final CheckStage[] otherStages;
+
+        private CompiledChecks(ServiceMethodHandler handler, CheckStage[] systemParameterStages,
+                               CheckStage[] serviceAccessStages, CheckStage[] otherStages) {
+            this.handler = handler;
+            this.systemParameterStages = systemParameterStages;
+            this.serviceAccessStages = serviceAccessStages;
+            this.otherStages = otherStages;
+        }
+    }
+}
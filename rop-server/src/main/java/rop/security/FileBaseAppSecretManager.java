@@ -11,10 +11,13 @@ import rop.RopRequestContext;
 
 import java.io.IOException;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * <pre>
- *    基于文件管理的应用密钥
+ *    基于文件管理的应用密钥。
+ *    属性文件在第一次使用时加载，此后每隔reloadIntervalSeconds秒检查一次文件的修改时间，
+ *    文件有变化时重新加载，重新加载失败时继续使用原来的密钥。
  * </pre>
  *
  * @author 陈雄华
@@ -29,23 +32,25 @@ public class FileBaseAppSecretManager implements AppSecretManager {
 
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private Properties properties;
+    private volatile Properties properties;
+
+    //检查文件是否修改的间隔，不大于0时不重新加载
+    private int reloadIntervalSeconds = 60;
+
+    private volatile long lastModified;
+
+    private volatile long lastCheckTime;
+
+    private final Object loadLock = new Object();
+
+    private final AtomicBoolean checking = new AtomicBoolean(false);
 
     public AppkeyResult getSecret(String appKey,RopRequestContext requestContext) {
 		AppkeyResult result = new AppkeyResult(null);
-        if (properties == null) {
-            try {
-                DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
-                Resource resource = resourceLoader.getResource(appSecretFile);
-                properties =   PropertiesLoaderUtils.loadProperties(resource);
-            } catch (IOException e) {
-                throw new RopException("在类路径下找不到rop.appSecret.properties的应用密钥的属性文件", e);
-            }
-        }
-        String secret = properties.getProperty(appKey);
+        String secret = appKey == null ? null : getProperties().getProperty(appKey);
 
         if (secret == null) {
-            logger.error("不存在应用键为{0}的密钥,请检查应用密钥的配置文件。", appKey);
+            logger.error("不存在应用键为{}的密钥,请检查应用密钥的配置文件。", appKey);
 			result.fail();
         }else{
 			result.success(secret);
@@ -53,13 +58,76 @@ public class FileBaseAppSecretManager implements AppSecretManager {
         return result;
     }
 
+    private Properties getProperties() {
+        Properties current = properties;
+        if (current == null) {
+            synchronized (loadLock) {
+                if (properties == null) {
+                    Resource resource = new DefaultResourceLoader().getResource(appSecretFile);
+                    try {
+                        properties = PropertiesLoaderUtils.loadProperties(resource);
+                    } catch (IOException e) {
+                        throw new RopException("在类路径下找不到rop.appSecret.properties的应用密钥的属性文件", e);
+                    }
+                    lastModified = getLastModified(resource);
+                    lastCheckTime = System.currentTimeMillis();
+                }
+                return properties;
+            }
+        }
+        if (reloadIntervalSeconds > 0 && System.currentTimeMillis() - lastCheckTime > reloadIntervalSeconds * 1000L
+                && checking.compareAndSet(false, true)) {
+            try {
+                reloadIfModified();
+            } finally {
+                checking.set(false);
+            }
+        }
+        return properties;
+    }
+
+    private void reloadIfModified() {
+        lastCheckTime = System.currentTimeMillis();
+        Resource resource = new DefaultResourceLoader().getResource(appSecretFile);
+        long modified = getLastModified(resource);
+        if (modified == 0 || modified == lastModified) {
+            return;
+        }
+        try {
+            properties = PropertiesLoaderUtils.loadProperties(resource);
+            lastModified = modified;
+            if (logger.isInfoEnabled()) {
+                logger.info("应用密钥文件{}已修改，重新加载", appSecretFile);
+            }
+        } catch (IOException e) {
+            logger.warn("重新加载应用密钥文件" + appSecretFile + "出错，继续使用原来的密钥", e);
+        }
+    }
+
+    /**
+     * 获取文件的修改时间，无法获取(如jar包中的文件)时返回0
+     */
+    private long getLastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("无法获取应用密钥文件" + appSecretFile + "的修改时间，不重新加载", e);
+            }
+            return 0;
+        }
+    }
+
     public void setAppSecretFile(String appSecretFile) {
         this.appSecretFile = appSecretFile;
     }
 
+    public void setReloadIntervalSeconds(int reloadIntervalSeconds) {
+        this.reloadIntervalSeconds = reloadIntervalSeconds;
+    }
+
     @Override
     public AppkeyResult isValidAppKey(String appKey,RopRequestContext requestContext) {
 		return getSecret(appKey,requestContext);
     }
 }
-
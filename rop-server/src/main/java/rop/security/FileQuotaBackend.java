@@ -0,0 +1,196 @@
+package rop.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rop.RopException;
+import rop.thirdparty.com.google.common.hash.HashFunction;
+import rop.thirdparty.com.google.common.hash.Hashing;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+/**
+ * <pre>
+ *    基于内存映射文件的配额存储，同一台机器上的多个进程打开同一个文件即可共享配额，
+ *    用于不依赖Redis等远程存储时测试或部署{@link ClusterInvokeTimesController}。
+ *    文件为固定大小的开放寻址表，每个槽40字节：键的64位哈希，及按时间窗口序号的奇偶保存的
+ *    相邻两个窗口的序号和已借出的令牌数，预租下一个窗口的令牌不影响当前窗口。
+ *    每次租借或归还时以文件锁互斥。一个进程内每个文件只应创建一个实例。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class FileQuotaBackend implements QuotaBackend, Closeable {
+
+	//槽的格式变化时修改，旧格式的文件重新初始化
+	private static final int MAGIC = 0x524f5043;
+
+	//magic(4) + capacity(4)
+	private static final int HEADER_SIZE = 8;
+
+	//hash(8) + 两个窗口的(window(8) + used(8))
+	private static final int SLOT_SIZE = 40;
+
+	private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final File file;
+
+	private final int capacity;
+
+	private final RandomAccessFile randomAccessFile;
+
+	private final FileChannel channel;
+
+	private final MappedByteBuffer buffer;
+
+	/**
+	 * @param file     配额文件，不存在时创建
+	 * @param capacity 最多保存的键数
+	 */
+	public FileQuotaBackend(File file, int capacity) {
+		if (capacity <= 0 || capacity > (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE) {
+			throw new IllegalArgumentException("capacity必须大于0且不超过" + (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE);
+		}
+		this.file = file;
+		this.capacity = capacity;
+		long size = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+		try {
+			this.randomAccessFile = new RandomAccessFile(file, "rw");
+			this.channel = randomAccessFile.getChannel();
+			FileLock lock = channel.lock();
+			try {
+				boolean valid = randomAccessFile.length() == size;
+				randomAccessFile.setLength(size);
+				this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+				if (!valid || buffer.getInt(0) != MAGIC || buffer.getInt(4) != capacity) {
+					for (int i = 0; i < size; i += 8) {
+						buffer.putLong(i, 0L);
+					}
+					buffer.putInt(0, MAGIC);
+					buffer.putInt(4, capacity);
+				}
+			} finally {
+				lock.release();
+			}
+		} catch (IOException e) {
+			throw new RopException("无法打开配额文件" + file, e);
+		}
+	}
+
+	public FileQuotaBackend(String file, int capacity) {
+		this(new File(file), capacity);
+	}
+
+	@Override
+	public synchronized long acquire(String key, long window, long requested, long limit) {
+		FileLock lock = lock();
+		try {
+			int offset = findSlot(key, true);
+			if (offset < 0) {
+				logger.warn("配额文件{}已满({}个键)，{}不受集群配额限制", new Object[]{file, capacity, key});
+				return requested;
+			}
+			int windowOffset = windowOffset(offset, window);
+			long slotWindow = buffer.getLong(windowOffset);
+			if (slotWindow > window) {
+				return 0;
+			}
+			long used = slotWindow == window ? buffer.getLong(windowOffset + 8) : 0;
+			long granted = Math.max(Math.min(requested, limit - used), 0);
+			buffer.putLong(windowOffset, window);
+			buffer.putLong(windowOffset + 8, used + granted);
+			return granted;
+		} finally {
+			release(lock);
+		}
+	}
+
+	@Override
+	public synchronized void release(String key, long window, long unused) {
+		if (unused <= 0) {
+			return;
+		}
+		FileLock lock = lock();
+		try {
+			int offset = findSlot(key, false);
+			if (offset >= 0) {
+				int windowOffset = windowOffset(offset, window);
+				if (buffer.getLong(windowOffset) == window) {
+					buffer.putLong(windowOffset + 8, Math.max(buffer.getLong(windowOffset + 8) - unused, 0));
+				}
+			}
+		} finally {
+			release(lock);
+		}
+	}
+
+	/**
+	 * 按线性探测查找键的槽
+	 *
+	 * @return 槽的偏移量，不存在或表满时返回-1
+	 */
+	private int findSlot(String key, boolean create) {
+		long hash = HASH_FUNCTION.newHasher().putUnencodedChars(key).hash().asLong();
+		if (hash == 0) {
+			//0表示空槽
+			hash = 1;
+		}
+		int start = (int) ((hash & Long.MAX_VALUE) % capacity);
+		for (int i = 0; i < capacity; i++) {
+			int offset = HEADER_SIZE + ((start + i) % capacity) * SLOT_SIZE;
+			long slotHash = buffer.getLong(offset);
+			if (slotHash == hash) {
+				return offset;
+			}
+			if (slotHash == 0) {
+				if (!create) {
+					return -1;
+				}
+				buffer.putLong(offset, hash);
+				buffer.putLong(offset + 8, Long.MIN_VALUE);
+				buffer.putLong(offset + 16, 0L);
+				buffer.putLong(offset + 24, Long.MIN_VALUE);
+				buffer.putLong(offset + 32, 0L);
+				return offset;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 时间窗口在槽中的位置，奇偶窗口各占一个位置
+	 */
+	private static int windowOffset(int slotOffset, long window) {
+		return slotOffset + 8 + (int) (window & 1) * 16;
+	}
+
+	private FileLock lock() {
+		try {
+			return channel.lock();
+		} catch (IOException e) {
+			throw new RopException("锁定配额文件" + file + "出错", e);
+		}
+	}
+
+	private void release(FileLock lock) {
+		try {
+			lock.release();
+		} catch (IOException e) {
+			logger.warn("释放配额文件" + file + "的锁出错", e);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		buffer.force();
+		randomAccessFile.close();
+	}
+}
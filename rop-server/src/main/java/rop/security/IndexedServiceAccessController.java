@@ -0,0 +1,31 @@
+package rop.security;
+
+import rop.RopRequestContext;
+
+/**
+ * <pre>
+ *    按服务方法序号({@link rop.ServiceMethodHandler#getIndex()})判断访问权限的服务访问控制器，
+ *    {@link DefaultSecurityManager}优先调用本接口的方法，不再传入方法名和版本号字符串。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public interface IndexedServiceAccessController extends ServiceAccessController {
+
+	/**
+	 * 请求的服务方法是否向请求的ISV(appKey)开放
+	 *
+	 * @param ropRequestContext 已设置服务处理器的请求上下文
+	 * @return
+	 */
+	boolean isAppGranted(RopRequestContext ropRequestContext);
+
+	/**
+	 * 请求的服务方法是否向当前会话的用户开放
+	 *
+	 * @param ropRequestContext 已设置服务处理器的请求上下文
+	 * @return
+	 */
+	boolean isUserGranted(RopRequestContext ropRequestContext);
+}
@@ -0,0 +1,406 @@
+package rop.security;
+
+import rop.RopRequestContext;
+import rop.ServiceMethodHandler;
+import rop.session.Session;
+import rop.thirdparty.com.google.common.cache.Cache;
+import rop.thirdparty.com.google.common.cache.CacheBuilder;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *    单机内存中的服务调用次数/频度控制器：
+ *      1.应用的访问频率(每秒次数)及按服务方法的访问频率用{@link TokenBucket}控制，允许burst倍于每秒限额的突发；
+ *      2.应用、会话、用户在滑动窗口(windowSeconds)内的调用次数用{@link SlidingWindowCounter}统计，
+ *        应用的计数按线程分散累加；
+ *      3.各类计数器分别最多保留maximumKeys个，空闲超过一个窗口(此时计数已归零)后淘汰，
+ *        大量随机的会话ID只会挤掉最久未访问的计数器，不会耗尽内存；
+ *      4.用户由会话属性userIdAttributeName标识，会话中没有该属性时不限制用户的调用次数；
+ *      5.设置了appDailyQuotaStore时，应用每天的调用次数保存在{@link MappedQuotaStore}中，重启后不丢失。
+ *    限额为0表示不限制，appFrequencyLimits、appInvokeLimits可按appKey覆盖默认限额，
+ *    serviceFrequencyLimits的键为服务方法名或{@link ServiceMethodHandler#methodWithVersion(String, String)}，
+ *    限制每个应用对该服务方法的每秒访问次数。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class LocalInvokeTimesController implements RequestInvokeTimesController {
+
+	/**
+	 * 会话中保存用户ID的默认属性名
+	 */
+	public static final String DEFAULT_USER_ID_ATTRIBUTE_NAME = "ROP_USER_ID";
+
+	private static final int APP_COUNTER_STRIPES = Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors(), 1));
+
+	private int appFrequencyLimit;
+
+	private int appFrequencyBurst;
+
+	private Map<String, Integer> appFrequencyLimits = Collections.emptyMap();
+
+	private Map<String, Integer> serviceFrequencyLimits = Collections.emptyMap();
+
+	private long appInvokeLimit;
+
+	private Map<String, Long> appInvokeLimits = Collections.emptyMap();
+
+	private MappedQuotaStore appDailyQuotaStore;
+
+	private long appDailyInvokeLimit;
+
+	private Map<String, Long> appDailyInvokeLimits = Collections.emptyMap();
+
+	private long sessionInvokeLimit;
+
+	private long userInvokeLimit;
+
+	private String userIdAttributeName = DEFAULT_USER_ID_ATTRIBUTE_NAME;
+
+	private int windowSeconds = 3600;
+
+	private int windowSlices = 12;
+
+	private int maximumKeys = 100000;
+
+	private volatile Counters counters;
+
+	@Override
+	public boolean isAppInvokeFrequencyExceed(String appKey) {
+		if (appKey == null) {
+			return false;
+		}
+		int limit = appFrequencyLimitOf(appKey);
+		if (limit <= 0) {
+			return false;
+		}
+		int burst = appFrequencyBurst > 0 ? appFrequencyBurst : limit;
+		return !getBucket(getCounters().appBuckets, appKey).tryAcquire(limit, burst);
+	}
+
+	/**
+	 * @param appKey
+	 * @return 应用每秒的访问次数上限，0表示不限制
+	 */
+	protected int appFrequencyLimitOf(String appKey) {
+		return limitOf(appFrequencyLimits, appKey, appFrequencyLimit);
+	}
+
+	@Override
+	public boolean isServiceInvokeFrequencyExceed(RopRequestContext ropRequestContext) {
+		if (serviceFrequencyLimits.isEmpty() || ropRequestContext.getAppKey() == null) {
+			return false;
+		}
+		String methodWithVersion = ServiceMethodHandler.methodWithVersion(ropRequestContext.getMethod(), ropRequestContext.getVersion());
+		Integer limit = serviceFrequencyLimits.get(methodWithVersion);
+		if (limit == null) {
+			limit = serviceFrequencyLimits.get(ropRequestContext.getMethod());
+		}
+		if (limit == null || limit <= 0) {
+			return false;
+		}
+		String key = ropRequestContext.getAppKey() + '@' + methodWithVersion;
+		return !getBucket(getCounters().serviceBuckets, key).tryAcquire(limit, limit);
+	}
+
+	@Override
+	public boolean isAppInvokeLimitExceed(String appKey) {
+		if (appKey == null) {
+			return false;
+		}
+		long limit = limitOf(appInvokeLimits, appKey, appInvokeLimit);
+		if (limit > 0 && sumOf(getCounters().appCounters, appKey) >= limit) {
+			return true;
+		}
+		long dailyLimit = isDailyLimited() ? limitOf(appDailyInvokeLimits, appKey, appDailyInvokeLimit) : 0;
+		return dailyLimit > 0 && appDailyQuotaStore.get(appKey) >= dailyLimit;
+	}
+
+	private boolean isDailyLimited() {
+		return appDailyQuotaStore != null && (appDailyInvokeLimit > 0 || !appDailyInvokeLimits.isEmpty());
+	}
+
+	@Override
+	public boolean isSessionInvokeLimitExceed(String appKey, String sessionId) {
+		return sessionInvokeLimit > 0 && sessionId != null && sumOf(getCounters().sessionCounters, sessionId) >= sessionInvokeLimit;
+	}
+
+	@Override
+	public boolean isUserInvokeLimitExceed(String appKey, Session session) {
+		if (userInvokeLimit <= 0) {
+			return false;
+		}
+		String userId = getUserId(session);
+		return userId != null && sumOf(getCounters().userCounters, userId) >= userInvokeLimit;
+	}
+
+	@Override
+	public void caculateInvokeTimes(RopRequestContext ropRequestContext) {
+		caculateInvokeTimes(ropRequestContext.getAppKey(), ropRequestContext.getSessionId(), ropRequestContext.getSession());
+	}
+
+	/**
+	 * 没有会话ID，不计算会话的调用次数
+	 */
+	@Override
+	public void caculateInvokeTimes(String appKey, Session session) {
+		caculateInvokeTimes(appKey, null, session);
+	}
+
+	private void caculateInvokeTimes(String appKey, String sessionId, Session session) {
+		Counters current = getCounters();
+		if (appKey != null && (appInvokeLimit > 0 || !appInvokeLimits.isEmpty())) {
+			getCounter(current.appCounters, appKey, APP_COUNTER_STRIPES).increment();
+		}
+		if (appKey != null && isDailyLimited()) {
+			appDailyQuotaStore.incrementAndGet(appKey);
+		}
+		if (sessionId != null && sessionInvokeLimit > 0) {
+			getCounter(current.sessionCounters, sessionId, 1).increment();
+		}
+		if (userInvokeLimit > 0) {
+			String userId = getUserId(session);
+			if (userId != null) {
+				getCounter(current.userCounters, userId, 1).increment();
+			}
+		}
+	}
+
+	private String getUserId(Session session) {
+		if (session == null) {
+			return null;
+		}
+		Object userId = session.getAttribute(userIdAttributeName);
+		return userId != null ? userId.toString() : null;
+	}
+
+	private static <T extends Number> T limitOf(Map<String, T> limits, String appKey, T defaultLimit) {
+		T limit = limits.get(appKey);
+		return limit != null ? limit : defaultLimit;
+	}
+
+	private static TokenBucket getBucket(Cache<String, TokenBucket> buckets, String key) {
+		TokenBucket bucket = buckets.getIfPresent(key);
+		if (bucket == null) {
+			bucket = new TokenBucket();
+			TokenBucket existing = buckets.asMap().putIfAbsent(key, bucket);
+			if (existing != null) {
+				bucket = existing;
+			}
+		}
+		return bucket;
+	}
+
+	private long sumOf(Cache<String, SlidingWindowCounter> counters, String key) {
+		SlidingWindowCounter counter = counters.getIfPresent(key);
+		return counter != null ? counter.sum() : 0;
+	}
+
+	private SlidingWindowCounter getCounter(Cache<String, SlidingWindowCounter> counters, String key, int stripes) {
+		SlidingWindowCounter counter = counters.getIfPresent(key);
+		if (counter == null) {
+			counter = new SlidingWindowCounter(TimeUnit.SECONDS.toMillis(windowSeconds), windowSlices, stripes);
+			ConcurrentMap<String, SlidingWindowCounter> map = counters.asMap();
+			SlidingWindowCounter existing = map.putIfAbsent(key, counter);
+			if (existing != null) {
+				counter = existing;
+			}
+		}
+		return counter;
+	}
+
+	private Counters getCounters() {
+		Counters current = counters;
+		if (current == null) {
+			synchronized (this) {
+				current = counters;
+				if (current == null) {
+					current = new Counters(maximumKeys, windowSeconds);
+					counters = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * 清空所有计数，修改窗口长度或最大计数器数后调用才能生效
+	 */
+	public synchronized void reset() {
+		counters = null;
+	}
+
+	public int getAppFrequencyLimit() {
+		return appFrequencyLimit;
+	}
+
+	/**
+	 * @param appFrequencyLimit 应用每秒的访问次数上限
+	 */
+	public void setAppFrequencyLimit(int appFrequencyLimit) {
+		this.appFrequencyLimit = appFrequencyLimit;
+	}
+
+	public int getAppFrequencyBurst() {
+		return appFrequencyBurst;
+	}
+
+	/**
+	 * @param appFrequencyBurst 应用允许的突发访问次数，默认等于每秒的访问次数上限
+	 */
+	public void setAppFrequencyBurst(int appFrequencyBurst) {
+		this.appFrequencyBurst = appFrequencyBurst;
+	}
+
+	public Map<String, Integer> getAppFrequencyLimits() {
+		return appFrequencyLimits;
+	}
+
+	public void setAppFrequencyLimits(Map<String, Integer> appFrequencyLimits) {
+		this.appFrequencyLimits = copy(appFrequencyLimits);
+	}
+
+	public Map<String, Integer> getServiceFrequencyLimits() {
+		return serviceFrequencyLimits;
+	}
+
+	public void setServiceFrequencyLimits(Map<String, Integer> serviceFrequencyLimits) {
+		this.serviceFrequencyLimits = copy(serviceFrequencyLimits);
+	}
+
+	public long getAppInvokeLimit() {
+		return appInvokeLimit;
+	}
+
+	/**
+	 * @param appInvokeLimit 应用在一个窗口内的调用次数上限
+	 */
+	public void setAppInvokeLimit(long appInvokeLimit) {
+		this.appInvokeLimit = appInvokeLimit;
+	}
+
+	public Map<String, Long> getAppInvokeLimits() {
+		return appInvokeLimits;
+	}
+
+	public void setAppInvokeLimits(Map<String, Long> appInvokeLimits) {
+		this.appInvokeLimits = copy(appInvokeLimits);
+	}
+
+	public MappedQuotaStore getAppDailyQuotaStore() {
+		return appDailyQuotaStore;
+	}
+
+	/**
+	 * @param appDailyQuotaStore 保存应用每日调用次数的文件，重启后继续累计
+	 */
+	public void setAppDailyQuotaStore(MappedQuotaStore appDailyQuotaStore) {
+		this.appDailyQuotaStore = appDailyQuotaStore;
+	}
+
+	public long getAppDailyInvokeLimit() {
+		return appDailyInvokeLimit;
+	}
+
+	/**
+	 * @param appDailyInvokeLimit 应用每天的调用次数上限，需同时设置appDailyQuotaStore
+	 */
+	public void setAppDailyInvokeLimit(long appDailyInvokeLimit) {
+		this.appDailyInvokeLimit = appDailyInvokeLimit;
+	}
+
+	public Map<String, Long> getAppDailyInvokeLimits() {
+		return appDailyInvokeLimits;
+	}
+
+	public void setAppDailyInvokeLimits(Map<String, Long> appDailyInvokeLimits) {
+		this.appDailyInvokeLimits = copy(appDailyInvokeLimits);
+	}
+
+	public long getSessionInvokeLimit() {
+		return sessionInvokeLimit;
+	}
+
+	public void setSessionInvokeLimit(long sessionInvokeLimit) {
+		this.sessionInvokeLimit = sessionInvokeLimit;
+	}
+
+	public long getUserInvokeLimit() {
+		return userInvokeLimit;
+	}
+
+	public void setUserInvokeLimit(long userInvokeLimit) {
+		this.userInvokeLimit = userInvokeLimit;
+	}
+
+	public String getUserIdAttributeName() {
+		return userIdAttributeName;
+	}
+
+	public void setUserIdAttributeName(String userIdAttributeName) {
+		this.userIdAttributeName = userIdAttributeName;
+	}
+
+	public int getWindowSeconds() {
+		return windowSeconds;
+	}
+
+	public void setWindowSeconds(int windowSeconds) {
+		this.windowSeconds = windowSeconds;
+	}
+
+	public int getWindowSlices() {
+		return windowSlices;
+	}
+
+	public void setWindowSlices(int windowSlices) {
+		this.windowSlices = windowSlices;
+	}
+
+	public int getMaximumKeys() {
+		return maximumKeys;
+	}
+
+	public void setMaximumKeys(int maximumKeys) {
+		this.maximumKeys = maximumKeys;
+	}
+
+	private static <T> Map<String, T> copy(Map<String, T> map) {
+		return map == null || map.isEmpty() ? Collections.<String, T>emptyMap() : new HashMap<String, T>(map);
+	}
+
+	private static class Counters {
+
+		private final Cache<String, TokenBucket> appBuckets;
+
+		private final Cache<String, TokenBucket> serviceBuckets;
+
+		private final Cache<String, SlidingWindowCounter> appCounters;
+
+		private final Cache<String, SlidingWindowCounter> sessionCounters;
+
+		private final Cache<String, SlidingWindowCounter> userCounters;
+
+		private Counters(int maximumKeys, int windowSeconds) {
+			//令牌桶空闲1分钟后已经补满，淘汰后重建不影响限流
+			this.appBuckets = buildCache(maximumKeys, 60);
+			this.serviceBuckets = buildCache(maximumKeys, 60);
+			this.appCounters = buildCache(maximumKeys, windowSeconds);
+			this.sessionCounters = buildCache(maximumKeys, windowSeconds);
+			this.userCounters = buildCache(maximumKeys, windowSeconds);
+		}
+
+		private static <V> Cache<String, V> buildCache(int maximumKeys, int idleSeconds) {
+			return CacheBuilder.newBuilder()
+					.maximumSize(maximumKeys)
+					.expireAfterAccess(Math.max(idleSeconds, 1), TimeUnit.SECONDS)
+					.build();
+		}
+	}
+}
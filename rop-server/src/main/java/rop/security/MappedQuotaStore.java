@@ -0,0 +1,328 @@
+package rop.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rop.RopException;
+import rop.thirdparty.com.google.common.hash.HashFunction;
+import rop.thirdparty.com.google.common.hash.Hashing;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <pre>
+ *    保存在内存映射文件中的每日调用次数，重启后继续累计，请求过程中除写入页缓存外没有其它I/O。
+ *    文件为固定大小的开放寻址表，每个槽16字节：键(appKey)的64位哈希及计数，按线性探测查找。
+ *    槽按下标分段加锁更新，每到一天的切换时刻(rolloverHour点)清零。
+ *    表满时新的键不再计数，键的数量应小于capacity。
+ *    不再使用时调用{@link #close()}(如配置为Spring Bean的destroy-method)将计数写回磁盘。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class MappedQuotaStore implements Closeable {
+
+	private static final int MAGIC = 0x524f5051;
+
+	private static final int FORMAT_VERSION = 1;
+
+	//magic(4) + version(4) + capacity(4) + 保留(4) + day(8)
+	private static final int HEADER_SIZE = 24;
+
+	private static final int DAY_OFFSET = 16;
+
+	private static final int SLOT_SIZE = 16;
+
+	private static final int LOCK_COUNT = 64;
+
+	private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+	private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+	protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final File file;
+
+	private final int capacity;
+
+	private final RandomAccessFile randomAccessFile;
+
+	private final MappedByteBuffer buffer;
+
+	private final ReentrantLock[] locks = new ReentrantLock[LOCK_COUNT];
+
+	//键到槽，切换日期时清空
+	private final ConcurrentMap<String, Slot> slots = new ConcurrentHashMap<String, Slot>();
+
+	private TimeZone timeZone = TimeZone.getDefault();
+
+	private int rolloverHour;
+
+	private volatile long currentDay;
+
+	private volatile boolean fullWarned;
+
+	/**
+	 * @param file     计数文件，不存在时创建
+	 * @param capacity 最多保存的键数
+	 */
+	public MappedQuotaStore(File file, int capacity) {
+		if (capacity <= 0 || capacity > (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE) {
+			throw new IllegalArgumentException("capacity必须大于0且不超过" + (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE);
+		}
+		this.file = file;
+		this.capacity = capacity;
+		for (int i = 0; i < LOCK_COUNT; i++) {
+			locks[i] = new ReentrantLock();
+		}
+		long size = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+		try {
+			File parent = file.getAbsoluteFile().getParentFile();
+			if (parent != null && !parent.exists() && !parent.mkdirs()) {
+				throw new IOException("无法创建目录" + parent);
+			}
+			this.randomAccessFile = new RandomAccessFile(file, "rw");
+			boolean valid = randomAccessFile.length() == size;
+			randomAccessFile.setLength(size);
+			this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			if (!valid || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION || buffer.getInt(8) != capacity) {
+				if (valid) {
+					logger.warn("调用次数文件{}的格式或容量不匹配，重新初始化", file);
+				}
+				initialize();
+			}
+			this.currentDay = buffer.getLong(DAY_OFFSET);
+		} catch (IOException e) {
+			throw new RopException("无法打开调用次数文件" + file, e);
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("打开调用次数文件{}，容量{}", file, capacity);
+		}
+	}
+
+	public MappedQuotaStore(String file, int capacity) {
+		this(new File(file), capacity);
+	}
+
+	private void initialize() {
+		for (int i = 0; i < HEADER_SIZE + capacity * SLOT_SIZE; i += 8) {
+			buffer.putLong(i, 0L);
+		}
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, FORMAT_VERSION);
+		buffer.putInt(8, capacity);
+		buffer.putLong(DAY_OFFSET, today());
+	}
+
+	/**
+	 * 当天的计数加1
+	 *
+	 * @param key
+	 * @return 加1后的计数，表满时返回0
+	 */
+	public long incrementAndGet(String key) {
+		return addAndGet(key, 1);
+	}
+
+	/**
+	 * @param key
+	 * @param delta
+	 * @return 增加后的计数，表满时返回0
+	 */
+	public long addAndGet(String key, long delta) {
+		checkRollover();
+		while (true) {
+			Slot slot = getSlot(key, true);
+			if (slot == null) {
+				return 0;
+			}
+			int offset = HEADER_SIZE + slot.index * SLOT_SIZE;
+			ReentrantLock lock = lockOf(slot.index);
+			lock.lock();
+			try {
+				//槽在取得后被切换日期清空时重新查找
+				if (buffer.getLong(offset) == slot.hash) {
+					long count = buffer.getLong(offset + 8) + delta;
+					buffer.putLong(offset + 8, count);
+					return count;
+				}
+				slots.remove(key, slot);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return 当天的计数
+	 */
+	public long get(String key) {
+		checkRollover();
+		Slot slot = getSlot(key, false);
+		if (slot == null) {
+			return 0;
+		}
+		int offset = HEADER_SIZE + slot.index * SLOT_SIZE;
+		ReentrantLock lock = lockOf(slot.index);
+		lock.lock();
+		try {
+			return buffer.getLong(offset) == slot.hash ? buffer.getLong(offset + 8) : 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 查找键的槽
+	 *
+	 * @param key
+	 * @param create 不存在时是否占用一个空槽
+	 * @return 不存在或表满时返回null
+	 */
+	private Slot getSlot(String key, boolean create) {
+		Slot cached = slots.get(key);
+		if (cached != null) {
+			return cached;
+		}
+		long hash = HASH_FUNCTION.newHasher().putUnencodedChars(key).hash().asLong();
+		if (hash == 0) {
+			//0表示空槽
+			hash = 1;
+		}
+		int start = (int) ((hash & Long.MAX_VALUE) % capacity);
+		for (int i = 0; i < capacity; i++) {
+			int index = (start + i) % capacity;
+			int offset = HEADER_SIZE + index * SLOT_SIZE;
+			ReentrantLock lock = lockOf(index);
+			lock.lock();
+			try {
+				long slotHash = buffer.getLong(offset);
+				if (slotHash == 0) {
+					if (!create) {
+						return null;
+					}
+					buffer.putLong(offset, hash);
+				}
+				if (slotHash == 0 || slotHash == hash) {
+					Slot slot = new Slot(index, hash);
+					slots.put(key, slot);
+					return slot;
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		if (!fullWarned) {
+			fullWarned = true;
+			logger.warn("调用次数文件{}已满({}个键)，新的键不再计数", file, capacity);
+		}
+		return null;
+	}
+
+	private ReentrantLock lockOf(int index) {
+		return locks[index & (LOCK_COUNT - 1)];
+	}
+
+	private void checkRollover() {
+		long today = today();
+		if (today > currentDay) {
+			rollover(today);
+		}
+	}
+
+	/**
+	 * 进入新的一天，锁住所有槽后清零
+	 */
+	private void rollover(long today) {
+		for (ReentrantLock lock : locks) {
+			lock.lock();
+		}
+		try {
+			if (today <= currentDay) {
+				return;
+			}
+			for (int i = HEADER_SIZE; i < HEADER_SIZE + capacity * SLOT_SIZE; i += 8) {
+				buffer.putLong(i, 0L);
+			}
+			buffer.putLong(DAY_OFFSET, today);
+			slots.clear();
+			fullWarned = false;
+			currentDay = today;
+			if (logger.isInfoEnabled()) {
+				logger.info("调用次数文件{}进入新的一天，计数清零", file);
+			}
+		} finally {
+			for (ReentrantLock lock : locks) {
+				lock.unlock();
+			}
+		}
+	}
+
+	private long today() {
+		long now = System.currentTimeMillis();
+		long local = now + timeZone.getOffset(now) - TimeUnit.HOURS.toMillis(rolloverHour);
+		return local >= 0 ? local / DAY_MILLIS : (local - DAY_MILLIS + 1) / DAY_MILLIS;
+	}
+
+	/**
+	 * 将计数写回磁盘
+	 */
+	public void force() {
+		buffer.force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		randomAccessFile.close();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public TimeZone getTimeZone() {
+		return timeZone;
+	}
+
+	public void setTimeZone(TimeZone timeZone) {
+		this.timeZone = timeZone;
+	}
+
+	public int getRolloverHour() {
+		return rolloverHour;
+	}
+
+	/**
+	 * @param rolloverHour 每天计数清零的时刻(0-23点)，默认0点
+	 */
+	public void setRolloverHour(int rolloverHour) {
+		if (rolloverHour < 0 || rolloverHour > 23) {
+			throw new IllegalArgumentException("rolloverHour必须在0到23之间");
+		}
+		this.rolloverHour = rolloverHour;
+	}
+
+	private static class Slot {
+
+		private final int index;
+
+		private final long hash;
+
+		private Slot(int index, long hash) {
+			this.index = index;
+			this.hash = hash;
+		}
+	}
+}
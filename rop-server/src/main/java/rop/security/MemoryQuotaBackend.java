@@ -0,0 +1,108 @@
+package rop.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <pre>
+ *    进程内的配额存储，多个{@link ClusterInvokeTimesController}共享同一实例时模拟集群，用于测试及单机部署。
+ *    每个键按时间窗口序号的奇偶保留相邻两个窗口的用量，预租下一个窗口的令牌不影响当前窗口，
+ *    键的数量应有限(如已校验的appKey)。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public class MemoryQuotaBackend implements QuotaBackend {
+
+	private final ConcurrentMap<String, AtomicReferenceArray<Usage>> usages = new ConcurrentHashMap<String, AtomicReferenceArray<Usage>>();
+
+	@Override
+	public long acquire(String key, long window, long requested, long limit) {
+		Usage usage = getUsage(key, window);
+		if (usage == null) {
+			return 0;
+		}
+		while (true) {
+			long used = usage.used.get();
+			long granted = Math.min(requested, limit - used);
+			if (granted <= 0) {
+				return 0;
+			}
+			if (usage.used.compareAndSet(used, used + granted)) {
+				return granted;
+			}
+		}
+	}
+
+	@Override
+	public void release(String key, long window, long unused) {
+		AtomicReferenceArray<Usage> windows = usages.get(key);
+		Usage usage = windows == null ? null : windows.get(slotOf(window));
+		if (usage != null && usage.window == window && unused > 0) {
+			while (true) {
+				long used = usage.used.get();
+				if (usage.used.compareAndSet(used, Math.max(used - unused, 0))) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return 时间窗口已过去时返回null
+	 */
+	private Usage getUsage(String key, long window) {
+		AtomicReferenceArray<Usage> windows = usages.get(key);
+		if (windows == null) {
+			windows = new AtomicReferenceArray<Usage>(2);
+			AtomicReferenceArray<Usage> existing = usages.putIfAbsent(key, windows);
+			if (existing != null) {
+				windows = existing;
+			}
+		}
+		int slot = slotOf(window);
+		while (true) {
+			Usage usage = windows.get(slot);
+			if (usage != null && usage.window == window) {
+				return usage;
+			}
+			if (usage != null && usage.window > window) {
+				return null;
+			}
+			//槽中是更早的窗口，换成新窗口
+			Usage created = new Usage(window);
+			if (windows.compareAndSet(slot, usage, created)) {
+				return created;
+			}
+		}
+	}
+
+	private static int slotOf(long window) {
+		return (int) (window & 1);
+	}
+
+	/**
+	 * @param key
+	 * @param window
+	 * @return 时间窗口内已借出的令牌数
+	 */
+	public long getUsed(String key, long window) {
+		AtomicReferenceArray<Usage> windows = usages.get(key);
+		Usage usage = windows == null ? null : windows.get(slotOf(window));
+		return usage != null && usage.window == window ? usage.used.get() : 0;
+	}
+
+	private static class Usage {
+
+		private final long window;
+
+		private final AtomicLong used = new AtomicLong();
+
+		private Usage(long window) {
+			this.window = window;
+		}
+	}
+}
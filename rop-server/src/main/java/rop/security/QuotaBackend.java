@@ -0,0 +1,34 @@
+package rop.security;
+
+/**
+ * <pre>
+ *    集群共享的配额存储，{@link ClusterInvokeTimesController}从中成批租借令牌后在本地消耗。
+ *    配额按时间窗口(时间戳/窗口长度)计算，实现需保证同一键同一窗口内各节点借出的令牌总数不超过limit。
+ *    基于Redis等远程存储的实现可以用INCRBY加过期时间完成一次租借。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public interface QuotaBackend {
+
+	/**
+	 * 从时间窗口的配额中租借令牌
+	 *
+	 * @param key       配额的键，如appKey
+	 * @param window    时间窗口序号
+	 * @param requested 希望借到的令牌数
+	 * @param limit     时间窗口内的总配额
+	 * @return 实际借到的令牌数，配额已用完时返回0
+	 */
+	long acquire(String key, long window, long requested, long limit);
+
+	/**
+	 * 归还未用完的令牌，时间窗口已过去时忽略
+	 *
+	 * @param key
+	 * @param window
+	 * @param unused 未用完的令牌数
+	 */
+	void release(String key, long window, long unused);
+}
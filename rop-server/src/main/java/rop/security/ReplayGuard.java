@@ -0,0 +1,22 @@
+package rop.security;
+
+/**
+ * <pre>
+ *    重放请求检查器：记录时间戳容忍范围内出现过的请求签名，同一appKey的相同签名再次出现即视为重放。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public interface ReplayGuard {
+
+	/**
+	 * 记录一次请求，并判断该请求此前是否已经出现过
+	 *
+	 * @param appKey
+	 * @param sign      请求签名
+	 * @param timestamp 请求的时间戳，单位为毫秒
+	 * @return 已经出现过返回true
+	 */
+	boolean isReplayed(String appKey, String sign, long timestamp);
+}
@@ -0,0 +1,30 @@
+package rop.security;
+
+import rop.RopRequestContext;
+
+/**
+ * <pre>
+ *    可按请求上下文控制调用次数的控制器，{@link DefaultSecurityManager}及服务路由器优先调用本接口的方法，
+ *    可以取得请求的服务方法、会话ID等信息，实现按服务方法的限流。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public interface RequestInvokeTimesController extends InvokeTimesController {
+
+	/**
+	 * 应用对请求的服务方法的访问频率是否超限
+	 *
+	 * @param ropRequestContext
+	 * @return
+	 */
+	boolean isServiceInvokeFrequencyExceed(RopRequestContext ropRequestContext);
+
+	/**
+	 * 计算应用、会话及用户服务调度总数，替代{@link #caculateInvokeTimes(String, rop.session.Session)}
+	 *
+	 * @param ropRequestContext
+	 */
+	void caculateInvokeTimes(RopRequestContext ropRequestContext);
+}
@@ -0,0 +1,33 @@
+package rop.security;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * <pre>
+ *    {@link BitSetServiceAccessController}的授权数据来源，如数据库、配置中心。
+ *    授权的服务方法可以是：
+ *      1."method#version"：指定版本的服务方法；
+ *      2."method"：服务方法的所有版本；
+ *      3."*"：所有服务方法。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+public interface ServiceAccessSource {
+
+	/**
+	 * 加载ISV的授权
+	 *
+	 * @return 键为appKey，值为授权的服务方法
+	 */
+	Map<String, ? extends Collection<String>> loadAppGrants();
+
+	/**
+	 * 加载角色的授权
+	 *
+	 * @return 键为角色，值为授权的服务方法；返回null或空表示不检查用户权限
+	 */
+	Map<String, ? extends Collection<String>> loadRoleGrants();
+}
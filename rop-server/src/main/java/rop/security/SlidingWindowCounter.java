@@ -0,0 +1,104 @@
+package rop.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <pre>
+ *    滑动窗口计数器：窗口等分为若干时间片，环形保存，计数为窗口内各时间片之和，精度为一个时间片。
+ *    每个时间片的计数按线程分散到多个以缓存行隔开的单元，高并发累加时互不争用，求和时再合并。
+ *    进入新时间片的第一次累加以CAS替换环中最老的时间片，与替换同时发生的累加可能丢失。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+final class SlidingWindowCounter {
+
+	//一个单元占8个long(64字节)，避免伪共享
+	private static final int CELL_PADDING = 8;
+
+	private final long sliceMillis;
+
+	private final int stripes;
+
+	private final AtomicReferenceArray<Slice> slices;
+
+	/**
+	 * @param windowMillis 窗口长度
+	 * @param sliceCount   时间片数
+	 * @param stripes      每个时间片的计数单元数，取2的幂，为1时不分散
+	 */
+	SlidingWindowCounter(long windowMillis, int sliceCount, int stripes) {
+		this.slices = new AtomicReferenceArray<Slice>(Math.max(sliceCount, 1));
+		this.sliceMillis = Math.max(windowMillis / slices.length(), 1);
+		this.stripes = Integer.highestOneBit(Math.max(stripes, 1));
+	}
+
+	void increment() {
+		long epoch = System.currentTimeMillis() / sliceMillis;
+		int index = (int) (epoch % slices.length());
+		while (true) {
+			Slice slice = slices.get(index);
+			if (slice != null && slice.epoch >= epoch) {
+				slice.increment();
+				return;
+			}
+			Slice fresh = new Slice(epoch, stripes);
+			if (slices.compareAndSet(index, slice, fresh)) {
+				fresh.increment();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return 当前窗口内的计数
+	 */
+	long sum() {
+		long epoch = System.currentTimeMillis() / sliceMillis;
+		long sum = 0;
+		for (int i = 0; i < slices.length(); i++) {
+			Slice slice = slices.get(i);
+			if (slice != null && epoch - slice.epoch < slices.length()) {
+				sum += slice.sum();
+			}
+		}
+		return sum;
+	}
+
+	private static final class Slice {
+
+		private final long epoch;
+
+		private final int mask;
+
+		private final AtomicLongArray cells;
+
+		private Slice(long epoch, int stripes) {
+			this.epoch = epoch;
+			this.mask = stripes - 1;
+			this.cells = new AtomicLongArray(stripes == 1 ? 1 : stripes * CELL_PADDING);
+		}
+
+		private void increment() {
+			if (mask == 0) {
+				cells.incrementAndGet(0);
+			} else {
+				int hash = (int) (Thread.currentThread().getId() * 0x9E3779B9L);
+				cells.incrementAndGet(((hash ^ (hash >>> 16)) & mask) * CELL_PADDING);
+			}
+		}
+
+		private long sum() {
+			if (mask == 0) {
+				return cells.get(0);
+			}
+			long sum = 0;
+			for (int i = 0; i < cells.length(); i += CELL_PADDING) {
+				sum += cells.get(i);
+			}
+			return sum;
+		}
+	}
+}
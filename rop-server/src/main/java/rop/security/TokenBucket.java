@@ -0,0 +1,46 @@
+package rop.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ *    无锁令牌桶，按GCRA(通用信元速率算法)实现：只保存下一个令牌的理论到达时间，
+ *    每次获取令牌一次CAS，与容量为burst、每秒补充rate个令牌的令牌桶等价。
+ *    速率与容量由调用方每次传入，修改限流配置后立即生效。
+ * </pre>
+ *
+ * @author luopeng
+ * @version 1.0
+ */
+final class TokenBucket {
+
+	//理论到达时间，System.nanoTime()
+	private final AtomicLong theoreticalArrivalTime;
+
+	TokenBucket() {
+		this.theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * 获取一个令牌
+	 *
+	 * @param rate  每秒补充的令牌数
+	 * @param burst 桶的容量
+	 * @return 桶中没有令牌时返回false
+	 */
+	boolean tryAcquire(int rate, int burst) {
+		long intervalNanos = 1000000000L / Math.max(rate, 1);
+		long toleranceNanos = intervalNanos * (Math.max(burst, 1) - 1);
+		long now = System.nanoTime();
+		while (true) {
+			long arrivalTime = theoreticalArrivalTime.get();
+			long start = arrivalTime - now > 0 ? arrivalTime : now;
+			if (start - now > toleranceNanos) {
+				return false;
+			}
+			if (theoreticalArrivalTime.compareAndSet(arrivalTime, start + intervalNanos)) {
+				return true;
+			}
+		}
+	}
+}